@@ -0,0 +1,43 @@
+#!/bin/sh
+#
+# Runs the eclipse-common JMH benchmarks.
+#
+#   ./run-benchmarks.sh [JMH options]            e.g. ./run-benchmarks.sh ImageManagerBenchmark
+#   ./run-benchmarks.sh --baseline [JMH options] records the results as the new baseline
+#
+# SWT needs an X display. When DISPLAY is not set, a virtual display is started with Xvfb
+# and shut down again after the run.
+# Results are written in JSON to target/jmh-result.json, or baseline/jmh-baseline.json with
+# --baseline. Commit the baseline file so that regressions show up in review.
+
+cd "$(dirname "$0")" || exit 1
+
+RESULT=target/jmh-result.json
+if [ "$1" = "--baseline" ]; then
+    shift
+    mkdir -p baseline
+    RESULT=baseline/jmh-baseline.json
+fi
+
+JAR=target/benchmarks.jar
+if [ ! -f "$JAR" ]; then
+    echo "$JAR not found. Run 'mvn package' first." >&2
+    exit 1
+fi
+
+XVFB_PID=
+if [ -z "$DISPLAY" ]; then
+    if ! command -v Xvfb >/dev/null 2>&1; then
+        echo "DISPLAY is not set and Xvfb is not installed." >&2
+        exit 1
+    fi
+    XVFB_DISPLAY=${XVFB_DISPLAY:-:99}
+    Xvfb "$XVFB_DISPLAY" -screen 0 1280x1024x24 -nolisten tcp >/dev/null 2>&1 &
+    XVFB_PID=$!
+    trap 'kill $XVFB_PID 2>/dev/null' EXIT INT TERM
+    DISPLAY=$XVFB_DISPLAY
+    export DISPLAY
+    sleep 1
+fi
+
+java -jar "$JAR" -rf json -rff "$RESULT" "$@"
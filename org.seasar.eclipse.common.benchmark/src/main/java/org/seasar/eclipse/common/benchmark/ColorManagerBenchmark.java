@@ -0,0 +1,89 @@
+/*
+ * Copyright 2004-2008 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.eclipse.common.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.swt.graphics.Color;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.seasar.eclipse.common.util.ColorManager;
+
+/**
+ * {@link ColorManager} のベンチマークです。<br />
+ * 
+ * @author y-komori
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ColorManagerBenchmark {
+    /**
+     * {@link ColorManager} のクラス初期化より前に {@link org.eclipse.swt.widgets.Display} を作成します。<br />
+     * 
+     * @param state
+     *        {@link DisplayState} オブジェクト
+     */
+    @Setup(Level.Trial)
+    public void setUp(final DisplayState state) {
+        ColorManager.getColor("#FF8000");
+    }
+
+    /**
+     * 登録済みの名称(<code>#RRGGBB</code> の大文字)による検索のベンチマークです。<br />
+     * 
+     * @return {@link Color} オブジェクト
+     */
+    @Benchmark
+    public Color getColor_Registered() {
+        return ColorManager.getColor("#FF8000");
+    }
+
+    /**
+     * 登録名と一致しない <code>#rrggbb</code> 形式のテキストによる検索のベンチマークです。<br />
+     * <p>
+     * 呼び出しのたびにテキストの解析と再登録が行われます。
+     * </p>
+     * 
+     * @return {@link Color} オブジェクト
+     */
+    @Benchmark
+    public Color getColor_ColorText() {
+        return ColorManager.getColor("#ff8000");
+    }
+
+    /**
+     * <code>#RRGGBB</code> 形式のテキストの解析と登録のベンチマークです。<br />
+     * 
+     * @return 登録したカラー名称
+     */
+    @Benchmark
+    public String putColorByColorText() {
+        return ColorManager.putColorByColorText("#0080FF");
+    }
+}
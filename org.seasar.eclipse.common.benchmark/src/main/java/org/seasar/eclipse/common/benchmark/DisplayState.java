@@ -0,0 +1,70 @@
+/*
+ * Copyright 2004-2008 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.eclipse.common.benchmark;
+
+import org.eclipse.swt.widgets.Display;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.seasar.eclipse.common.util.ImageManager;
+
+/**
+ * ベンチマークを実行するスレッドで {@link Display} を作成するための状態クラスです。<br />
+ * <p>
+ * {@link Display} を使用するベンチマークは、本クラスを {@code @Setup} メソッドの引数に指定してください。
+ * {@link Display} を作成した後、{@link ImageManager} を初期化します。<br />
+ * X サーバのない環境では、{@code run-benchmarks.sh} から実行することで Xvfb 上で実行できます。
+ * </p>
+ * 
+ * @author y-komori
+ */
+@State(Scope.Thread)
+public class DisplayState {
+    private Display display;
+
+    /**
+     * {@link Display} を作成し、{@link ImageManager} を初期化します。<br />
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        display = Display.getCurrent();
+        if (display == null) {
+            display = new Display();
+        }
+        ImageManager.init(display);
+    }
+
+    /**
+     * {@link Display} を破棄します。<br />
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (display != null) {
+            display.dispose();
+        }
+    }
+
+    /**
+     * {@link Display} を返します。<br />
+     * 
+     * @return {@link Display} オブジェクト
+     */
+    public Display getDisplay() {
+        return display;
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2004-2008 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.eclipse.common.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Font;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.seasar.eclipse.common.util.FontManager;
+
+/**
+ * {@link FontManager} のベンチマークです。<br />
+ * 
+ * @author y-komori
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FontManagerBenchmark {
+    private static final String FONT_NAME = "Sans";
+
+    private static final int MIN_HEIGHT = 8;
+
+    private static final int HEIGHT_COUNT = 8;
+
+    private int next;
+
+    /**
+     * {@link FontManager} のクラス初期化より前に {@link org.eclipse.swt.widgets.Display} を作成し、フォントを登録しておきます。<br />
+     * 
+     * @param state
+     *        {@link DisplayState} オブジェクト
+     */
+    @Setup(Level.Trial)
+    public void setUp(final DisplayState state) {
+        for (int i = 0; i < HEIGHT_COUNT; i++) {
+            FontManager.get(FONT_NAME, MIN_HEIGHT + i, SWT.NORMAL);
+        }
+    }
+
+    /**
+     * 同一のフォントを繰り返し取得する処理のベンチマークです。<br />
+     * 
+     * @return {@link Font} オブジェクト
+     */
+    @Benchmark
+    public Font get() {
+        return FontManager.get(FONT_NAME, 10, SWT.NORMAL);
+    }
+
+    /**
+     * 大きさの異なる登録済みのフォントを順に取得する処理のベンチマークです。<br />
+     * 
+     * @return {@link Font} オブジェクト
+     */
+    @Benchmark
+    public Font get_Rotating() {
+        next = (next + 1) % HEIGHT_COUNT;
+        return FontManager.get(FONT_NAME, MIN_HEIGHT + next, SWT.NORMAL);
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2004-2008 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.eclipse.common.benchmark;
+
+import java.util.ResourceBundle;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.swt.graphics.Image;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.seasar.eclipse.common.util.ImageManager;
+
+/**
+ * {@link ImageManager} のベンチマークです。<br />
+ * 
+ * @author y-komori
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ImageManagerBenchmark {
+    private static final String BUNDLE_NAME = "org.seasar.eclipse.common.benchmark.BenchmarkImages";
+
+    private static final String ARG_PATH = "org/seasar/eclipse/common/benchmark/images/arg.gif";
+
+    private ResourceBundle bundle;
+
+    private int argId;
+
+    /**
+     * イメージを登録し、一度生成しておきます。<br />
+     * 
+     * @param state
+     *        {@link DisplayState} オブジェクト
+     */
+    @Setup(Level.Trial)
+    public void setUp(final DisplayState state) {
+        bundle = ResourceBundle.getBundle(BUNDLE_NAME);
+        ImageManager.loadImages(bundle);
+        ImageManager.getImage("ARG_IMG");
+        argId = ImageManager.internKey("ARG_IMG");
+    }
+
+    /**
+     * パスを指定してイメージを読み込み、登録済みのキーを置き換える処理のベンチマークです。<br />
+     * 
+     * @return {@link Image} オブジェクト
+     */
+    @Benchmark
+    public Image putImage() {
+        return ImageManager.putImage("PUT_IMG", ARG_PATH);
+    }
+
+    /**
+     * リソースバンドルに含まれるイメージを一括登録する処理のベンチマークです。<br />
+     */
+    @Benchmark
+    public void loadImages() {
+        ImageManager.loadImages(bundle);
+    }
+
+    /**
+     * フィールドへのイメージのインジェクションのベンチマークです。<br />
+     */
+    @Benchmark
+    public void injectImages() {
+        ImageManager.injectImages(InjectedImages.class);
+    }
+
+    /**
+     * キーによる生成済みイメージの検索のベンチマークです。<br />
+     * 
+     * @return {@link Image} オブジェクト
+     */
+    @Benchmark
+    public Image getImage() {
+        return ImageManager.getImage("ARG_IMG");
+    }
+
+    /**
+     * ID による生成済みイメージの検索のベンチマークです。<br />
+     * 
+     * @return {@link Image} オブジェクト
+     */
+    @Benchmark
+    public Image getImageById() {
+        return ImageManager.getImage(argId);
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2004-2008 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.eclipse.common.benchmark;
+
+import org.eclipse.jface.resource.ImageDescriptor;
+import org.eclipse.swt.graphics.Image;
+import org.seasar.eclipse.common.util.ImageManager;
+import org.seasar.eclipse.common.util.LazyImage;
+
+/**
+ * {@link ImageManager#injectImages(Class)} のベンチマークで使用する、インジェクション対象のクラスです。<br />
+ * 
+ * @author y-komori
+ */
+public class InjectedImages {
+    public static Image ARG_IMG;
+
+    public static Image COMPONENT_IMG;
+
+    public static Image CONTAINER_IMG;
+
+    public static ImageDescriptor INCLUDE_IMG;
+
+    public static LazyImage PROPERTY_IMG;
+
+    private InjectedImages() {
+    }
+}
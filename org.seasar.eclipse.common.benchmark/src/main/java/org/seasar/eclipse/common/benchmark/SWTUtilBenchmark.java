@@ -0,0 +1,63 @@
+/*
+ * Copyright 2004-2008 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.eclipse.common.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.seasar.eclipse.common.util.SWTUtil;
+
+/**
+ * {@link SWTUtil} のベンチマークです。<br />
+ * <p>
+ * 本ベンチマークは {@link org.eclipse.swt.widgets.Display} を使用しません。
+ * </p>
+ * 
+ * @author y-komori
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class SWTUtilBenchmark {
+
+    /**
+     * 単一の定数からのスタイルの計算のベンチマークです。<br />
+     * 
+     * @return スタイル値
+     */
+    @Benchmark
+    public int getStyle_Single() {
+        return SWTUtil.getStyle("BORDER");
+    }
+
+    /**
+     * カンマ区切りの複数の定数からのスタイルの計算のベンチマークです。<br />
+     * 
+     * @return スタイル値
+     */
+    @Benchmark
+    public int getStyle_Multiple() {
+        return SWTUtil.getStyle("HORIZONTAL, SHADOW_IN, CENTER");
+    }
+}
@@ -0,0 +1,339 @@
+/*
+ * Copyright 2004-2008 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.eclipse.common.util;
+
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.ImageLoader;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
+import org.seasar.framework.util.InputStreamUtil;
+import org.seasar.framework.util.URLUtil;
+
+/**
+ * アニメーション GIF など、複数のフレームからなるイメージを表すクラスです。<br />
+ * <p>
+ * {@link ImageLoader} で読み込んだフレームは、インデックスカラーのままの {@link ImageData} として保持します。
+ * 各フレームの {@link Image} オブジェクトは、必要になったときに前のフレームに重ねて作成し、
+ * {@link #setFrameCacheLimit(long)} メソッドで設定した上限の範囲でキャッシュします。
+ * 上限を超えた場合は、表示中でないフレームから最も長く使用されていないものを破棄します。<br />
+ * {@link #play(Control, AnimationListener)} メソッドで再生すると、{@link Display}
+ * ごとに一つの共有タイマによってフレームが切り替えられます。アニメーションごとにスレッドやタイマを作成することはありません。
+ * 表示されているアニメーションがない間は、タイマも停止します。<br />
+ * 本クラスのメソッドは {@link Display} スレッドから呼び出してください。
+ * </p>
+ * <p>
+ * コーディング例
+ * </p>
+ * 
+ * <pre>
+ * AnimatedImage busy = ImageManager.loadAnimatedImage(&quot;icons/busy.gif&quot;);
+ * busy.play(label, new AnimationListener() {
+ *     public void frameChanged(AnimatedImage image, int index, Image frame) {
+ *         label.setImage(frame);
+ *     }
+ * });
+ * </pre>
+ * 
+ * @author y-komori
+ */
+public class AnimatedImage {
+    /**
+     * フレームのキャッシュのバイト数の上限の既定値です。<br />
+     */
+    public static final long DEFAULT_FRAME_CACHE_LIMIT = 4L * 1024 * 1024;
+
+    /**
+     * 表示時間が指定されていないか、これより短いフレームの表示時間(ミリ秒)です。<br />
+     */
+    public static final int DEFAULT_DELAY = 100;
+
+    private static final int MIN_DELAY = 20;
+
+    private final Display display;
+
+    private final FrameComposer composer;
+
+    private final int repeatCount;
+
+    private final int[] inUse;
+
+    private final Map<Integer, Image> frameCache = new LinkedHashMap<Integer, Image>(16, 0.75f,
+            true);
+
+    private long frameCacheLimit = DEFAULT_FRAME_CACHE_LIMIT;
+
+    private long cachedBytes;
+
+    private int lastIndex = -1;
+
+    private boolean disposed;
+
+    /**
+     * {@link AnimatedImage} を構築します。<br />
+     * 
+     * @param display
+     *        {@link Display} オブジェクト
+     * @param loader
+     *        フレームを読み込み済みの {@link ImageLoader}
+     * @throws IllegalArgumentException
+     *         フレームが一つもない場合
+     */
+    public AnimatedImage(final Display display, final ImageLoader loader) {
+        if (loader.data == null || loader.data.length == 0) {
+            throw new IllegalArgumentException("No frames.");
+        }
+        this.display = display;
+        this.composer = new FrameComposer(loader.data, loader.logicalScreenWidth,
+                loader.logicalScreenHeight);
+        this.repeatCount = loader.repeatCount;
+        this.inUse = new int[loader.data.length];
+    }
+
+    /**
+     * {@code url} で示されるイメージを読み込みます。<br />
+     * 
+     * @param display
+     *        {@link Display} オブジェクト
+     * @param url
+     *        イメージの URL
+     * @return {@link AnimatedImage} オブジェクト
+     */
+    public static AnimatedImage load(final Display display, final URL url) {
+        return load(display, URLUtil.openStream(url));
+    }
+
+    /**
+     * 入力ストリームからイメージを読み込みます。<br />
+     * <p>
+     * 入力ストリームは本メソッド内でクローズされます。
+     * </p>
+     * 
+     * @param display
+     *        {@link Display} オブジェクト
+     * @param is
+     *        入力ストリーム
+     * @return {@link AnimatedImage} オブジェクト
+     */
+    public static AnimatedImage load(final Display display, final InputStream is) {
+        try {
+            ImageLoader loader = new ImageLoader();
+            loader.load(is);
+            return new AnimatedImage(display, loader);
+        } finally {
+            InputStreamUtil.close(is);
+        }
+    }
+
+    /**
+     * フレームの数を返します。<br />
+     * 
+     * @return フレームの数
+     */
+    public int getFrameCount() {
+        return composer.getFrameCount();
+    }
+
+    /**
+     * イメージの幅を返します。<br />
+     * 
+     * @return 幅
+     */
+    public int getWidth() {
+        return composer.getWidth();
+    }
+
+    /**
+     * イメージの高さを返します。<br />
+     * 
+     * @return 高さ
+     */
+    public int getHeight() {
+        return composer.getHeight();
+    }
+
+    /**
+     * 繰り返し回数を返します。<br />
+     * 
+     * @return 繰り返し回数。<code>0</code> の場合は無限に繰り返します。
+     */
+    public int getRepeatCount() {
+        return repeatCount;
+    }
+
+    /**
+     * 指定されたフレームの表示時間を返します。<br />
+     * 
+     * @param index
+     *        フレームの番号
+     * @return 表示時間(ミリ秒)
+     */
+    public int getDelay(final int index) {
+        int delay = composer.getFrame(index).delayTime * 10;
+        return delay < MIN_DELAY ? DEFAULT_DELAY : delay;
+    }
+
+    /**
+     * 指定されたフレームの {@link Image} オブジェクトを返します。<br />
+     * <p>
+     * 返された {@link Image} オブジェクトは本クラスが管理しているため、破棄しないでください。
+     * 最後に返したフレームと再生中に表示しているフレームは、キャッシュの上限を超えても破棄されません。
+     * </p>
+     * 
+     * @param index
+     *        フレームの番号
+     * @return {@link Image} オブジェクト
+     */
+    public Image getFrame(final int index) {
+        checkDisposed();
+        Integer key = new Integer(index);
+        Image frame = frameCache.get(key);
+        if (frame == null) {
+            int width = getWidth();
+            int height = getHeight();
+            ImageData imageData = ImageDataUtil.fromARGB(composer.compose(index), width, height);
+            frame = new Image(display, imageData);
+            ResourceLeakDetector.track(frame);
+            frameCache.put(key, frame);
+            cachedBytes += (long) width * height * 4;
+        }
+        lastIndex = index;
+        evictFrames();
+        return frame;
+    }
+
+    /**
+     * フレームのキャッシュのバイト数の上限を設定します。<br />
+     * 
+     * @param limit
+     *        上限のバイト数
+     */
+    public void setFrameCacheLimit(final long limit) {
+        frameCacheLimit = limit;
+        evictFrames();
+    }
+
+    /**
+     * キャッシュしているフレームの {@link Image} オブジェクトのピクセルバイト数を返します。<br />
+     * 
+     * @return ピクセルバイト数
+     */
+    public long getCachedBytes() {
+        return cachedBytes;
+    }
+
+    /**
+     * キャッシュしているフレームの数を返します。<br />
+     * 
+     * @return フレームの数
+     */
+    public int getCachedFrameCount() {
+        return frameCache.size();
+    }
+
+    /**
+     * 指定されたコントロール上でアニメーションを再生します。<br />
+     * <p>
+     * 先頭のフレームは本メソッド内で {@code listener} に通知されます。以降は、各フレームの表示時間が経過するたびに通知されます。<br />
+     * コントロールが破棄されるか、繰り返し回数だけ再生し終えると、再生は自動的に停止します。
+     * コントロールが表示されていない間は、フレームを進めません。
+     * </p>
+     * 
+     * @param control
+     *        アニメーションを表示するコントロール
+     * @param listener
+     *        フレームの切り替えを受け取る {@link AnimationListener}
+     */
+    public void play(final Control control, final AnimationListener listener) {
+        checkDisposed();
+        AnimationScheduler.getScheduler(display).start(this, control, listener);
+    }
+
+    /**
+     * 指定されたコントロール上でのアニメーションの再生を停止します。<br />
+     * 
+     * @param control
+     *        アニメーションを表示するコントロール
+     */
+    public void stop(final Control control) {
+        if (!display.isDisposed()) {
+            AnimationScheduler.getScheduler(display).stop(this, control);
+        }
+    }
+
+    /**
+     * すべての再生を停止し、フレームの {@link Image} オブジェクトを破棄します。<br />
+     */
+    public void dispose() {
+        if (disposed) {
+            return;
+        }
+        if (!display.isDisposed()) {
+            AnimationScheduler.getScheduler(display).stop(this, null);
+        }
+        disposed = true;
+        for (Image frame : frameCache.values()) {
+            frame.dispose();
+        }
+        frameCache.clear();
+        cachedBytes = 0;
+    }
+
+    /**
+     * 破棄されているかどうかを返します。<br />
+     * 
+     * @return 破棄されている場合は <code>true</code>
+     */
+    public boolean isDisposed() {
+        return disposed;
+    }
+
+    void acquireFrame(final int index) {
+        inUse[index]++;
+    }
+
+    void releaseFrame(final int index) {
+        inUse[index]--;
+        evictFrames();
+    }
+
+    private void evictFrames() {
+        long frameBytes = (long) getWidth() * getHeight() * 4;
+        Iterator<Map.Entry<Integer, Image>> it = frameCache.entrySet().iterator();
+        while (cachedBytes > frameCacheLimit && it.hasNext()) {
+            Map.Entry<Integer, Image> entry = it.next();
+            int index = entry.getKey().intValue();
+            if (index == lastIndex || inUse[index] > 0) {
+                continue;
+            }
+            it.remove();
+            entry.getValue().dispose();
+            cachedBytes -= frameBytes;
+        }
+    }
+
+    private void checkDisposed() {
+        if (disposed) {
+            throw new IllegalStateException("AnimatedImage is disposed.");
+        }
+    }
+}
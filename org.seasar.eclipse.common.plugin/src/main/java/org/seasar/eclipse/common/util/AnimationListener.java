@@ -0,0 +1,44 @@
+/*
+ * Copyright 2004-2008 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.eclipse.common.util;
+
+import org.eclipse.swt.graphics.Image;
+
+/**
+ * {@link AnimatedImage} の再生中に、表示するフレームが切り替わったことを受け取るためのインタフェースです。<br />
+ * <p>
+ * 各メソッドは、{@link org.eclipse.swt.widgets.Display} スレッド上で呼び出されます。
+ * </p>
+ * 
+ * @author y-komori
+ */
+public interface AnimationListener {
+
+    /**
+     * 表示するフレームが切り替わったときに呼び出されます。<br />
+     * <p>
+     * {@code frame} は {@link AnimatedImage} が管理しているため、破棄しないでください。
+     * </p>
+     * 
+     * @param image
+     *        再生中の {@link AnimatedImage}
+     * @param index
+     *        フレームの番号
+     * @param frame
+     *        表示するフレームの {@link Image} オブジェクト
+     */
+    void frameChanged(AnimatedImage image, int index, Image frame);
+}
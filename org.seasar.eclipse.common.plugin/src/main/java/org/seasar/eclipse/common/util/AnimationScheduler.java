@@ -0,0 +1,224 @@
+/*
+ * Copyright 2004-2008 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.eclipse.common.util;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Event;
+import org.eclipse.swt.widgets.Listener;
+
+/**
+ * {@link Display} ごとに一つのタイマで、すべての {@link AnimatedImage} の再生を進めるクラスです。<br />
+ * <p>
+ * タイマは {@link Display#timerExec(int, Runnable)} を使用し、次にフレームを切り替える時刻に合わせて一回ずつ設定します。
+ * 再生中のアニメーションがすべて非表示のコントロールに属している場合はタイマを止め、いずれかのコントロールが再描画されたときに再開します。<br />
+ * 本クラスは {@link Display} スレッドからのみ使用してください。
+ * </p>
+ * 
+ * @author y-komori
+ */
+class AnimationScheduler implements Runnable {
+    private static final String DATA_KEY = AnimationScheduler.class.getName();
+
+    private final Display display;
+
+    private final List<Animation> animations = new ArrayList<Animation>();
+
+    private boolean scheduled;
+
+    private AnimationScheduler(final Display display) {
+        this.display = display;
+    }
+
+    /**
+     * {@link Display} の {@link AnimationScheduler} を返します。<br />
+     * 
+     * @param display
+     *        {@link Display} オブジェクト
+     * @return {@link AnimationScheduler} オブジェクト
+     */
+    static AnimationScheduler getScheduler(final Display display) {
+        AnimationScheduler scheduler = (AnimationScheduler) display.getData(DATA_KEY);
+        if (scheduler == null) {
+            scheduler = new AnimationScheduler(display);
+            display.setData(DATA_KEY, scheduler);
+        }
+        return scheduler;
+    }
+
+    /**
+     * アニメーションの再生を開始します。<br />
+     * <p>
+     * 同じ {@link AnimatedImage} と {@link Control} の組み合わせが再生中の場合は、先頭のフレームから再生し直します。
+     * </p>
+     * 
+     * @param image
+     *        {@link AnimatedImage} オブジェクト
+     * @param control
+     *        アニメーションを表示するコントロール
+     * @param listener
+     *        {@link AnimationListener} オブジェクト
+     */
+    void start(final AnimatedImage image, final Control control, final AnimationListener listener) {
+        stop(image, control);
+        Animation animation = new Animation(image, control, listener);
+        animations.add(animation);
+        control.addListener(SWT.Paint, animation);
+        animation.show(0, System.currentTimeMillis());
+        wake();
+    }
+
+    /**
+     * アニメーションの再生を停止します。<br />
+     * 
+     * @param image
+     *        {@link AnimatedImage} オブジェクト
+     * @param control
+     *        アニメーションを表示するコントロール。<code>null</code> の場合は {@code image} のすべての再生を停止します。
+     */
+    void stop(final AnimatedImage image, final Control control) {
+        for (Iterator<Animation> it = animations.iterator(); it.hasNext();) {
+            Animation animation = it.next();
+            if (animation.image == image && (control == null || animation.control == control)) {
+                it.remove();
+                animation.release();
+            }
+        }
+    }
+
+    /**
+     * 再生中のアニメーションの数を返します。<br />
+     * 
+     * @return アニメーションの数
+     */
+    int getAnimationCount() {
+        return animations.size();
+    }
+
+    /**
+     * タイマが止まっていれば再開します。<br />
+     */
+    void wake() {
+        if (!scheduled && !animations.isEmpty() && !display.isDisposed()) {
+            scheduled = true;
+            display.timerExec(0, this);
+        }
+    }
+
+    public void run() {
+        scheduled = false;
+        long now = System.currentTimeMillis();
+        long next = Long.MAX_VALUE;
+        for (Animation animation : new ArrayList<Animation>(animations)) {
+            if (animation.isDone()) {
+                animations.remove(animation);
+                animation.release();
+                continue;
+            }
+            if (!animation.control.isVisible()) {
+                continue;
+            }
+            if (now >= animation.nextTime) {
+                animation.advance(now);
+            }
+            if (animation.isDone()) {
+                animations.remove(animation);
+                animation.release();
+            } else {
+                next = Math.min(next, animation.nextTime);
+            }
+        }
+        if (next != Long.MAX_VALUE && !display.isDisposed()) {
+            scheduled = true;
+            display.timerExec((int) Math.max(0, next - now), this);
+        }
+    }
+
+    /**
+     * 一つのコントロール上で再生中のアニメーションです。<br />
+     */
+    private class Animation implements Listener {
+        final AnimatedImage image;
+
+        final Control control;
+
+        private final AnimationListener listener;
+
+        private int index = -1;
+
+        private int loops;
+
+        private boolean finished;
+
+        long nextTime;
+
+        Animation(final AnimatedImage image, final Control control,
+                final AnimationListener listener) {
+            this.image = image;
+            this.control = control;
+            this.listener = listener;
+        }
+
+        boolean isDone() {
+            return finished || control.isDisposed() || image.isDisposed();
+        }
+
+        void advance(final long now) {
+            int nextIndex = index + 1;
+            if (nextIndex >= image.getFrameCount()) {
+                loops++;
+                int repeatCount = image.getRepeatCount();
+                if (repeatCount > 0 && loops >= repeatCount) {
+                    finished = true;
+                    return;
+                }
+                nextIndex = 0;
+            }
+            show(nextIndex, now);
+        }
+
+        void show(final int newIndex, final long now) {
+            image.acquireFrame(newIndex);
+            if (index >= 0) {
+                image.releaseFrame(index);
+            }
+            index = newIndex;
+            Image frame = image.getFrame(newIndex);
+            nextTime = now + image.getDelay(newIndex);
+            listener.frameChanged(image, newIndex, frame);
+        }
+
+        void release() {
+            if (index >= 0 && !image.isDisposed()) {
+                image.releaseFrame(index);
+            }
+            index = -1;
+            if (!control.isDisposed()) {
+                control.removeListener(SWT.Paint, this);
+            }
+        }
+
+        public void handleEvent(final Event event) {
+            wake();
+        }
+    }
+}
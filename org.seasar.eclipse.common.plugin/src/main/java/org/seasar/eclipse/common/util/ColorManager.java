@@ -85,6 +85,7 @@ public class ColorManager {
 				color = registry.get(symbol);
 			}
 		}
+		ResourceLeakDetector.track(color);
 		return color;
 	}
 
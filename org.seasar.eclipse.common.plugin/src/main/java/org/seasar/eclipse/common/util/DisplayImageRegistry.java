@@ -0,0 +1,223 @@
+/*
+ * Copyright 2004-2008 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.eclipse.common.util;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jface.resource.ImageDescriptor;
+import org.eclipse.jface.resource.ImageRegistry;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.widgets.Display;
+
+/**
+ * {@link ImageManager} が {@link Display} ごとに保持する状態を表すクラスです。<br />
+ * <p>
+ * {@link ImageManager#init(Display)} メソッドで {@link Display} ごとに作成され、
+ * {@link ImageManager#dispose(Display)} メソッドが呼び出されるか、{@link Display} が破棄されたときに破棄されます。<br />
+ * {@link #sources} を除くフィールドは、{@link Display} スレッドからのみ参照・更新してください。
+ * </p>
+ * 
+ * @author y-komori
+ */
+class DisplayImageRegistry {
+    final Display display;
+
+    final ImageRegistry imageRegistry;
+
+    /**
+     * キーと、イメージを(再)生成するための {@link ImageDescriptor} のマップです。任意のスレッドから参照・更新されます。
+     */
+    final Map<String, ImageDescriptor> sources = new ConcurrentHashMap<String, ImageDescriptor>();
+
+    /**
+     * キーと、イメージの読み込み元 URL のマップです。高解像度版を探すために使用します。任意のスレッドから参照・更新されます。
+     */
+    final Map<String, URL> urls = new ConcurrentHashMap<String, URL>();
+
+    /**
+     * {@link ImageRegistry} へ反映済みのキーと {@link ImageDescriptor} のマップです。
+     */
+    final Map<String, ImageDescriptor> registered = new HashMap<String, ImageDescriptor>();
+
+    /**
+     * キーと、実際に {@link ImageRegistry} へ登録した(倍率を反映した) {@link ImageDescriptor} のマップです。
+     */
+    final Map<String, ImageDescriptor> bound = new HashMap<String, ImageDescriptor>();
+
+    /**
+     * {@link #registered} に含まれるキーのうち、{@link Image} オブジェクトを破棄して {@link ImageRegistry} から取り除いたキーの集合です。
+     * {@link #registered} に含まれ、本集合に含まれないキーは、{@link ImageRegistry} 上で生成済みです。
+     */
+    final Set<String> unloaded = new HashSet<String>();
+
+    /**
+     * 生成済みの {@link Image} オブジェクトを、{@link ImageHandle} 以外の方法({@link ImageManager#getImage(String)}
+     * や {@code putImage} など)で呼び出し元へ返したキーの集合です。
+     * これらのキーは、すべての {@link ImageHandle} が解放されても破棄しません。
+     */
+    final Set<String> exposed = new HashSet<String>();
+
+    /**
+     * キーと、そのキーのイメージを元に合成・変換したイメージのキーの集合のマップです。
+     */
+    final Map<String, Set<String>> derived = new HashMap<String, Set<String>>();
+
+    final ImageCache imageCache = new ImageCache();
+
+    /**
+     * {@link ImageKeyTable} の ID を添字とした、生成済みの {@link Image} オブジェクトの配列です。
+     */
+    Image[] imagesById = new Image[0];
+
+    /**
+     * {@link #sources} が更新されるたびに増加する値です。任意のスレッドから更新されるため、
+     * 同時に更新しても増加が失われないよう {@link AtomicInteger} で保持します。
+     */
+    final AtomicInteger sourceVersion = new AtomicInteger();
+
+    /**
+     * {@link #imagesById} の内容が有効な {@link #sourceVersion} の値です。
+     */
+    int imagesByIdVersion;
+
+    final List<ImageAtlas> atlases = new ArrayList<ImageAtlas>();
+
+    /**
+     * パスと、読み込んだ {@link AnimatedImage} のマップです。
+     */
+    final Map<String, AnimatedImage> animatedImages = new HashMap<String, AnimatedImage>();
+
+    final ImageStatistics statistics = new ImageStatistics();
+
+    /**
+     * ワークスペース上のファイルから読み込んだイメージを監視する {@link WorkspaceImageTracker} です。
+     * 最初にワークスペース上のファイルからイメージを登録したときに作成されます。
+     */
+    WorkspaceImageTracker workspaceTracker;
+
+    /**
+     * イメージの倍率(パーセント)です。
+     */
+    volatile int zoom;
+
+    private volatile boolean disposed;
+
+    DisplayImageRegistry(final Display display) {
+        this.display = display;
+        this.imageRegistry = new ImageRegistry(display);
+        this.zoom = ZoomedImageDescriptor.computeZoom(display.getDPI());
+    }
+
+    boolean isDisposed() {
+        return disposed;
+    }
+
+    /**
+     * ID に対応する生成済みの {@link Image} オブジェクトを返します。<br />
+     * <p>
+     * 最後に {@link #putImageById(int, Image, int)} メソッドを呼び出した後に {@link #sources}
+     * が更新されている場合は、すべての {@link Image} オブジェクトを無効とみなします。
+     * </p>
+     * 
+     * @param id
+     *        ID
+     * @return {@link Image} オブジェクト。保持していない場合は <code>null</code>。
+     */
+    Image getImageById(final int id) {
+        Image[] images = imagesById;
+        if (id < 0 || id >= images.length) {
+            return null;
+        }
+        if (imagesByIdVersion != sourceVersion.get()) {
+            Arrays.fill(images, null);
+            return null;
+        }
+        return images[id];
+    }
+
+    /**
+     * ID に対応する生成済みの {@link Image} オブジェクトを保持します。<br />
+     * 
+     * @param id
+     *        ID
+     * @param image
+     *        {@link Image} オブジェクト
+     * @param version
+     *        {@link Image} オブジェクトを取得する前の {@link #sourceVersion} の値
+     */
+    void putImageById(final int id, final Image image, final int version) {
+        if (imagesByIdVersion != version) {
+            Arrays.fill(imagesById, null);
+            imagesByIdVersion = version;
+        }
+        if (id >= imagesById.length) {
+            Image[] grown = new Image[Math.max(id + 1, imagesById.length * 2)];
+            System.arraycopy(imagesById, 0, grown, 0, imagesById.length);
+            imagesById = grown;
+        }
+        imagesById[id] = image;
+    }
+
+    void removeImageById(final int id) {
+        if (id >= 0 && id < imagesById.length) {
+            imagesById[id] = null;
+        }
+    }
+
+    /**
+     * 保持しているすべての {@link org.eclipse.swt.graphics.Image} オブジェクトを破棄します。<br />
+     */
+    void dispose() {
+        if (disposed) {
+            return;
+        }
+        disposed = true;
+        if (workspaceTracker != null) {
+            workspaceTracker.dispose();
+            workspaceTracker = null;
+        }
+        imageRegistry.dispose();
+        sources.clear();
+        urls.clear();
+        registered.clear();
+        bound.clear();
+        unloaded.clear();
+        exposed.clear();
+        imagesById = new Image[0];
+        derived.clear();
+        imageCache.clear();
+        statistics.clearLiveImages();
+        for (AnimatedImage animatedImage : animatedImages.values()) {
+            animatedImage.dispose();
+        }
+        animatedImages.clear();
+        synchronized (atlases) {
+            for (ImageAtlas atlas : atlases) {
+                atlas.dispose();
+            }
+            atlases.clear();
+        }
+    }
+}
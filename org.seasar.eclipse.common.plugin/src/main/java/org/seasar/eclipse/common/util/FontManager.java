@@ -30,14 +30,13 @@ public class FontManager {
 
     public static Font get(final String name, final int height, final int style) {
         String descriptor = getDescriptor(name, height, style);
-        Font font;
-        if (registry.hasValueFor(descriptor)) {
-            font = registry.get(descriptor);
-        } else {
-            FontData fontData = new FontData(name, height, style);
-            font = new Font(Display.getCurrent(), fontData);
-            registry.put(descriptor, new FontData[] { fontData });
+        if (!registry.hasValueFor(descriptor)) {
+            registry.put(descriptor, new FontData[] { new FontData(name,
+                    height, style) });
         }
+        // FontRegistry が生成・破棄する Font を返す
+        Font font = registry.get(descriptor);
+        ResourceLeakDetector.track(font);
         return font;
     }
 
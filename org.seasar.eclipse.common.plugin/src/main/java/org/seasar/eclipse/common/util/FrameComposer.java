@@ -0,0 +1,143 @@
+/*
+ * Copyright 2004-2008 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.eclipse.common.util;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.ImageData;
+
+/**
+ * アニメーション GIF などの各フレームを、論理画面上に順に重ねて描画するクラスです。<br />
+ * <p>
+ * 各フレームの描画位置と廃棄方法({@link ImageData#disposalMethod})に従い、フレームごとの表示内容を
+ * <code>0xAARRGGBB</code> 形式の配列として作成します。<br />
+ * 直前に作成したフレームの状態を保持しているため、フレームを順に要求する場合は一フレーム分の処理のみを行います。
+ * 前に戻る場合は、先頭のフレームから作成し直します。<br />
+ * 本クラスはスレッドセーフではありません。
+ * </p>
+ * 
+ * @author y-komori
+ */
+class FrameComposer {
+    private final ImageData[] frames;
+
+    private final int width;
+
+    private final int height;
+
+    private int[] canvas;
+
+    private int[] saved;
+
+    private int index = -1;
+
+    /**
+     * {@link FrameComposer} を構築します。<br />
+     * 
+     * @param frames
+     *        フレーム
+     * @param width
+     *        論理画面の幅。<code>0</code> 以下の場合はフレームの範囲から求めます。
+     * @param height
+     *        論理画面の高さ。<code>0</code> 以下の場合はフレームの範囲から求めます。
+     */
+    FrameComposer(final ImageData[] frames, final int width, final int height) {
+        this.frames = frames;
+        int w = width;
+        int h = height;
+        if (w <= 0 || h <= 0) {
+            for (ImageData frame : frames) {
+                w = Math.max(w, frame.x + frame.width);
+                h = Math.max(h, frame.y + frame.height);
+            }
+        }
+        this.width = w;
+        this.height = h;
+    }
+
+    int getFrameCount() {
+        return frames.length;
+    }
+
+    int getWidth() {
+        return width;
+    }
+
+    int getHeight() {
+        return height;
+    }
+
+    ImageData getFrame(final int index) {
+        return frames[index];
+    }
+
+    /**
+     * 指定されたフレームの表示内容を作成します。<br />
+     * 
+     * @param target
+     *        フレームの番号
+     * @return 表示内容。呼び出し側で変更しても構いません。
+     */
+    int[] compose(final int target) {
+        if (canvas == null || target <= index) {
+            canvas = new int[width * height];
+            saved = null;
+            index = -1;
+        }
+        while (index < target) {
+            if (index >= 0) {
+                disposeFrame(frames[index]);
+            }
+            index++;
+            ImageData frame = frames[index];
+            if (frame.disposalMethod == SWT.DM_FILL_PREVIOUS) {
+                saved = canvas.clone();
+            }
+            drawFrame(frame);
+        }
+        return canvas.clone();
+    }
+
+    private void disposeFrame(final ImageData frame) {
+        if (frame.disposalMethod == SWT.DM_FILL_BACKGROUND) {
+            int right = Math.min(width, frame.x + frame.width);
+            int bottom = Math.min(height, frame.y + frame.height);
+            for (int y = Math.max(0, frame.y); y < bottom; y++) {
+                for (int x = Math.max(0, frame.x); x < right; x++) {
+                    canvas[y * width + x] = 0;
+                }
+            }
+        } else if (frame.disposalMethod == SWT.DM_FILL_PREVIOUS && saved != null) {
+            canvas = saved;
+            saved = null;
+        }
+    }
+
+    private void drawFrame(final ImageData frame) {
+        int[] argb = ImageDataUtil.toARGB(frame);
+        int right = Math.min(width, frame.x + frame.width);
+        int bottom = Math.min(height, frame.y + frame.height);
+        for (int y = Math.max(0, frame.y); y < bottom; y++) {
+            int src = (y - frame.y) * frame.width - frame.x;
+            int dst = y * width;
+            for (int x = Math.max(0, frame.x); x < right; x++) {
+                int pixel = argb[src + x];
+                if ((pixel >>> 24) != 0) {
+                    canvas[dst + x] = pixel;
+                }
+            }
+        }
+    }
+}
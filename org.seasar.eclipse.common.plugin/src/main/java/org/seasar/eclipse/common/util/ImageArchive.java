@@ -0,0 +1,282 @@
+/*
+ * Copyright 2004-2008 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.eclipse.common.util;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.jface.resource.ImageDescriptor;
+import org.eclipse.swt.graphics.ImageData;
+import org.seasar.framework.log.Logger;
+import org.seasar.framework.util.FileInputStreamUtil;
+import org.seasar.framework.util.InputStreamUtil;
+import org.seasar.framework.util.ResourceUtil;
+import org.seasar.framework.util.URLUtil;
+
+/**
+ * デコード済みのイメージをまとめて格納するアーカイブです。<br />
+ * <p>
+ * ビルド時に {@link ImageArchiveBuilder} で作成したアーカイブを一度の読み込みでメモリ上へ展開し、各イメージを
+ * {@link ImageDescriptor} として提供します。ピクセルデータは、最初に {@link ImageDescriptor#createImage()}
+ * などが呼び出されたときにメモリ上のアーカイブから復元されるため、起動時にイメージファイルごとの入出力やデコードは発生しません。<br />
+ * アーカイブは、ヘッダ、キーとデータ位置の索引、{@link ImageData} の直列化データの順に格納されます。内容が同一のキーは同じデータを共有します。
+ * </p>
+ * <p>
+ * コーディング例
+ * </p>
+ * 
+ * <pre>
+ * ImageManager.loadImageArchive(&quot;images.s2ia&quot;);
+ * Image image = ImageManager.getImage(&quot;ARG_IMG&quot;);
+ * </pre>
+ * 
+ * @author y-komori
+ */
+public class ImageArchive {
+    private static final int MAGIC = 0x53324941;
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final String ENCODING = "UTF-8";
+
+    private static final Logger logger = Logger.getLogger(ImageArchive.class);
+
+    private final ByteBuffer buffer;
+
+    private final Map<String, ImageDescriptor> descriptors = new LinkedHashMap<String, ImageDescriptor>();
+
+    private final int imageCount;
+
+    /**
+     * {@link ImageArchive} を構築します。<br />
+     * 
+     * @param buffer
+     *        アーカイブの内容
+     * @throws IllegalArgumentException
+     *         アーカイブの形式が正しくない場合
+     */
+    public ImageArchive(final ByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported image archive format.");
+        }
+        int count = buffer.getInt();
+        String[] keys = new String[count];
+        int[] offsets = new int[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = readString(buffer);
+            offsets[i] = buffer.getInt();
+        }
+        int dataStart = buffer.position();
+        Map<Integer, ImageDescriptor> shared = new LinkedHashMap<Integer, ImageDescriptor>();
+        for (int i = 0; i < count; i++) {
+            Integer offset = new Integer(dataStart + offsets[i]);
+            ImageDescriptor descriptor = shared.get(offset);
+            if (descriptor == null) {
+                descriptor = new ArchiveImageDescriptor(this, offset.intValue());
+                shared.put(offset, descriptor);
+            }
+            descriptors.put(keys[i], descriptor);
+        }
+        imageCount = shared.size();
+    }
+
+    /**
+     * {@code url} で示されるアーカイブを読み込みます。<br />
+     * <p>
+     * アーカイブ全体を一度の連続した読み込みでメモリ上へ展開します。
+     * メモリマップトファイルは使用しないため、読み込んだ後はアーカイブのファイルを削除・置換できます。
+     * </p>
+     * 
+     * @param url
+     *        アーカイブの URL
+     * @return {@link ImageArchive} オブジェクト
+     */
+    public static ImageArchive load(final URL url) {
+        File file = "file".equals(url.getProtocol()) ? ResourceUtil.getFile(url) : null;
+        if (file != null) {
+            return load(file);
+        }
+        byte[] content = InputStreamUtil.getBytes(URLUtil.openStream(url));
+        return new ImageArchive(ByteBuffer.wrap(content));
+    }
+
+    /**
+     * ファイルからアーカイブを読み込みます。<br />
+     * 
+     * @param file
+     *        アーカイブのファイル
+     * @return {@link ImageArchive} オブジェクト
+     */
+    public static ImageArchive load(final File file) {
+        FileInputStream in = FileInputStreamUtil.create(file);
+        try {
+            return new ImageArchive(ByteBuffer.wrap(InputStreamUtil.getBytes(in)));
+        } finally {
+            InputStreamUtil.close(in);
+        }
+    }
+
+    /**
+     * イメージをアーカイブとしてファイルへ書き込みます。<br />
+     * <p>
+     * 同一の {@link ImageData} オブジェクトに対応するキーは、同じデータを共有します。
+     * </p>
+     * 
+     * @param file
+     *        出力先のファイル
+     * @param images
+     *        キーと {@link ImageData} のマップ
+     * @throws IOException
+     *         書き込みに失敗した場合
+     */
+    public static void write(final File file, final Map<String, ImageData> images)
+            throws IOException {
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        DataOutputStream dataOut = new DataOutputStream(data);
+        Map<ImageData, Integer> offsets = new IdentityHashMap<ImageData, Integer>();
+        for (ImageData imageData : images.values()) {
+            if (!offsets.containsKey(imageData)) {
+                offsets.put(imageData, new Integer(dataOut.size()));
+                ImageDataCache.writeImageData(dataOut, imageData);
+            }
+        }
+        dataOut.flush();
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(file)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(images.size());
+            for (Map.Entry<String, ImageData> entry : images.entrySet()) {
+                byte[] key = entry.getKey().getBytes(ENCODING);
+                out.writeInt(key.length);
+                out.write(key);
+                out.writeInt(offsets.get(entry.getValue()).intValue());
+            }
+            data.writeTo(out);
+            out.flush();
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * アーカイブに含まれるキーの {@link Set} を返します。<br />
+     * 
+     * @return キーの {@link Set}
+     */
+    public Set<String> getKeys() {
+        return Collections.unmodifiableSet(descriptors.keySet());
+    }
+
+    /**
+     * アーカイブに含まれる、内容が異なるイメージの数を返します。<br />
+     * 
+     * @return イメージの数
+     */
+    public int getImageCount() {
+        return imageCount;
+    }
+
+    /**
+     * 指定されたキーのイメージを {@link ImageData} として返します。<br />
+     * <p>
+     * 本メソッドは任意のスレッドから呼び出すことができます。
+     * </p>
+     * 
+     * @param key
+     *        キー
+     * @return {@link ImageData} オブジェクト。見つからない場合は <code>null</code>。
+     */
+    public ImageData getImageData(final String key) {
+        ImageDescriptor descriptor = descriptors.get(key);
+        return descriptor != null ? descriptor.getImageData() : null;
+    }
+
+    /**
+     * 指定されたキーのイメージの {@link ImageDescriptor} を返します。<br />
+     * <p>
+     * 内容が同一のキーには、同じ {@link ImageDescriptor} オブジェクトを返します。
+     * </p>
+     * 
+     * @param key
+     *        キー
+     * @return {@link ImageDescriptor} オブジェクト。見つからない場合は <code>null</code>。
+     */
+    public ImageDescriptor getImageDescriptor(final String key) {
+        return descriptors.get(key);
+    }
+
+    protected ImageData readImageData(final int offset) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        return ImageDataCache.readImageData(view);
+    }
+
+    private static String readString(final ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        try {
+            return new String(bytes, ENCODING);
+        } catch (UnsupportedEncodingException ex) {
+            throw new IllegalStateException(ex.toString());
+        }
+    }
+
+    /**
+     * {@link ImageArchive} からイメージを読み込む {@link ImageDescriptor} です。<br />
+     */
+    protected static class ArchiveImageDescriptor extends ImageDescriptor {
+        private final ImageArchive archive;
+
+        private final int offset;
+
+        protected ArchiveImageDescriptor(final ImageArchive archive, final int offset) {
+            this.archive = archive;
+            this.offset = offset;
+        }
+
+        @Override
+        public ImageData getImageData() {
+            try {
+                return archive.readImageData(offset);
+            } catch (RuntimeException ex) {
+                logger.warn("Broken image archive. offset=" + offset, ex);
+                return null;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "ArchiveImageDescriptor(" + offset + ")";
+        }
+    }
+}
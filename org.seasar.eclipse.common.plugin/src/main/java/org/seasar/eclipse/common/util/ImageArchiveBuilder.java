@@ -0,0 +1,149 @@
+/*
+ * Copyright 2004-2008 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.eclipse.common.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.ResourceBundle;
+
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.ImageLoader;
+import org.seasar.framework.util.InputStreamUtil;
+import org.seasar.framework.util.ResourceUtil;
+
+/**
+ * イメージのリソースバンドルから {@link ImageArchive} を作成するクラスです。<br />
+ * <p>
+ * 「key=path」の形式で記述されたプロパティファイルを元にした {@link ResourceBundle}
+ * に含まれるイメージをデコードし、一つのアーカイブファイルへ書き込みます。同じパスを参照するキーは、同じデータを共有します。<br />
+ * 本クラスはビルド時に使用します。Maven からは {@code image-archive} プロファイルで実行できます。
+ * </p>
+ * 
+ * <pre>
+ * mvn process-classes -Dimage.archive.bundles=urumaImages,urumaIcons
+ * </pre>
+ * 
+ * @author y-komori
+ */
+public class ImageArchiveBuilder {
+    private final Map<String, ImageData> images = new LinkedHashMap<String, ImageData>();
+
+    private final Map<String, ImageData> decoded = new HashMap<String, ImageData>();
+
+    /**
+     * {@link ResourceBundle} に含まれるイメージを追加します。<br />
+     * 
+     * @param bundle
+     *        リソースバンドルの参照
+     * @throws org.seasar.framework.exception.ResourceNotFoundRuntimeException
+     *         指定されたリソースが見つからなかった場合
+     */
+    public void addBundle(final ResourceBundle bundle) {
+        Enumeration keys = bundle.getKeys();
+        while (keys.hasMoreElements()) {
+            String key = (String) keys.nextElement();
+            addImage(key, bundle.getString(key));
+        }
+    }
+
+    /**
+     * イメージを追加します。<br />
+     * 
+     * @param key
+     *        キー
+     * @param path
+     *        イメージのパス
+     * @throws org.seasar.framework.exception.ResourceNotFoundRuntimeException
+     *         指定されたリソースが見つからなかった場合
+     */
+    public void addImage(final String key, final String path) {
+        // Display に依存しないよう、ImageManager を経由せずにデコードする
+        String normalized = path.startsWith("/") ? path.substring(1) : path;
+        ImageData imageData = decoded.get(normalized);
+        if (imageData == null) {
+            InputStream is = ResourceUtil.getResourceAsStream(normalized);
+            try {
+                imageData = new ImageLoader().load(is)[0];
+            } finally {
+                InputStreamUtil.close(is);
+            }
+            decoded.put(normalized, imageData);
+        }
+        images.put(key, imageData);
+    }
+
+    /**
+     * 追加されたキーの数を返します。<br />
+     * 
+     * @return キーの数
+     */
+    public int getKeyCount() {
+        return images.size();
+    }
+
+    /**
+     * 追加されたイメージをアーカイブファイルへ書き込みます。<br />
+     * 
+     * @param file
+     *        出力先のファイル
+     * @throws IOException
+     *         書き込みに失敗した場合
+     */
+    public void write(final File file) throws IOException {
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (dir != null) {
+            dir.mkdirs();
+        }
+        ImageArchive.write(file, images);
+    }
+
+    /**
+     * アーカイブを作成します。<br />
+     * <p>
+     * 第 1 引数に出力先のファイル、第 2 引数以降にリソースバンドルの基底名を指定します。基底名はカンマ区切りで複数指定することもできます。
+     * </p>
+     * 
+     * @param args
+     *        コマンドライン引数
+     * @throws IOException
+     *         書き込みに失敗した場合
+     */
+    public static void main(final String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: ImageArchiveBuilder <output file> <bundle base name>...");
+            System.exit(1);
+        }
+        ImageArchiveBuilder builder = new ImageArchiveBuilder();
+        for (int i = 1; i < args.length; i++) {
+            String[] baseNames = args[i].split(",");
+            for (int j = 0; j < baseNames.length; j++) {
+                String baseName = baseNames[j].trim();
+                if (baseName.length() > 0) {
+                    builder.addBundle(ResourceBundle.getBundle(baseName));
+                }
+            }
+        }
+        File file = new File(args[0]);
+        builder.write(file);
+        System.out.println("Wrote " + builder.getKeyCount() + " images (" + builder.decoded.size()
+                + " unique) to " + file);
+    }
+}
@@ -0,0 +1,370 @@
+/*
+ * Copyright 2004-2008 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.eclipse.common.util;
+
+import java.lang.ref.SoftReference;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ResourceBundle;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.PaletteData;
+import org.eclipse.swt.graphics.Rectangle;
+import org.eclipse.swt.widgets.Display;
+import org.seasar.framework.util.ResourceUtil;
+
+/**
+ * 多数の小さなイメージを、少数の大きな {@link Image} オブジェクト(ページ)へまとめて保持するクラスです。<br />
+ * <p>
+ * 「key=path」の形式で記述された {@link ResourceBundle} に含まれるイメージを、棚詰め(シェルフ)方式で
+ * {@link #PAGE_SIZE} ピクセル四方のページへ配置します。各イメージは {@link ImageRegion} として取得できます。<br />
+ * 数百のアイコンが必要とするネイティブイメージのハンドルを、数個に削減することができます。
+ * </p>
+ * 
+ * <pre>
+ * ImageAtlas atlas = ImageManager.loadImageAtlas(&quot;urumaImages&quot;);
+ * atlas.getRegion(&quot;ARG_IMG&quot;).draw(gc, x, y);
+ * </pre>
+ * 
+ * @author y-komori
+ */
+public class ImageAtlas {
+    /**
+     * ページの一辺のピクセル数です。<br />
+     */
+    public static final int PAGE_SIZE = 512;
+
+    /**
+     * イメージの間に空けるピクセル数です。<br />
+     */
+    protected static final int PADDING = 1;
+
+    private final List<Image> pages = new ArrayList<Image>();
+
+    /**
+     * ページごとの、領域を切り出すための {@link ImageData} です。
+     */
+    private final List<PageData> pageData = new ArrayList<PageData>();
+
+    private final Map<String, ImageRegion> regions = new LinkedHashMap<String, ImageRegion>();
+
+    private final Map<String, Image> extracted = new HashMap<String, Image>();
+
+    private final Display display;
+
+    private boolean disposed;
+
+    /**
+     * {@link ImageAtlas} を構築します。<br />
+     * 
+     * @param display
+     *        ページを生成する {@link Display} オブジェクト
+     * @param images
+     *        キーと {@link ImageData} オブジェクトの {@link Map}
+     */
+    public ImageAtlas(final Display display, final Map<String, ImageData> images) {
+        this.display = display;
+        pack(images);
+    }
+
+    /**
+     * {@link ResourceBundle} に含まれるイメージから {@link ImageAtlas} を作成します。<br />
+     * 
+     * @param display
+     *        ページを生成する {@link Display} オブジェクト
+     * @param bundle
+     *        「key=path」の形式で記述されたリソースバンドル
+     * @return {@link ImageAtlas} オブジェクト
+     */
+    public static ImageAtlas create(final Display display, final ResourceBundle bundle) {
+        Map<String, ImageData> images = new LinkedHashMap<String, ImageData>();
+        Enumeration keys = bundle.getKeys();
+        while (keys.hasMoreElements()) {
+            String key = (String) keys.nextElement();
+            URL url = ResourceUtil.getResource(ImageManager.normalizePath(bundle.getString(key)));
+            images.put(key, ImageManager.decodeImage(url));
+        }
+        return new ImageAtlas(display, images);
+    }
+
+    /**
+     * 指定されたキーの {@link ImageRegion} を返します。<br />
+     * 
+     * @param key
+     *        キー
+     * @return {@link ImageRegion} オブジェクト。見つからない場合は <code>null</code>。
+     */
+    public ImageRegion getRegion(final String key) {
+        return regions.get(key);
+    }
+
+    /**
+     * 登録されているすべてのキーに対応する {@link ImageRegion} を返します。<br />
+     * 
+     * @return {@link ImageRegion} オブジェクトのリスト
+     */
+    public List<ImageRegion> getRegions() {
+        return new ArrayList<ImageRegion>(regions.values());
+    }
+
+    /**
+     * ページの数を返します。<br />
+     * 
+     * @return ページの数
+     */
+    public int getPageCount() {
+        return pages.size();
+    }
+
+    /**
+     * ページの {@link Image} オブジェクトを返します。<br />
+     * 
+     * @param index
+     *        ページ番号
+     * @return ページの {@link Image} オブジェクト
+     */
+    public Image getPage(final int index) {
+        return pages.get(index);
+    }
+
+    /**
+     * ページと取り出した {@link Image} オブジェクトをすべて破棄します。<br />
+     */
+    public void dispose() {
+        for (Iterator<Image> it = extracted.values().iterator(); it.hasNext();) {
+            it.next().dispose();
+        }
+        extracted.clear();
+        for (Iterator<Image> it = pages.iterator(); it.hasNext();) {
+            it.next().dispose();
+        }
+        pages.clear();
+        pageData.clear();
+        disposed = true;
+    }
+
+    /**
+     * 破棄されているかどうかを返します。<br />
+     * 
+     * @return 破棄されている場合は <code>true</code>
+     */
+    public boolean isDisposed() {
+        return disposed;
+    }
+
+    Image extract(final ImageRegion region) {
+        Image image = extracted.get(region.getKey());
+        if (image == null) {
+            PageData data = pageData.get(region.getPage());
+            image = new Image(display, crop(data.get(pages.get(region.getPage())), region
+                    .getBounds()));
+            ResourceLeakDetector.track(image);
+            extracted.put(region.getKey(), image);
+            data.release();
+        }
+        return image;
+    }
+
+    protected void pack(final Map<String, ImageData> images) {
+        List<Map.Entry<String, ImageData>> entries = new ArrayList<Map.Entry<String, ImageData>>(
+                images.entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<String, ImageData>>() {
+            public int compare(final Map.Entry<String, ImageData> o1,
+                    final Map.Entry<String, ImageData> o2) {
+                return o2.getValue().height - o1.getValue().height;
+            }
+        });
+
+        List<Map.Entry<String, ImageData>> pageEntries = new ArrayList<Map.Entry<String, ImageData>>();
+        List<Rectangle> pageBounds = new ArrayList<Rectangle>();
+        int x = 0;
+        int y = 0;
+        int shelfHeight = 0;
+        for (Map.Entry<String, ImageData> entry : entries) {
+            ImageData data = entry.getValue();
+            if (data.width > PAGE_SIZE || data.height > PAGE_SIZE) {
+                List<Map.Entry<String, ImageData>> single = new ArrayList<Map.Entry<String, ImageData>>();
+                single.add(entry);
+                List<Rectangle> singleBounds = new ArrayList<Rectangle>();
+                singleBounds.add(new Rectangle(0, 0, data.width, data.height));
+                flushPage(single, singleBounds, data.width, data.height);
+                continue;
+            }
+            if (x + data.width > PAGE_SIZE) {
+                x = 0;
+                y += shelfHeight + PADDING;
+                shelfHeight = 0;
+            }
+            if (y + data.height > PAGE_SIZE) {
+                flushPage(pageEntries, pageBounds, PAGE_SIZE, y);
+                x = 0;
+                y = 0;
+                shelfHeight = 0;
+            }
+            pageEntries.add(entry);
+            pageBounds.add(new Rectangle(x, y, data.width, data.height));
+            x += data.width + PADDING;
+            shelfHeight = Math.max(shelfHeight, data.height);
+        }
+        if (!pageEntries.isEmpty()) {
+            flushPage(pageEntries, pageBounds, PAGE_SIZE, y + shelfHeight);
+        }
+    }
+
+    private void flushPage(final List<Map.Entry<String, ImageData>> entries,
+            final List<Rectangle> bounds, final int width, final int height) {
+        ImageData pageData = new ImageData(width, Math.max(1, height), 32, new PaletteData(
+                0xFF0000, 0xFF00, 0xFF));
+        pageData.alphaData = new byte[pageData.width * pageData.height];
+        int index = pages.size();
+        for (int i = 0; i < entries.size(); i++) {
+            Map.Entry<String, ImageData> entry = entries.get(i);
+            Rectangle r = bounds.get(i);
+            blit(entry.getValue(), pageData, r.x, r.y);
+            regions.put(entry.getKey(), new ImageRegion(this, entry.getKey(), index, r));
+        }
+        Image page = new Image(display, pageData);
+        ResourceLeakDetector.track(page);
+        pages.add(page);
+        this.pageData.add(new PageData(pageData, entries.size()));
+        entries.clear();
+        bounds.clear();
+    }
+
+    /**
+     * {@code src} を {@code dest} の指定された位置へコピーします。<br />
+     * <p>
+     * {@code dest} は 32 ビットのダイレクトカラーで、アルファを持つ必要があります。
+     * 透過色・マスク・アルファはすべて {@code dest} のアルファへ変換されます。
+     * </p>
+     * 
+     * @param src
+     *        コピー元
+     * @param dest
+     *        コピー先
+     * @param destX
+     *        コピー先の X 座標
+     * @param destY
+     *        コピー先の Y 座標
+     */
+    protected static void blit(final ImageData src, final ImageData dest, final int destX,
+            final int destY) {
+        int transparencyType = src.getTransparencyType();
+        ImageData mask = null;
+        if (transparencyType == SWT.TRANSPARENCY_MASK || transparencyType == SWT.TRANSPARENCY_PIXEL) {
+            mask = src.getTransparencyMask();
+        }
+        int globalAlpha = src.alpha != -1 ? src.alpha : 0xFF;
+        PaletteData srcPalette = src.palette;
+        PaletteData destPalette = dest.palette;
+        int[] pixels = new int[src.width];
+        byte[] alphas = new byte[src.width];
+        for (int y = 0; y < src.height; y++) {
+            src.getPixels(0, y, src.width, pixels, 0);
+            for (int x = 0; x < src.width; x++) {
+                pixels[x] = destPalette.getPixel(srcPalette.getRGB(pixels[x]));
+            }
+            dest.setPixels(destX, destY + y, src.width, pixels, 0);
+
+            if (src.alphaData != null) {
+                src.getAlphas(0, y, src.width, alphas, 0);
+            } else {
+                for (int x = 0; x < src.width; x++) {
+                    boolean transparent = mask != null && mask.getPixel(x, y) == 0;
+                    alphas[x] = (byte) (transparent ? 0 : globalAlpha);
+                }
+            }
+            dest.setAlphas(destX, destY + y, src.width, alphas, 0);
+        }
+    }
+
+    protected static ImageData crop(final ImageData src, final Rectangle bounds) {
+        ImageData dest = new ImageData(bounds.width, bounds.height, src.depth, src.palette);
+        dest.alphaData = new byte[bounds.width * bounds.height];
+        int[] pixels = new int[bounds.width];
+        byte[] alphas = new byte[bounds.width];
+        for (int y = 0; y < bounds.height; y++) {
+            src.getPixels(bounds.x, bounds.y + y, bounds.width, pixels, 0);
+            dest.setPixels(0, y, bounds.width, pixels, 0);
+            if (src.alphaData != null) {
+                src.getAlphas(bounds.x, bounds.y + y, bounds.width, alphas, 0);
+                dest.setAlphas(0, y, bounds.width, alphas, 0);
+            }
+        }
+        if (src.alphaData == null) {
+            dest.alphaData = null;
+        }
+        return dest;
+    }
+
+    /**
+     * ページの {@link ImageData} を保持するクラスです。<br />
+     * <p>
+     * 領域を切り出すたびにネイティブイメージから読み戻さないよう、パッキング時に作成した {@link ImageData} をソフト参照で保持します。
+     * ページ上のすべての領域を切り出した後は不要となるため、参照を破棄します。
+     * </p>
+     */
+    private static class PageData {
+        private SoftReference<ImageData> ref;
+
+        private int remaining;
+
+        PageData(final ImageData imageData, final int regionCount) {
+            this.ref = new SoftReference<ImageData>(imageData);
+            this.remaining = regionCount;
+        }
+
+        /**
+         * ページの {@link ImageData} を返します。<br />
+         * <p>
+         * ソフト参照が解放されている場合は、ページの {@link Image} オブジェクトから読み戻します。
+         * </p>
+         * 
+         * @param page
+         *        ページの {@link Image} オブジェクト
+         * @return ページの {@link ImageData}
+         */
+        ImageData get(final Image page) {
+            ImageData imageData = ref != null ? ref.get() : null;
+            if (imageData == null) {
+                imageData = page.getImageData();
+                if (remaining > 1) {
+                    ref = new SoftReference<ImageData>(imageData);
+                }
+            }
+            return imageData;
+        }
+
+        /**
+         * 領域を一つ切り出したことを記録し、すべての領域を切り出した場合は参照を破棄します。<br />
+         */
+        void release() {
+            if (--remaining <= 0) {
+                ref = null;
+            }
+        }
+    }
+}
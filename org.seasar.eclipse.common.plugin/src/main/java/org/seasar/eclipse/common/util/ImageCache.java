@@ -0,0 +1,291 @@
+/*
+ * Copyright 2004-2008 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.eclipse.common.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.Rectangle;
+
+/**
+ * {@link ImageManager} が保持するネイティブイメージの数とピクセルバイト数を管理するクラスです。<br />
+ * <p>
+ * 本クラスは、生成済みの {@link Image} オブジェクトのキーを LRU 順に保持し、上限を超えた場合に破棄すべきキー(犠牲キー)を選択します。<br />
+ * 実際の破棄は {@link ImageManager} が行います。<br />
+ * ピン留めされたキーと、{@link ImageHandle} によって参照されているキーは、犠牲キーとして選択されません。
+ * </p>
+ * 
+ * @author y-komori
+ */
+public class ImageCache {
+    private final Map<String, Long> entries = new LinkedHashMap<String, Long>(16, 0.75f, true);
+
+    private final Set<String> pinned = new HashSet<String>();
+
+    private final Map<String, Integer> references = new HashMap<String, Integer>();
+
+    private int maxImages;
+
+    private long maxPixelBytes;
+
+    private long pixelBytes;
+
+    /**
+     * 上限が設定されているかどうかです。{@link ImageManager#getImage(String)} のたびに参照されるため、ロックを伴わずに読み取れるようにしています。
+     */
+    private volatile boolean bounded;
+
+    /**
+     * キャッシュの上限を設定します。<br />
+     * <p>
+     * <code>0</code> 以下の値を指定した場合、その項目については上限を設けません。<br />
+     * 両方とも <code>0</code> 以下の場合、キャッシュは無制限となり、犠牲キーは選択されません。
+     * </p>
+     * 
+     * @param maxImages
+     *        保持するイメージ数の上限
+     * @param maxPixelBytes
+     *        保持するピクセルバイト数の上限
+     */
+    public synchronized void setLimit(final int maxImages, final long maxPixelBytes) {
+        this.maxImages = maxImages;
+        this.maxPixelBytes = maxPixelBytes;
+        this.bounded = maxImages > 0 || maxPixelBytes > 0;
+    }
+
+    /**
+     * キャッシュに上限が設定されているかどうかを返します。<br />
+     * 
+     * @return 上限が設定されている場合は <code>true</code>
+     */
+    public boolean isBounded() {
+        return bounded;
+    }
+
+    /**
+     * キーの使用を記録します。<br />
+     * <p>
+     * 未登録のキーであれば、指定された重みで登録します。
+     * </p>
+     * 
+     * @param key
+     *        キー
+     * @param weight
+     *        イメージのピクセルバイト数
+     */
+    public synchronized void touch(final String key, final long weight) {
+        if (entries.get(key) == null) {
+            entries.put(key, new Long(weight));
+            pixelBytes += weight;
+        }
+    }
+
+    /**
+     * キーの使用を記録します。<br />
+     * <p>
+     * {@link Image} オブジェクトの大きさは、未登録のキーを登録するときにのみ求めます。
+     * </p>
+     * 
+     * @param key
+     *        キー
+     * @param image
+     *        キーに対応する {@link Image} オブジェクト
+     */
+    public void touch(final String key, final Image image) {
+        synchronized (this) {
+            // アクセス順を更新する。登録済みであれば重みを求める必要はない
+            if (entries.get(key) != null) {
+                return;
+            }
+        }
+        touch(key, weigh(image));
+    }
+
+    /**
+     * キーを管理対象から外します。<br />
+     * 
+     * @param key
+     *        キー
+     */
+    public synchronized void remove(final String key) {
+        Long weight = entries.remove(key);
+        if (weight != null) {
+            pixelBytes -= weight.longValue();
+        }
+    }
+
+    /**
+     * キーをピン留めします。<br />
+     * 
+     * @param key
+     *        キー
+     */
+    public synchronized void pin(final String key) {
+        pinned.add(key);
+    }
+
+    /**
+     * キーのピン留めを解除します。<br />
+     * 
+     * @param key
+     *        キー
+     */
+    public synchronized void unpin(final String key) {
+        pinned.remove(key);
+    }
+
+    /**
+     * キーがピン留めされているかどうかを返します。<br />
+     * 
+     * @param key
+     *        キー
+     * @return ピン留めされている場合は <code>true</code>
+     */
+    public synchronized boolean isPinned(final String key) {
+        return pinned.contains(key);
+    }
+
+    /**
+     * キーの参照カウントを増やします。<br />
+     * 
+     * @param key
+     *        キー
+     * @return 増やした後の参照カウント
+     */
+    public synchronized int retain(final String key) {
+        int count = getReferenceCount(key) + 1;
+        references.put(key, new Integer(count));
+        return count;
+    }
+
+    /**
+     * キーの参照カウントを減らします。<br />
+     * 
+     * @param key
+     *        キー
+     * @return 減らした後の参照カウント
+     */
+    public synchronized int release(final String key) {
+        int count = getReferenceCount(key) - 1;
+        if (count > 0) {
+            references.put(key, new Integer(count));
+            return count;
+        }
+        references.remove(key);
+        return 0;
+    }
+
+    /**
+     * キーの参照カウントを返します。<br />
+     * 
+     * @param key
+     *        キー
+     * @return 参照カウント
+     */
+    public synchronized int getReferenceCount(final String key) {
+        Integer count = references.get(key);
+        return count != null ? count.intValue() : 0;
+    }
+
+    /**
+     * 上限を超えている分の犠牲キーを、最も長く使用されていないものから順に選択します。<br />
+     * <p>
+     * 選択されたキーは管理対象から外されます。
+     * </p>
+     * 
+     * @param protectedKey
+     *        犠牲キーとして選択しないキー。<code>null</code> でも構いません。
+     * @return 犠牲キーのリスト
+     */
+    public synchronized List<String> collectVictims(final String protectedKey) {
+        List<String> victims = new ArrayList<String>();
+        if (!isBounded()) {
+            return victims;
+        }
+        Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+        while (isOverLimit() && it.hasNext()) {
+            Map.Entry<String, Long> entry = it.next();
+            String key = entry.getKey();
+            if (pinned.contains(key) || references.containsKey(key) || key.equals(protectedKey)) {
+                continue;
+            }
+            it.remove();
+            pixelBytes -= entry.getValue().longValue();
+            victims.add(key);
+        }
+        return victims;
+    }
+
+    /**
+     * 管理しているイメージの数を返します。<br />
+     * 
+     * @return イメージの数
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * 管理しているイメージのピクセルバイト数の合計を返します。<br />
+     * 
+     * @return ピクセルバイト数
+     */
+    public synchronized long getPixelBytes() {
+        return pixelBytes;
+    }
+
+    /**
+     * すべてのキーを管理対象から外し、参照カウントをクリアします。<br />
+     * <p>
+     * ピン留めの情報は保持されます。
+     * </p>
+     */
+    public synchronized void clear() {
+        entries.clear();
+        references.clear();
+        pixelBytes = 0;
+    }
+
+    /**
+     * {@link Image} オブジェクトが使用するピクセルバイト数を見積もります。<br />
+     * <p>
+     * ネイティブイメージは 32 ビットのダイレクトカラーで保持されるものと見なします。
+     * </p>
+     * 
+     * @param image
+     *        {@link Image} オブジェクト
+     * @return ピクセルバイト数
+     */
+    public static long weigh(final Image image) {
+        if (image == null || image.isDisposed()) {
+            return 0;
+        }
+        Rectangle bounds = image.getBounds();
+        return (long) bounds.width * bounds.height * 4;
+    }
+
+    protected boolean isOverLimit() {
+        return (maxImages > 0 && entries.size() > maxImages)
+                || (maxPixelBytes > 0 && pixelBytes > maxPixelBytes);
+    }
+}
@@ -0,0 +1,421 @@
+/*
+ * Copyright 2004-2008 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.eclipse.common.util;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.eclipse.core.runtime.Plugin;
+import org.eclipse.jface.resource.ImageDescriptor;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.ImageLoader;
+import org.eclipse.swt.graphics.PaletteData;
+import org.eclipse.swt.graphics.RGB;
+import org.osgi.framework.Constants;
+import org.seasar.framework.log.Logger;
+import org.seasar.framework.util.InputStreamUtil;
+import org.seasar.framework.util.ResourceUtil;
+import org.seasar.framework.util.URLUtil;
+
+/**
+ * デコード済みの {@link ImageData} をディスク上にキャッシュするクラスです。<br />
+ * <p>
+ * イメージファイルをデコードした結果(ピクセル、パレット、アルファ、透過色)をファイルへ保存し、次回以降の起動では
+ * キャッシュファイルから {@link ImageData} を復元します。<br />
+ * キャッシュファイルは、リソースの URL をもとにした名前で保存され、リソースの大きさと最終更新日時が一致する場合にのみ使用されます。
+ * キャッシュが有効な場合、リソースの内容は読み込みません。<br />
+ * キャッシュディレクトリはバンドルのバージョンごとに作成され、バージョンが変わると古いディレクトリは自動的に削除されます。
+ * </p>
+ * <p>
+ * コーディング例
+ * </p>
+ * 
+ * <pre>
+ * ImageManager.setImageDataCache(ImageDataCache.create(MyPlugin.getDefault()));
+ * </pre>
+ * 
+ * @author y-komori
+ */
+public class ImageDataCache {
+    /**
+     * キャッシュディレクトリの名前です。<br />
+     */
+    public static final String CACHE_DIR = "imagecache";
+
+    private static final int MAGIC = 0x53324943;
+
+    private static final int FORMAT_VERSION = 2;
+
+    private static final String SUFFIX = ".idc";
+
+    private static final Logger logger = Logger.getLogger(ImageDataCache.class);
+
+    private final File directory;
+
+    /**
+     * {@link ImageDataCache} を構築します。<br />
+     * <p>
+     * {@code baseDir} 配下に {@code version} の名前でキャッシュディレクトリを作成し、それ以外のバージョンのディレクトリを削除します。
+     * </p>
+     * 
+     * @param baseDir
+     *        キャッシュの基底ディレクトリ
+     * @param version
+     *        キャッシュのバージョン
+     */
+    public ImageDataCache(final File baseDir, final String version) {
+        this.directory = new File(baseDir, version);
+        purgeOtherVersions(baseDir, directory);
+        directory.mkdirs();
+    }
+
+    /**
+     * プラグインの状態ロケーション配下に {@link ImageDataCache} を作成します。<br />
+     * <p>
+     * バンドルのバージョンをキャッシュのバージョンとして使用します。
+     * </p>
+     * 
+     * @param plugin
+     *        プラグイン
+     * @return {@link ImageDataCache} オブジェクト
+     */
+    public static ImageDataCache create(final Plugin plugin) {
+        File baseDir = plugin.getStateLocation().append(CACHE_DIR).toFile();
+        Object version = plugin.getBundle().getHeaders().get(Constants.BUNDLE_VERSION);
+        return new ImageDataCache(baseDir, version != null ? version.toString() : "0.0.0");
+    }
+
+    /**
+     * キャッシュディレクトリを返します。<br />
+     * 
+     * @return キャッシュディレクトリ
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * {@code url} で示されるイメージを {@link ImageData} として読み込みます。<br />
+     * <p>
+     * リソースの大きさと最終更新日時がキャッシュと一致する場合はキャッシュから復元し、
+     * 一致しない場合はリソースを読み込んでデコードし、キャッシュへ保存します。<br />
+     * 本メソッドは任意のスレッドから呼び出すことができます。
+     * </p>
+     * 
+     * @param url
+     *        イメージの URL
+     * @return {@link ImageData} オブジェクト
+     */
+    public ImageData load(final URL url) {
+        long[] stamp = getStamp(url);
+        File file = getCacheFile(url);
+
+        ImageData imageData = null;
+        if (file.exists()) {
+            try {
+                imageData = read(file, stamp);
+            } catch (IOException ex) {
+                logger.warn("Failed to read image cache. file=" + file, ex);
+            } catch (RuntimeException ex) {
+                logger.warn("Broken image cache. file=" + file, ex);
+            }
+        }
+        if (imageData == null) {
+            InputStream in = URLUtil.openStream(url);
+            try {
+                imageData = new ImageLoader().load(in)[0];
+            } finally {
+                InputStreamUtil.close(in);
+            }
+            try {
+                write(file, stamp, imageData);
+            } catch (IOException ex) {
+                logger.warn("Failed to write image cache. file=" + file, ex);
+            }
+        }
+        return imageData;
+    }
+
+    /**
+     * 本キャッシュを経由してイメージを読み込む {@link ImageDescriptor} を作成します。<br />
+     * 
+     * @param url
+     *        イメージの URL
+     * @return {@link ImageDescriptor} オブジェクト
+     */
+    public ImageDescriptor createDescriptor(final URL url) {
+        return new CachedImageDescriptor(this, url);
+    }
+
+    /**
+     * キャッシュファイルをすべて削除します。<br />
+     */
+    public void clear() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (int i = 0; i < files.length; i++) {
+                files[i].delete();
+            }
+        }
+    }
+
+    protected File getCacheFile(final URL url) {
+        return new File(directory, toHexString(digest(toBytes(url.toExternalForm()))) + SUFFIX);
+    }
+
+    /**
+     * リソースの大きさと最終更新日時を返します。<br />
+     * <p>
+     * リソースの内容は読み込みません。取得できない値は <code>-1</code> または <code>0</code> となり、
+     * 両方とも取得できない場合は、キャッシュディレクトリのバージョンのみでキャッシュの有効性が判断されます。
+     * </p>
+     * 
+     * @param url
+     *        イメージの URL
+     * @return 大きさと最終更新日時の配列
+     */
+    protected static long[] getStamp(final URL url) {
+        File file = "file".equals(url.getProtocol()) ? ResourceUtil.getFile(url) : null;
+        if (file != null) {
+            return new long[] { file.length(), file.lastModified() };
+        }
+        // jar や bundleresource の接続は、ヘッダ情報の参照だけでは内容を読み込まない
+        URLConnection connection = URLUtil.openConnection(url);
+        return new long[] { connection.getContentLength(), connection.getLastModified() };
+    }
+
+    protected ImageData read(final File file, final long[] stamp) throws IOException {
+        // メモリマップを使用すると、マップが解放されるまで Windows ではファイルを削除・置換できないため、ヒープへ読み込む
+        byte[] content;
+        FileInputStream in = new FileInputStream(file);
+        try {
+            content = InputStreamUtil.getBytes(in);
+        } finally {
+            InputStreamUtil.close(in);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(content);
+        if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+            return null;
+        }
+        if (buffer.getLong() != stamp[0] || buffer.getLong() != stamp[1]) {
+            return null;
+        }
+        return readImageData(buffer);
+    }
+
+    protected void write(final File file, final long[] stamp, final ImageData imageData)
+            throws IOException {
+        File temp = File.createTempFile("image", ".tmp", directory);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(temp)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(stamp[0]);
+            out.writeLong(stamp[1]);
+            writeImageData(out, imageData);
+            out.flush();
+        } finally {
+            out.close();
+        }
+        file.delete();
+        if (!temp.renameTo(file)) {
+            temp.delete();
+        }
+    }
+
+    protected static ImageData readImageData(final ByteBuffer buffer) {
+        int width = buffer.getInt();
+        int height = buffer.getInt();
+        int depth = buffer.getInt();
+        int scanlinePad = buffer.getInt();
+        PaletteData palette;
+        if (buffer.get() != 0) {
+            palette = new PaletteData(buffer.getInt(), buffer.getInt(), buffer.getInt());
+        } else {
+            RGB[] colors = new RGB[buffer.getInt()];
+            for (int i = 0; i < colors.length; i++) {
+                colors[i] = new RGB(buffer.get() & 0xFF, buffer.get() & 0xFF, buffer.get() & 0xFF);
+            }
+            palette = new PaletteData(colors);
+        }
+        ImageData imageData = new ImageData(width, height, depth, palette, scanlinePad,
+                readBytes(buffer));
+        imageData.transparentPixel = buffer.getInt();
+        imageData.maskPad = buffer.getInt();
+        imageData.maskData = readBytes(buffer);
+        imageData.alpha = buffer.getInt();
+        imageData.alphaData = readBytes(buffer);
+        imageData.type = buffer.getInt();
+        imageData.x = buffer.getInt();
+        imageData.y = buffer.getInt();
+        imageData.disposalMethod = buffer.getInt();
+        imageData.delayTime = buffer.getInt();
+        return imageData;
+    }
+
+    protected static void writeImageData(final DataOutputStream out, final ImageData imageData)
+            throws IOException {
+        out.writeInt(imageData.width);
+        out.writeInt(imageData.height);
+        out.writeInt(imageData.depth);
+        out.writeInt(imageData.scanlinePad);
+        PaletteData palette = imageData.palette;
+        out.writeBoolean(palette.isDirect);
+        if (palette.isDirect) {
+            out.writeInt(palette.redMask);
+            out.writeInt(palette.greenMask);
+            out.writeInt(palette.blueMask);
+        } else {
+            RGB[] colors = palette.colors;
+            out.writeInt(colors.length);
+            for (int i = 0; i < colors.length; i++) {
+                out.writeByte(colors[i].red);
+                out.writeByte(colors[i].green);
+                out.writeByte(colors[i].blue);
+            }
+        }
+        writeBytes(out, imageData.data);
+        out.writeInt(imageData.transparentPixel);
+        out.writeInt(imageData.maskPad);
+        writeBytes(out, imageData.maskData);
+        out.writeInt(imageData.alpha);
+        writeBytes(out, imageData.alphaData);
+        out.writeInt(imageData.type);
+        out.writeInt(imageData.x);
+        out.writeInt(imageData.y);
+        out.writeInt(imageData.disposalMethod);
+        out.writeInt(imageData.delayTime);
+    }
+
+    private static byte[] readBytes(final ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static void writeBytes(final DataOutputStream out, final byte[] bytes)
+            throws IOException {
+        if (bytes == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    protected static byte[] digest(final byte[] bytes) {
+        try {
+            return MessageDigest.getInstance("MD5").digest(bytes);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex.toString());
+        }
+    }
+
+    protected static String toHexString(final byte[] bytes) {
+        StringBuilder builder = new StringBuilder(bytes.length * 2);
+        for (int i = 0; i < bytes.length; i++) {
+            int b = bytes[i] & 0xFF;
+            if (b < 0x10) {
+                builder.append('0');
+            }
+            builder.append(Integer.toHexString(b));
+        }
+        return builder.toString();
+    }
+
+    protected static byte[] toBytes(final String s) {
+        try {
+            return s.getBytes("UTF-8");
+        } catch (UnsupportedEncodingException ex) {
+            throw new IllegalStateException(ex.toString());
+        }
+    }
+
+    private static void purgeOtherVersions(final File baseDir, final File current) {
+        File[] dirs = baseDir.listFiles();
+        if (dirs == null) {
+            return;
+        }
+        for (int i = 0; i < dirs.length; i++) {
+            if (dirs[i].isDirectory() && !dirs[i].equals(current)) {
+                File[] files = dirs[i].listFiles();
+                for (int j = 0; files != null && j < files.length; j++) {
+                    files[j].delete();
+                }
+                dirs[i].delete();
+            }
+        }
+    }
+
+    /**
+     * {@link ImageDataCache} を経由してイメージを読み込む {@link ImageDescriptor} です。<br />
+     */
+    protected static class CachedImageDescriptor extends ImageDescriptor {
+        private final ImageDataCache cache;
+
+        private final URL url;
+
+        protected CachedImageDescriptor(final ImageDataCache cache, final URL url) {
+            this.cache = cache;
+            this.url = url;
+        }
+
+        @Override
+        public ImageData getImageData() {
+            try {
+                return cache.load(url);
+            } catch (RuntimeException ex) {
+                logger.warn("Failed to load image. url=" + url, ex);
+                return null;
+            }
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof CachedImageDescriptor)) {
+                return false;
+            }
+            CachedImageDescriptor other = (CachedImageDescriptor) o;
+            return cache == other.cache && url.toExternalForm().equals(other.url.toExternalForm());
+        }
+
+        @Override
+        public int hashCode() {
+            return url.toExternalForm().hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return "CachedImageDescriptor(" + url + ")";
+        }
+    }
+}
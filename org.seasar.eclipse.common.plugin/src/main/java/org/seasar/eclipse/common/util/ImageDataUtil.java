@@ -0,0 +1,867 @@
+/*
+ * Copyright 2004-2008 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.eclipse.common.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.PaletteData;
+import org.eclipse.swt.graphics.RGB;
+
+/**
+ * {@link ImageData} の画素を一括で処理するためのユーティリティクラスです。<br />
+ * <p>
+ * 本クラスのメソッドは {@link ImageData#getPixel(int, int)} / {@link ImageData#setPixel(int, int, int)}
+ * を画素ごとに呼び出さず、走査線単位で {@code int[]} / {@code byte[]} の配列として読み書きします。<br />
+ * 入力にはインデックスカラー・ダイレクトカラーのいずれの形式の {@link ImageData} も使用できます。
+ * 透過色、マスク、アルファ値はいずれも画素ごとのアルファ値として扱います。<br />
+ * 出力は、24 ビットのダイレクトカラーと画素ごとのアルファ値({@link ImageData#alphaData})を持つ {@link ImageData}
+ * です。すべての画素が不透明な場合、アルファ値は設定しません。<br />
+ * 画素数が {@link #PARALLEL_THRESHOLD} 以上のイメージは、走査線を分割して複数のワーカスレッドで並列に処理します。
+ * </p>
+ * <p>
+ * 本クラスのメソッドは任意のスレッドから呼び出すことができます。
+ * </p>
+ * 
+ * @author y-komori
+ */
+public class ImageDataUtil {
+    /**
+     * 並列に処理する最小の画素数です。<br />
+     */
+    public static final int PARALLEL_THRESHOLD = 256 * 256;
+
+    /**
+     * 出力する {@link ImageData} のパレットです。<br />
+     */
+    protected static final PaletteData DIRECT_PALETTE = new PaletteData(0xFF0000, 0xFF00, 0xFF);
+
+    private static final int PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+    private static final int OPAQUE = 0xFF000000;
+
+    private static ExecutorService pool;
+
+    private ImageDataUtil() {
+    }
+
+    /**
+     * {@link ImageData} の画素を <code>0xAARRGGBB</code> 形式の配列に変換します。<br />
+     * 
+     * @param imageData
+     *        変換元の {@link ImageData}
+     * @return 画素の配列。<code>y * width + x</code> 番目の要素が座標 <code>(x, y)</code> の画素です。
+     */
+    public static int[] toARGB(final ImageData imageData) {
+        final int width = imageData.width;
+        final int[] argb = new int[width * imageData.height];
+        final PaletteData palette = imageData.palette;
+        final int[] lut = palette.isDirect ? null : createLookupTable(palette);
+        final ImageData mask = imageData.maskData != null ? imageData.getTransparencyMask() : null;
+        execute(width, imageData.height, new RowKernel() {
+            @Override
+            protected void run(final int from, final int to) {
+                int[] pixels = new int[width];
+                int[] maskPixels = mask != null ? new int[width] : null;
+                byte[] alphas = imageData.alphaData != null ? new byte[width] : null;
+                for (int y = from; y < to; y++) {
+                    readRow(imageData, lut, mask, y, pixels, maskPixels, alphas, argb, y
+                            * width);
+                }
+            }
+        });
+        return argb;
+    }
+
+    /**
+     * <code>0xAARRGGBB</code> 形式の画素の配列から {@link ImageData} を作成します。<br />
+     * 
+     * @param argb
+     *        画素の配列
+     * @param width
+     *        幅
+     * @param height
+     *        高さ
+     * @return 24 ビットのダイレクトカラーの {@link ImageData}
+     */
+    public static ImageData fromARGB(final int[] argb, final int width, final int height) {
+        final ImageData imageData = new ImageData(width, height, 24, DIRECT_PALETTE);
+        final byte[] data = imageData.data;
+        final int bytesPerLine = imageData.bytesPerLine;
+        final byte[] alphaData = new byte[width * height];
+        final boolean[] translucent = new boolean[1];
+        execute(width, height, new RowKernel() {
+            @Override
+            protected void run(final int from, final int to) {
+                boolean found = false;
+                for (int y = from; y < to; y++) {
+                    int src = y * width;
+                    int dst = y * bytesPerLine;
+                    for (int x = 0; x < width; x++, src++, dst += 3) {
+                        int pixel = argb[src];
+                        data[dst] = (byte) (pixel >> 16);
+                        data[dst + 1] = (byte) (pixel >> 8);
+                        data[dst + 2] = (byte) pixel;
+                        alphaData[src] = (byte) (pixel >>> 24);
+                        found |= (pixel & OPAQUE) != OPAQUE;
+                    }
+                }
+                if (found) {
+                    translucent[0] = true;
+                }
+            }
+        });
+        if (translucent[0]) {
+            imageData.alphaData = alphaData;
+        }
+        return imageData;
+    }
+
+    /**
+     * 最近傍法で {@link ImageData} を拡大・縮小します。<br />
+     * 
+     * @param imageData
+     *        元の {@link ImageData}
+     * @param width
+     *        拡大・縮小後の幅
+     * @param height
+     *        拡大・縮小後の高さ
+     * @return 拡大・縮小した {@link ImageData}
+     */
+    public static ImageData scaleNearest(final ImageData imageData, final int width,
+            final int height) {
+        final int[] src = toARGB(imageData);
+        final int srcWidth = imageData.width;
+        final int srcHeight = imageData.height;
+        final int[] dst = new int[width * height];
+        final int[] xIndex = new int[width];
+        for (int x = 0; x < width; x++) {
+            xIndex[x] = (int) ((long) x * srcWidth / width);
+        }
+        execute(width, height, new RowKernel() {
+            @Override
+            protected void run(final int from, final int to) {
+                for (int y = from; y < to; y++) {
+                    int srcOffset = (int) ((long) y * srcHeight / height) * srcWidth;
+                    int dstOffset = y * width;
+                    for (int x = 0; x < width; x++) {
+                        dst[dstOffset + x] = src[srcOffset + xIndex[x]];
+                    }
+                }
+            }
+        });
+        return fromARGB(dst, width, height);
+    }
+
+    /**
+     * 双線形補間で {@link ImageData} を拡大・縮小します。<br />
+     * <p>
+     * 色はアルファ値で重み付けして補間するため、透明な画素の色が縁ににじむことはありません。
+     * </p>
+     * 
+     * @param imageData
+     *        元の {@link ImageData}
+     * @param width
+     *        拡大・縮小後の幅
+     * @param height
+     *        拡大・縮小後の高さ
+     * @return 拡大・縮小した {@link ImageData}
+     */
+    public static ImageData scaleBilinear(final ImageData imageData, final int width,
+            final int height) {
+        final int[] src = toARGB(imageData);
+        final int srcWidth = imageData.width;
+        final int srcHeight = imageData.height;
+        final int[] dst = new int[width * height];
+        final int[] x0 = new int[width];
+        final int[] x1 = new int[width];
+        final int[] fx = new int[width];
+        computeSamples(srcWidth, width, x0, x1, fx);
+        final int[] y0 = new int[height];
+        final int[] y1 = new int[height];
+        final int[] fy = new int[height];
+        computeSamples(srcHeight, height, y0, y1, fy);
+        execute(width, height, new RowKernel() {
+            @Override
+            protected void run(final int from, final int to) {
+                for (int y = from; y < to; y++) {
+                    int row0 = y0[y] * srcWidth;
+                    int row1 = y1[y] * srcWidth;
+                    int wy1 = fy[y];
+                    int wy0 = 256 - wy1;
+                    int dstOffset = y * width;
+                    for (int x = 0; x < width; x++) {
+                        int wx1 = fx[x];
+                        int wx0 = 256 - wx1;
+                        dst[dstOffset + x] = interpolate(src[row0 + x0[x]], src[row0 + x1[x]],
+                                src[row1 + x0[x]], src[row1 + x1[x]], wx0 * wy0, wx1 * wy0, wx0
+                                        * wy1, wx1 * wy1);
+                    }
+                }
+            }
+        });
+        return fromARGB(dst, width, height);
+    }
+
+    /**
+     * {@code base} の上に {@code overlay} を重ねて描画します。<br />
+     * <p>
+     * 各画素のアルファ値に従って合成します(Porter-Duff の source-over)。イメージの大きさは {@code base} と同じです。
+     * </p>
+     * 
+     * @param base
+     *        下になる {@link ImageData}
+     * @param overlay
+     *        重ねる {@link ImageData}
+     * @param x
+     *        {@code overlay} を描画する X 座標
+     * @param y
+     *        {@code overlay} を描画する Y 座標
+     * @return 合成した {@link ImageData}
+     */
+    public static ImageData composite(final ImageData base, final ImageData overlay, final int x,
+            final int y) {
+        final int[] dst = toARGB(base);
+        final int[] src = toARGB(overlay);
+        final int width = base.width;
+        final int overlayWidth = overlay.width;
+        final int left = Math.max(0, x);
+        final int right = Math.min(width, x + overlayWidth);
+        final int top = Math.max(0, y);
+        final int bottom = Math.min(base.height, y + overlay.height);
+        if (left < right && top < bottom) {
+            execute(right - left, bottom - top, new RowKernel() {
+                @Override
+                protected void run(final int from, final int to) {
+                    for (int row = top + from; row < top + to; row++) {
+                        int dstOffset = row * width;
+                        int srcOffset = (row - y) * overlayWidth - x;
+                        for (int col = left; col < right; col++) {
+                            dst[dstOffset + col] = blend(dst[dstOffset + col], src[srcOffset
+                                    + col]);
+                        }
+                    }
+                }
+            });
+        }
+        return fromARGB(dst, width, base.height);
+    }
+
+    /**
+     * {@link ImageData} を指定した色で着色します。<br />
+     * <p>
+     * 各画素の色と {@code color} を {@code amount} の割合で混ぜ合わせます。アルファ値は変わりません。
+     * </p>
+     * 
+     * @param imageData
+     *        元の {@link ImageData}
+     * @param color
+     *        着色する色
+     * @param amount
+     *        {@code color} の割合(<code>0</code> ~ <code>255</code>)。<code>255</code> の場合は
+     *        {@code color} で塗りつぶします。
+     * @return 着色した {@link ImageData}
+     */
+    public static ImageData tint(final ImageData imageData, final RGB color, final int amount) {
+        final int[] argb = toARGB(imageData);
+        final int a = Math.max(0, Math.min(255, amount));
+        final int keep = 255 - a;
+        final int red = color.red * a;
+        final int green = color.green * a;
+        final int blue = color.blue * a;
+        final int width = imageData.width;
+        execute(width, imageData.height, new RowKernel() {
+            @Override
+            protected void run(final int from, final int to) {
+                for (int i = from * width, end = to * width; i < end; i++) {
+                    int pixel = argb[i];
+                    int r = (((pixel >> 16) & 0xFF) * keep + red) / 255;
+                    int g = (((pixel >> 8) & 0xFF) * keep + green) / 255;
+                    int b = ((pixel & 0xFF) * keep + blue) / 255;
+                    argb[i] = (pixel & OPAQUE) | (r << 16) | (g << 8) | b;
+                }
+            }
+        });
+        return fromARGB(argb, width, imageData.height);
+    }
+
+    /**
+     * {@link ImageData} をグレースケールに変換します。<br />
+     * <p>
+     * 輝度は ITU-R BT.601 の係数で求めます。アルファ値は変わりません。
+     * </p>
+     * 
+     * @param imageData
+     *        元の {@link ImageData}
+     * @return グレースケールに変換した {@link ImageData}
+     */
+    public static ImageData grayscale(final ImageData imageData) {
+        final int[] argb = toARGB(imageData);
+        final int width = imageData.width;
+        execute(width, imageData.height, new RowKernel() {
+            @Override
+            protected void run(final int from, final int to) {
+                for (int i = from * width, end = to * width; i < end; i++) {
+                    int pixel = argb[i];
+                    int lum = (((pixel >> 16) & 0xFF) * 77 + ((pixel >> 8) & 0xFF) * 150
+                            + (pixel & 0xFF) * 29) >> 8;
+                    argb[i] = (pixel & OPAQUE) | (lum << 16) | (lum << 8) | lum;
+                }
+            }
+        });
+        return fromARGB(argb, width, imageData.height);
+    }
+
+    /**
+     * {@link ImageData} を、無効状態を表す淡いグレースケールに変換します。<br />
+     * <p>
+     * 輝度を明るい側の半分の範囲に圧縮し、不透明度を 2/3 に下げます。
+     * </p>
+     * 
+     * @param imageData
+     *        元の {@link ImageData}
+     * @return 変換した {@link ImageData}
+     */
+    public static ImageData disable(final ImageData imageData) {
+        final int[] argb = toARGB(imageData);
+        final int width = imageData.width;
+        execute(width, imageData.height, new RowKernel() {
+            @Override
+            protected void run(final int from, final int to) {
+                for (int i = from * width, end = to * width; i < end; i++) {
+                    int pixel = argb[i];
+                    int lum = (((pixel >> 16) & 0xFF) * 77 + ((pixel >> 8) & 0xFF) * 150
+                            + (pixel & 0xFF) * 29) >> 8;
+                    int gray = 128 + (lum >> 1);
+                    int alpha = (pixel >>> 24) * 2 / 3;
+                    argb[i] = (alpha << 24) | (gray << 16) | (gray << 8) | gray;
+                }
+            }
+        });
+        return fromARGB(argb, width, imageData.height);
+    }
+
+    /**
+     * {@link ImageData} の矩形領域を切り出します。<br />
+     * <p>
+     * マスクを持たない {@link ImageData} の場合、切り出した {@link ImageData} は元と同じ深さ・パレット・透過色を持ちます。
+     * マスクを持つ場合は、24 ビットのダイレクトカラーに変換します。<br />
+     * 矩形はイメージの範囲内に収まっている必要があります。
+     * </p>
+     * 
+     * @param imageData
+     *        元の {@link ImageData}
+     * @param x
+     *        矩形の X 座標
+     * @param y
+     *        矩形の Y 座標
+     * @param width
+     *        矩形の幅
+     * @param height
+     *        矩形の高さ
+     * @return 切り出した {@link ImageData}
+     */
+    public static ImageData crop(final ImageData imageData, final int x, final int y,
+            final int width, final int height) {
+        if (x < 0 || y < 0 || width <= 0 || height <= 0 || x + width > imageData.width
+                || y + height > imageData.height) {
+            throw new IllegalArgumentException("x=" + x + ", y=" + y + ", width=" + width
+                    + ", height=" + height);
+        }
+        if (imageData.maskData != null) {
+            return cropARGB(imageData, x, y, width, height);
+        }
+        final ImageData cropped = new ImageData(width, height, imageData.depth,
+                imageData.palette);
+        cropped.transparentPixel = imageData.transparentPixel;
+        cropped.alpha = imageData.alpha;
+        if (imageData.alphaData != null) {
+            cropped.alphaData = new byte[width * height];
+        }
+        execute(width, height, new RowKernel() {
+            @Override
+            protected void run(final int from, final int to) {
+                int[] pixels = new int[width];
+                for (int row = from; row < to; row++) {
+                    imageData.getPixels(x, y + row, width, pixels, 0);
+                    cropped.setPixels(0, row, width, pixels, 0);
+                    if (cropped.alphaData != null) {
+                        System.arraycopy(imageData.alphaData, (y + row) * imageData.width + x,
+                                cropped.alphaData, row * width, width);
+                    }
+                }
+            }
+        });
+        return cropped;
+    }
+
+    /**
+     * {@link ImageData} を縦横それぞれ半分の大きさに縮小します。<br />
+     * <p>
+     * 縮小後の画素は、元の 2 x 2 画素の平均です。色はアルファ値で重み付けして平均します。
+     * 元の幅・高さが奇数の場合、縮小後の幅・高さは切り上げます。<br />
+     * 元のイメージを走査線 2 本ずつ読み込むため、作業領域は縮小後のイメージの大きさに比例します。
+     * </p>
+     * 
+     * @param imageData
+     *        元の {@link ImageData}
+     * @return 縮小した {@link ImageData}
+     */
+    public static ImageData downsample(final ImageData imageData) {
+        final int srcWidth = imageData.width;
+        final int srcHeight = imageData.height;
+        final int width = (srcWidth + 1) / 2;
+        final int height = (srcHeight + 1) / 2;
+        final int[] dst = new int[width * height];
+        final PaletteData palette = imageData.palette;
+        final int[] lut = palette.isDirect ? null : createLookupTable(palette);
+        final ImageData mask = imageData.maskData != null ? imageData.getTransparencyMask() : null;
+        execute(width, height, new RowKernel() {
+            @Override
+            protected void run(final int from, final int to) {
+                int[] pixels = new int[srcWidth];
+                int[] maskPixels = mask != null ? new int[srcWidth] : null;
+                byte[] alphas = imageData.alphaData != null ? new byte[srcWidth] : null;
+                int[] rows = new int[srcWidth * 2];
+                for (int y = from; y < to; y++) {
+                    int y0 = y * 2;
+                    int y1 = Math.min(y0 + 1, srcHeight - 1);
+                    readRow(imageData, lut, mask, y0, pixels, maskPixels, alphas, rows, 0);
+                    readRow(imageData, lut, mask, y1, pixels, maskPixels, alphas, rows, srcWidth);
+                    int offset = y * width;
+                    for (int x = 0; x < width; x++) {
+                        int x0 = x * 2;
+                        int x1 = Math.min(x0 + 1, srcWidth - 1);
+                        dst[offset + x] = interpolate(rows[x0], rows[x1], rows[srcWidth + x0],
+                                rows[srcWidth + x1], 16384, 16384, 16384, 16384);
+                    }
+                }
+            }
+        });
+        return fromARGB(dst, width, height);
+    }
+
+    /**
+     * 縦横比を保ったまま、指定された大きさに収まるように {@link ImageData} を縮小します。<br />
+     * <p>
+     * 縮小率が大きい場合は、{@link #downsample(ImageData)} で半分ずつ縮小してから双線形補間で仕上げるため、
+     * 細い線や細かな模様が欠けることはありません。<br />
+     * 元のイメージが指定された大きさに収まっている場合は、元の {@link ImageData} をそのまま返します。
+     * </p>
+     * 
+     * @param imageData
+     *        元の {@link ImageData}
+     * @param maxWidth
+     *        幅の上限
+     * @param maxHeight
+     *        高さの上限
+     * @return 縮小した {@link ImageData}
+     */
+    public static ImageData scaleToFit(final ImageData imageData, final int maxWidth,
+            final int maxHeight) {
+        double scale = Math.min((double) maxWidth / imageData.width, (double) maxHeight
+                / imageData.height);
+        if (scale >= 1.0) {
+            return imageData;
+        }
+        int width = Math.max(1, (int) Math.round(imageData.width * scale));
+        int height = Math.max(1, (int) Math.round(imageData.height * scale));
+        ImageData reduced = imageData;
+        while (reduced.width >= width * 2 && reduced.height >= height * 2) {
+            reduced = downsample(reduced);
+        }
+        return scaleBilinear(reduced, width, height);
+    }
+
+    /**
+     * 使用している色が 256 色以下のダイレクトカラーの {@link ImageData} を、インデックスカラーに変換します。<br />
+     * <p>
+     * 深さは、色数に応じて 1・2・4・8 ビットのうち最小のものを選択します。
+     * アルファ値と透過色は変換後も保持します。<br />
+     * インデックスカラーの {@link ImageData}、マスクを持つ {@link ImageData}、257 色以上を使用している {@link ImageData}
+     * は変換せず、元の {@link ImageData} をそのまま返します。
+     * </p>
+     * 
+     * @param imageData
+     *        元の {@link ImageData}
+     * @return インデックスカラーの {@link ImageData}。変換しない場合は {@code imageData} そのもの。
+     */
+    public static ImageData compactPalette(final ImageData imageData) {
+        PaletteData palette = imageData.palette;
+        if (!palette.isDirect || imageData.maskData != null) {
+            return imageData;
+        }
+        int width = imageData.width;
+        int height = imageData.height;
+        ColorTable table = new ColorTable();
+        int[] pixels = new int[width];
+        for (int y = 0; y < height; y++) {
+            imageData.getPixels(0, y, width, pixels, 0);
+            for (int x = 0; x < width; x++) {
+                if (table.add(pixels[x]) < 0) {
+                    return imageData;
+                }
+            }
+        }
+        int colorCount = table.size();
+        int depth = colorCount <= 2 ? 1 : colorCount <= 4 ? 2 : colorCount <= 16 ? 4 : 8;
+        RGB[] colors = new RGB[colorCount];
+        for (int i = 0; i < colorCount; i++) {
+            colors[i] = palette.getRGB(table.getPixel(i));
+        }
+        ImageData compacted = new ImageData(width, height, depth, new PaletteData(colors));
+        for (int y = 0; y < height; y++) {
+            imageData.getPixels(0, y, width, pixels, 0);
+            for (int x = 0; x < width; x++) {
+                pixels[x] = table.indexOf(pixels[x]);
+            }
+            compacted.setPixels(0, y, width, pixels, 0);
+        }
+        if (imageData.transparentPixel != -1) {
+            // 透過色がイメージ中に現れない場合は、透過色なしとなる
+            compacted.transparentPixel = table.indexOf(imageData.transparentPixel);
+        }
+        compacted.alpha = imageData.alpha;
+        if (imageData.alphaData != null) {
+            compacted.alphaData = (byte[]) imageData.alphaData.clone();
+        }
+        compacted.type = imageData.type;
+        return compacted;
+    }
+
+    /**
+     * 走査線の範囲を処理するカーネルです。<br />
+     */
+    protected abstract static class RowKernel {
+        /**
+         * 指定された範囲の走査線を処理します。<br />
+         * 
+         * @param from
+         *        最初の走査線(この値を含む)
+         * @param to
+         *        最後の走査線(この値を含まない)
+         */
+        protected abstract void run(int from, int to);
+    }
+
+    /**
+     * {@code kernel} で全走査線を処理します。<br />
+     * <p>
+     * 画素数が {@link #PARALLEL_THRESHOLD} 以上の場合は走査線を分割し、呼び出し元のスレッドとワーカスレッドで並列に処理します。
+     * ワーカスレッドから呼び出された場合は、デッドロックを避けるため呼び出し元のスレッドのみで処理します。
+     * </p>
+     * 
+     * @param width
+     *        処理する幅
+     * @param height
+     *        処理する走査線の数
+     * @param kernel
+     *        カーネル
+     */
+    protected static void execute(final int width, final int height, final RowKernel kernel) {
+        int chunks = Math.min(PARALLELISM, height);
+        if ((long) width * height < PARALLEL_THRESHOLD || chunks < 2
+                || Thread.currentThread() instanceof WorkerThread) {
+            kernel.run(0, height);
+            return;
+        }
+        ExecutorService executor = getPool();
+        int rows = (height + chunks - 1) / chunks;
+        List<Future<?>> futures = new ArrayList<Future<?>>(chunks);
+        for (int from = rows; from < height; from += rows) {
+            final int start = from;
+            final int end = Math.min(height, from + rows);
+            futures.add(executor.submit(new Runnable() {
+                public void run() {
+                    kernel.run(start, end);
+                }
+            }));
+        }
+        kernel.run(0, rows);
+
+        boolean interrupted = false;
+        for (Future<?> future : futures) {
+            while (true) {
+                try {
+                    future.get();
+                    break;
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                } catch (ExecutionException ex) {
+                    Throwable cause = ex.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw new IllegalStateException(String.valueOf(cause));
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    protected static synchronized ExecutorService getPool() {
+        if (pool == null) {
+            pool = Executors.newFixedThreadPool(Math.max(1, PARALLELISM - 1), new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                public Thread newThread(final Runnable r) {
+                    Thread thread = new WorkerThread(r, "ImageDataUtil-worker-"
+                            + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return pool;
+    }
+
+    private static int[] createLookupTable(final PaletteData palette) {
+        RGB[] colors = palette.getRGBs();
+        int[] lut = new int[colors != null ? colors.length : 0];
+        for (int i = 0; i < lut.length; i++) {
+            RGB rgb = colors[i];
+            lut[i] = OPAQUE | (rgb.red << 16) | (rgb.green << 8) | rgb.blue;
+        }
+        return lut;
+    }
+
+    private static ImageData cropARGB(final ImageData imageData, final int x, final int y,
+            final int width, final int height) {
+        int[] src = toARGB(imageData);
+        int[] dst = new int[width * height];
+        for (int row = 0; row < height; row++) {
+            System.arraycopy(src, (y + row) * imageData.width + x, dst, row * width, width);
+        }
+        return fromARGB(dst, width, height);
+    }
+
+    private static void readRow(final ImageData imageData, final int[] lut,
+            final ImageData mask, final int y, final int[] pixels, final int[] maskPixels,
+            final byte[] alphas, final int[] argb, final int offset) {
+        int width = imageData.width;
+        imageData.getPixels(0, y, width, pixels, 0);
+        if (lut != null) {
+            for (int x = 0; x < width; x++) {
+                int pixel = pixels[x];
+                argb[offset + x] = pixel < lut.length ? lut[pixel] : OPAQUE;
+            }
+        } else {
+            PaletteData palette = imageData.palette;
+            for (int x = 0; x < width; x++) {
+                argb[offset + x] = toDirectRGB(palette, pixels[x]);
+            }
+        }
+        applyTransparency(imageData, pixels, maskPixels, alphas, mask, y, argb, offset);
+    }
+
+    private static int toDirectRGB(final PaletteData palette, final int pixel) {
+        int r = shift(pixel & palette.redMask, palette.redShift);
+        int g = shift(pixel & palette.greenMask, palette.greenShift);
+        int b = shift(pixel & palette.blueMask, palette.blueShift);
+        return OPAQUE | (r << 16) | (g << 8) | b;
+    }
+
+    private static int shift(final int value, final int shift) {
+        return shift < 0 ? value >>> -shift : value << shift;
+    }
+
+    private static void applyTransparency(final ImageData imageData, final int[] pixels,
+            final int[] maskPixels, final byte[] alphas, final ImageData mask, final int y,
+            final int[] argb, final int offset) {
+        int width = imageData.width;
+        if (alphas != null) {
+            imageData.getAlphas(0, y, width, alphas, 0);
+            for (int x = 0; x < width; x++) {
+                argb[offset + x] = (argb[offset + x] & 0xFFFFFF) | ((alphas[x] & 0xFF) << 24);
+            }
+        } else if (mask != null) {
+            mask.getPixels(0, y, width, maskPixels, 0);
+            for (int x = 0; x < width; x++) {
+                if (maskPixels[x] == 0) {
+                    argb[offset + x] &= 0xFFFFFF;
+                }
+            }
+        } else if (imageData.transparentPixel != -1) {
+            int transparent = imageData.transparentPixel;
+            for (int x = 0; x < width; x++) {
+                if (pixels[x] == transparent) {
+                    argb[offset + x] &= 0xFFFFFF;
+                }
+            }
+        }
+        if (imageData.alpha != -1) {
+            int alpha = imageData.alpha;
+            for (int x = 0; x < width; x++) {
+                int pixel = argb[offset + x];
+                argb[offset + x] = (pixel & 0xFFFFFF) | (((pixel >>> 24) * alpha / 255) << 24);
+            }
+        }
+    }
+
+    private static void computeSamples(final int srcSize, final int dstSize, final int[] index0,
+            final int[] index1, final int[] fraction) {
+        for (int i = 0; i < dstSize; i++) {
+            // 画素の中心を合わせ、8 ビットの固定小数点で元の座標を求める
+            long pos = ((2L * i + 1) * srcSize * 256) / (2L * dstSize) - 128;
+            if (pos < 0) {
+                pos = 0;
+            }
+            int p0 = (int) (pos >> 8);
+            if (p0 >= srcSize - 1) {
+                index0[i] = srcSize - 1;
+                index1[i] = srcSize - 1;
+                fraction[i] = 0;
+            } else {
+                index0[i] = p0;
+                index1[i] = p0 + 1;
+                fraction[i] = (int) (pos & 0xFF);
+            }
+        }
+    }
+
+    private static int interpolate(final int p00, final int p10, final int p01, final int p11,
+            final int w00, final int w10, final int w01, final int w11) {
+        // 重みの合計は 65536。色はアルファ値で重み付けする
+        int a00 = (p00 >>> 24) * w00;
+        int a10 = (p10 >>> 24) * w10;
+        int a01 = (p01 >>> 24) * w01;
+        int a11 = (p11 >>> 24) * w11;
+        long alphaSum = (long) a00 + a10 + a01 + a11;
+        if (alphaSum == 0) {
+            return 0;
+        }
+        long r = ((p00 >> 16) & 0xFF) * (long) a00 + ((p10 >> 16) & 0xFF) * (long) a10
+                + ((p01 >> 16) & 0xFF) * (long) a01 + ((p11 >> 16) & 0xFF) * (long) a11;
+        long g = ((p00 >> 8) & 0xFF) * (long) a00 + ((p10 >> 8) & 0xFF) * (long) a10
+                + ((p01 >> 8) & 0xFF) * (long) a01 + ((p11 >> 8) & 0xFF) * (long) a11;
+        long b = (p00 & 0xFF) * (long) a00 + (p10 & 0xFF) * (long) a10 + (p01 & 0xFF)
+                * (long) a01 + (p11 & 0xFF) * (long) a11;
+        int alpha = (int) ((alphaSum + 32768) >> 16);
+        return (alpha << 24) | ((int) ((r + alphaSum / 2) / alphaSum) << 16)
+                | ((int) ((g + alphaSum / 2) / alphaSum) << 8)
+                | (int) ((b + alphaSum / 2) / alphaSum);
+    }
+
+    private static int blend(final int dst, final int src) {
+        int sa = src >>> 24;
+        if (sa == 255) {
+            return src;
+        }
+        if (sa == 0) {
+            return dst;
+        }
+        int da = (dst >>> 24) * (255 - sa) / 255;
+        int outA = sa + da;
+        int r = (((src >> 16) & 0xFF) * sa + ((dst >> 16) & 0xFF) * da) / outA;
+        int g = (((src >> 8) & 0xFF) * sa + ((dst >> 8) & 0xFF) * da) / outA;
+        int b = ((src & 0xFF) * sa + (dst & 0xFF) * da) / outA;
+        return (outA << 24) | (r << 16) | (g << 8) | b;
+    }
+
+    /**
+     * {@link #compactPalette(ImageData)} で使用する、画素値とパレットのインデックスの対応表です。<br />
+     * <p>
+     * 最大 256 色を、オープンアドレス法のハッシュ表で保持します。
+     * </p>
+     */
+    private static class ColorTable {
+        private static final int MAX_COLORS = 256;
+
+        private static final int CAPACITY = MAX_COLORS * 2;
+
+        private final int[] keys = new int[CAPACITY];
+
+        private final int[] indices = new int[CAPACITY];
+
+        private final int[] pixels = new int[MAX_COLORS];
+
+        private int size;
+
+        ColorTable() {
+            Arrays.fill(indices, -1);
+        }
+
+        /**
+         * 画素値を追加します。<br />
+         * 
+         * @param pixel
+         *        画素値
+         * @return インデックス。色数が上限を超える場合は <code>-1</code>。
+         */
+        int add(final int pixel) {
+            int slot = find(pixel);
+            if (indices[slot] == -1) {
+                if (size == MAX_COLORS) {
+                    return -1;
+                }
+                keys[slot] = pixel;
+                indices[slot] = size;
+                pixels[size] = pixel;
+                size++;
+            }
+            return indices[slot];
+        }
+
+        /**
+         * 画素値のインデックスを返します。<br />
+         * 
+         * @param pixel
+         *        画素値
+         * @return インデックス。追加されていない画素値の場合は <code>-1</code>。
+         */
+        int indexOf(final int pixel) {
+            return indices[find(pixel)];
+        }
+
+        int getPixel(final int index) {
+            return pixels[index];
+        }
+
+        int size() {
+            return size;
+        }
+
+        private int find(final int pixel) {
+            int slot = (pixel * 0x9E3779B9) >>> 23;
+            while (indices[slot] != -1 && keys[slot] != pixel) {
+                slot = (slot + 1) & (CAPACITY - 1);
+            }
+            return slot;
+        }
+    }
+
+    /**
+     * 並列処理に使用するワーカスレッドです。<br />
+     */
+    private static class WorkerThread extends Thread {
+        WorkerThread(final Runnable target, final String name) {
+            super(target, name);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2004-2008 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.eclipse.common.util;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@link ImageManager#loadImagesDeduplicated(java.util.ResourceBundle)} による一括登録の結果を表すクラスです。<br />
+ * 
+ * @author y-komori
+ */
+public class ImageDedupReport {
+    private final Map<String, String> aliases = new LinkedHashMap<String, String>();
+
+    private int keyCount;
+
+    private int uniqueCount;
+
+    void addUnique() {
+        keyCount++;
+        uniqueCount++;
+    }
+
+    void addAlias(final String key, final String canonicalKey) {
+        keyCount++;
+        aliases.put(key, canonicalKey);
+    }
+
+    /**
+     * 登録したキーの数を返します。<br />
+     * 
+     * @return キーの数
+     */
+    public int getKeyCount() {
+        return keyCount;
+    }
+
+    /**
+     * 内容が異なるイメージの数を返します。<br />
+     * 
+     * @return イメージの数
+     */
+    public int getUniqueCount() {
+        return uniqueCount;
+    }
+
+    /**
+     * 重複排除の比率を返します。<br />
+     * <p>
+     * 他のキーと内容が同一であったために共有されたキーの割合です。
+     * </p>
+     * 
+     * @return <code>0.0</code> 以上 <code>1.0</code> 未満の比率
+     */
+    public double getDedupRatio() {
+        if (keyCount == 0) {
+            return 0.0;
+        }
+        return (double) (keyCount - uniqueCount) / keyCount;
+    }
+
+    /**
+     * 共有されたキーと、共有元のキーの {@link Map} を返します。<br />
+     * 
+     * @return キーと共有元のキーの {@link Map}
+     */
+    public Map<String, String> getAliases() {
+        return Collections.unmodifiableMap(aliases);
+    }
+
+    @Override
+    public String toString() {
+        return "keys=" + keyCount + ", unique=" + uniqueCount + ", dedupRatio="
+                + getDedupRatio();
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2004-2008 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.eclipse.common.util;
+
+import org.eclipse.swt.graphics.Image;
+
+/**
+ * {@link ImageManager} が管理する {@link Image} オブジェクトへの参照を表すクラスです。<br />
+ * <p>
+ * 本クラスのインスタンスは {@link ImageManager#acquireImage(String)} メソッドで取得します。<br />
+ * {@link Image} オブジェクトが不要になったら、{@link #release()} メソッドを呼び出してください。
+ * </p>
+ * 
+ * @author y-komori
+ */
+public class ImageHandle {
+    private final DisplayImageRegistry registry;
+
+    private final String key;
+
+    private Image image;
+
+    ImageHandle(final DisplayImageRegistry registry, final String key, final Image image) {
+        this.registry = registry;
+        this.key = key;
+        this.image = image;
+    }
+
+    /**
+     * キーを返します。<br />
+     * 
+     * @return キー
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * {@link Image} オブジェクトを返します。<br />
+     * 
+     * @return {@link Image} オブジェクト
+     * @throws IllegalStateException
+     *         既に解放されている場合
+     */
+    public Image getImage() {
+        if (image == null) {
+            throw new IllegalStateException("Already released. key=" + key);
+        }
+        return image;
+    }
+
+    /**
+     * 解放済みかどうかを返します。<br />
+     * 
+     * @return 解放済みの場合は <code>true</code>
+     */
+    public boolean isReleased() {
+        return image == null;
+    }
+
+    /**
+     * 参照を解放します。<br />
+     * <p>
+     * 既に解放されている場合は何もしません。
+     * </p>
+     */
+    public void release() {
+        if (image != null) {
+            image = null;
+            ImageManager.releaseImage(registry, key);
+        }
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright 2004-2008 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.eclipse.common.util;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.ImageData;
+
+/**
+ * イメージファイルのヘッダから読み取った、イメージの大きさと深さを表すクラスです。<br />
+ * <p>
+ * {@link #read(InputStream)} メソッドは、GIF・PNG・BMP・JPEG 形式のファイルのヘッダのみを読み取り、画素をデコードせずに幅・高さ・深さを求めます。<br />
+ * 深さは、ファイルに記録されている 1 画素あたりのビット数です。デコード後の {@link ImageData#depth} とは異なる場合があります。
+ * </p>
+ * 
+ * @author y-komori
+ */
+public class ImageInfo {
+    private static final int PNG_IHDR = 0x49484452;
+
+    private final int type;
+
+    private final int width;
+
+    private final int height;
+
+    private final int depth;
+
+    /**
+     * {@link ImageInfo} を構築します。<br />
+     * 
+     * @param type
+     *        イメージの形式。{@link SWT#IMAGE_GIF} などの定数です。
+     * @param width
+     *        幅
+     * @param height
+     *        高さ
+     * @param depth
+     *        1 画素あたりのビット数
+     */
+    public ImageInfo(final int type, final int width, final int height, final int depth) {
+        this.type = type;
+        this.width = width;
+        this.height = height;
+        this.depth = depth;
+    }
+
+    /**
+     * デコード済みの {@link ImageData} から {@link ImageInfo} を作成します。<br />
+     * 
+     * @param imageData
+     *        {@link ImageData} オブジェクト
+     * @return {@link ImageInfo} オブジェクト
+     */
+    public static ImageInfo valueOf(final ImageData imageData) {
+        return new ImageInfo(imageData.type, imageData.width, imageData.height, imageData.depth);
+    }
+
+    /**
+     * 入力ストリームからイメージファイルのヘッダを読み取ります。<br />
+     * <p>
+     * ヘッダを読み取った時点で読み込みをやめます。入力ストリームはクローズしません。
+     * </p>
+     * 
+     * @param is
+     *        入力ストリーム
+     * @return {@link ImageInfo} オブジェクト。対応していない形式か、ヘッダが壊れている場合は <code>null</code>。
+     * @throws IOException
+     *         入力ストリームの読み込みに失敗した場合
+     */
+    public static ImageInfo read(final InputStream is) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(is, 64));
+        try {
+            int signature = in.readUnsignedShort();
+            switch (signature) {
+            case 0x4749: // "GI"
+                return readGIF(in);
+            case 0x8950:
+                return readPNG(in);
+            case 0x424D: // "BM"
+                return readBMP(in);
+            case 0xFFD8:
+                return readJPEG(in);
+            default:
+                return null;
+            }
+        } catch (EOFException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * イメージの形式を返します。<br />
+     * 
+     * @return {@link SWT#IMAGE_GIF}、{@link SWT#IMAGE_PNG}、{@link SWT#IMAGE_BMP}、{@link SWT#IMAGE_JPEG}
+     *         などの定数
+     */
+    public int getType() {
+        return type;
+    }
+
+    /**
+     * 幅を返します。<br />
+     * 
+     * @return 幅
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * 高さを返します。<br />
+     * 
+     * @return 高さ
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * 1 画素あたりのビット数を返します。<br />
+     * 
+     * @return 1 画素あたりのビット数
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    @Override
+    public String toString() {
+        return "ImageInfo(type=" + type + ", " + width + "x" + height + ", depth=" + depth + ")";
+    }
+
+    private static ImageInfo readGIF(final DataInputStream in) throws IOException {
+        // "GIF87a" / "GIF89a" に続いて、論理画面の幅・高さ(リトルエンディアン)とフラグが並ぶ
+        if (in.readUnsignedByte() != 'F' || in.readUnsignedByte() != '8') {
+            return null;
+        }
+        skipFully(in, 2);
+        int width = readShortLE(in);
+        int height = readShortLE(in);
+        int flags = in.readUnsignedByte();
+        int depth = (flags & 0x80) != 0 ? (flags & 0x07) + 1 : 8;
+        return new ImageInfo(SWT.IMAGE_GIF, width, height, depth);
+    }
+
+    private static ImageInfo readPNG(final DataInputStream in) throws IOException {
+        // シグネチャ(0x89 "PNG" CR LF 0x1A LF)の残りに続く最初のチャンクは IHDR
+        if (in.readUnsignedShort() != 0x4E47) { // "NG"
+            return null;
+        }
+        skipFully(in, 8);
+        if (in.readInt() != PNG_IHDR) {
+            return null;
+        }
+        int width = in.readInt();
+        int height = in.readInt();
+        int bitDepth = in.readUnsignedByte();
+        int colorType = in.readUnsignedByte();
+        int channels;
+        switch (colorType) {
+        case 2: // RGB
+            channels = 3;
+            break;
+        case 4: // グレースケール + アルファ
+            channels = 2;
+            break;
+        case 6: // RGBA
+            channels = 4;
+            break;
+        default: // グレースケール、インデックスカラー
+            channels = 1;
+        }
+        return new ImageInfo(SWT.IMAGE_PNG, width, height, bitDepth * channels);
+    }
+
+    private static ImageInfo readBMP(final DataInputStream in) throws IOException {
+        skipFully(in, 12);
+        int headerSize = readIntLE(in);
+        if (headerSize == 12) {
+            // OS/2 形式
+            int width = readShortLE(in);
+            int height = readShortLE(in);
+            skipFully(in, 2);
+            return new ImageInfo(SWT.IMAGE_BMP, width, height, readShortLE(in));
+        }
+        int width = readIntLE(in);
+        // 高さが負の場合は上から下へ格納されている
+        int height = Math.abs(readIntLE(in));
+        skipFully(in, 2);
+        return new ImageInfo(SWT.IMAGE_BMP, width, height, readShortLE(in));
+    }
+
+    private static ImageInfo readJPEG(final DataInputStream in) throws IOException {
+        while (true) {
+            int marker = in.readUnsignedByte();
+            if (marker != 0xFF) {
+                return null;
+            }
+            while (marker == 0xFF) {
+                marker = in.readUnsignedByte();
+            }
+            if (marker == 0x01 || (marker >= 0xD0 && marker <= 0xD7)) {
+                // 長さを持たないマーカ
+                continue;
+            }
+            if (marker == 0xD9 || marker == 0xDA) {
+                // SOF より前に EOI / SOS に達した
+                return null;
+            }
+            int length = in.readUnsignedShort();
+            if (marker >= 0xC0 && marker <= 0xCF && marker != 0xC4 && marker != 0xC8
+                    && marker != 0xCC) {
+                int precision = in.readUnsignedByte();
+                int height = in.readUnsignedShort();
+                int width = in.readUnsignedShort();
+                int components = in.readUnsignedByte();
+                return new ImageInfo(SWT.IMAGE_JPEG, width, height, precision * components);
+            }
+            skipFully(in, length - 2);
+        }
+    }
+
+    private static int readShortLE(final DataInputStream in) throws IOException {
+        int b0 = in.readUnsignedByte();
+        int b1 = in.readUnsignedByte();
+        return b0 | (b1 << 8);
+    }
+
+    private static int readIntLE(final DataInputStream in) throws IOException {
+        int low = readShortLE(in);
+        int high = readShortLE(in);
+        return low | (high << 16);
+    }
+
+    private static void skipFully(final DataInputStream in, final int length) throws IOException {
+        int remaining = length;
+        while (remaining > 0) {
+            int skipped = in.skipBytes(remaining);
+            if (skipped == 0) {
+                // 読み飛ばせない場合は 1 バイト読み込む。終端に達していれば EOFException となる
+                in.readUnsignedByte();
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+    }
+}
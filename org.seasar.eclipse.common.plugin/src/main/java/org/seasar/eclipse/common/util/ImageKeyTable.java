@@ -0,0 +1,101 @@
+/*
+ * Copyright 2004-2008 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.eclipse.common.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * イメージのキーに、<code>0</code> から始まる連続した整数の ID を割り当てるクラスです。<br />
+ * <p>
+ * 一度割り当てた ID は変わりません。本クラスはスレッドセーフです。ID からキーへの変換はロックを伴いません。
+ * </p>
+ * 
+ * @author y-komori
+ */
+class ImageKeyTable {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+
+    private volatile String[] keys = new String[INITIAL_CAPACITY];
+
+    private int size;
+
+    /**
+     * キーに対応する ID を返します。ID が割り当てられていなければ、新たに割り当てます。<br />
+     * 
+     * @param key
+     *        キー
+     * @return ID
+     */
+    int intern(final String key) {
+        Integer id = ids.get(key);
+        if (id != null) {
+            return id.intValue();
+        }
+        synchronized (this) {
+            id = ids.get(key);
+            if (id != null) {
+                return id.intValue();
+            }
+            String[] current = keys;
+            if (size == current.length) {
+                String[] grown = new String[current.length * 2];
+                System.arraycopy(current, 0, grown, 0, size);
+                keys = grown;
+                current = grown;
+            }
+            current[size] = key;
+            // 要素を書き込んでから公開することで、ID を得たスレッドからは必ずキーが参照できる
+            ids.put(key, new Integer(size));
+            return size++;
+        }
+    }
+
+    /**
+     * キーに割り当てられた ID を返します。<br />
+     * 
+     * @param key
+     *        キー
+     * @return ID。割り当てられていない場合は <code>-1</code>。
+     */
+    int getId(final String key) {
+        Integer id = ids.get(key);
+        return id != null ? id.intValue() : -1;
+    }
+
+    /**
+     * ID に対応するキーを返します。<br />
+     * 
+     * @param id
+     *        ID
+     * @return キー。割り当てられていない場合は <code>null</code>。
+     */
+    String getKey(final int id) {
+        String[] current = keys;
+        return id >= 0 && id < current.length ? current[id] : null;
+    }
+
+    /**
+     * 割り当てた ID の数を返します。<br />
+     * 
+     * @return ID の数
+     */
+    synchronized int size() {
+        return size;
+    }
+}
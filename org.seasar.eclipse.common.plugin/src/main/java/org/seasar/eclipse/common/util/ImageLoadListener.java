@@ -0,0 +1,50 @@
+/*
+ * Copyright 2004-2008 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.eclipse.common.util;
+
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.widgets.Display;
+
+/**
+ * {@link ImageManager} による非同期ロードの結果を受け取るためのインタフェースです。<br />
+ * <p>
+ * 各メソッドは、{@link Display} スレッド上で呼び出されます。
+ * </p>
+ * 
+ * @author y-komori
+ */
+public interface ImageLoadListener {
+
+    /**
+     * イメージの登録が完了したときに呼び出されます。<br />
+     * 
+     * @param key
+     *        キー
+     * @param image
+     *        登録された {@link Image} オブジェクト
+     */
+    void imageLoaded(String key, Image image);
+
+    /**
+     * イメージのロードに失敗したときに呼び出されます。<br />
+     * 
+     * @param key
+     *        キー
+     * @param cause
+     *        失敗の原因となった例外
+     */
+    void imageLoadFailed(String key, Throwable cause);
+}
@@ -15,24 +15,50 @@
  */
 package org.seasar.eclipse.common.util;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.Plugin;
 import org.eclipse.jface.resource.ImageDescriptor;
 import org.eclipse.jface.resource.ImageRegistry;
 import org.eclipse.swt.graphics.Image;
 import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.ImageLoader;
 import org.eclipse.swt.widgets.Display;
+import org.seasar.eclipse.common.util.ImageStatistics.SourceType;
 import org.seasar.framework.beans.BeanDesc;
 import org.seasar.framework.beans.factory.BeanDescFactory;
+import org.seasar.framework.exception.IORuntimeException;
 import org.seasar.framework.exception.ResourceNotFoundRuntimeException;
 import org.seasar.framework.log.Logger;
 import org.seasar.framework.util.FieldUtil;
+import org.seasar.framework.util.InputStreamUtil;
 import org.seasar.framework.util.ResourceUtil;
 import org.seasar.framework.util.URLUtil;
 
@@ -44,49 +70,355 @@ import org.seasar.framework.util.URLUtil;
  * {@code "org/seasar/uruma/images/xxxImage.png"} と {@code
  * "/org/seasar/uruma/images/xxxImage.png"} は同じものとして扱います。
  * </p>
+ * <p>
+ * {@code putImageAsync} / {@code loadImagesAsync} メソッドを使用すると、イメージのデコードをバックグラウンドのワーカスレッドで行い、
+ * {@link Image} オブジェクトの生成のみを {@link Display} スレッドで行います。<br />
+ * </p>
+ * <p>
+ * {@link #setCacheLimit(int, long)} メソッドで上限を設定すると、生成済みの {@link Image}
+ * オブジェクトの数とピクセルバイト数が上限を超えた場合に、最も長く使用されていないものから破棄します。<br />
+ * 破棄されたイメージは {@link ImageDescriptor} として登録されたまま残り、次に {@link #getImage(String)}
+ * メソッドが呼び出されたときに再生成されます。
+ * </p>
+ * <p>
+ * {@link #acquireImage(String)} メソッドは、参照カウント付きの {@link ImageHandle} を返します。<br />
+ * すべての {@link ImageHandle} が解放されると {@link Image} オブジェクトは直ちに破棄されますが(同じ {@link Image}
+ * オブジェクトを {@link #getImage(String)} メソッドなどで返していた場合を除きます)、
+ * {@link ImageDescriptor} は登録されたまま残ります。
+ * </p>
+ * <p>
+ * {@link #setImageDataCache(ImageDataCache)} メソッドでディスクキャッシュを設定すると、URL
+ * で示されるイメージはデコード済みの状態でキャッシュされ、次回以降の起動ではデコードを省略します。
+ * </p>
+ * <p>
+ * {@link ImageDescriptor} の登録と検索({@code putImageDescriptor}、{@code loadImages}、
+ * {@link #getImageDescriptor(String)} など)は、任意のスレッドから呼び出すことができます。<br />
+ * {@link ImageDescriptor} はスレッドセーフなマップで管理されており、検索はロックを伴いません。<br />
+ * 一方、{@link Image} オブジェクトを返すメソッド({@link #getImage(String)} など)は、{@link Display}
+ * スレッドから呼び出してください。任意のスレッドから登録された {@link ImageDescriptor} は、{@link Display}
+ * スレッドで最初に {@link Image} オブジェクトが要求されたときに {@link ImageRegistry} へ反映されます。
+ * </p>
+ * <p>
+ * {@link #getStatistics()} メソッドで、ヒット率やデコード時間の分布、生成済みの {@link Image}
+ * オブジェクトの数などの統計情報を参照できます。{@link #startStatisticsDump(Plugin, long)}
+ * メソッドを呼び出すと、統計情報を定期的にプラグインのログへ出力します。
+ * </p>
+ * <p>
+ * 登録されたイメージは {@link Display} ごとに独立して管理されます。{@link #init(Display)} メソッドを呼び出した
+ * {@link Display} ごとにレジストリが作成され、{@link Display} が破棄されると自動的に破棄されます。<br />
+ * 各メソッドは、呼び出したスレッドの {@link Display} のレジストリを使用します。{@link Display}
+ * スレッド以外から呼び出した場合は、レジストリが一つだけ存在すればそれを使用します。
+ * 複数の {@link Display} のレジストリが存在する場合、どの {@link Display} へ登録すべきか判断できないため、
+ * {@link IllegalStateException} をスローします。その場合は {@link Display#syncExec(Runnable)}
+ * などで、対象の {@link Display} スレッドから呼び出してください。
+ * </p>
+ * <p>
+ * 高解像度の画面では、{@link Display} の解像度から求めた倍率に合わせたイメージを生成します。<br />
+ * パスや URL で登録したイメージに {@code name@2x.png} 形式の高解像度版が存在する場合はそれを使用し、存在しない場合は元のイメージを拡大します。
+ * 拡大した結果はキャッシュされるため、同じ倍率で拡大処理を繰り返すことはありません。詳細は {@link ZoomedImageDescriptor}
+ * の説明をご覧ください。
+ * </p>
+ * <p>
+ * {@link #getOverlayImage(String, ImageOverlay[])} メソッドは、ベースとなるイメージにオーバーレイイメージを重ねた {@link Image}
+ * オブジェクトを返します。合成したイメージは組み合わせごとに一度だけ描画されてキャッシュされ、元のイメージが置き換えられたときに破棄されます。
+ * {@link #getImage(String, ImageVariant)} メソッドが返す、無効状態やグレースケールなどの変種も同様です。
+ * </p>
+ * <p>
+ * アニメーション GIF は {@link #loadAnimatedImage(String)} メソッドで {@link AnimatedImage} として読み込みます。
+ * 再生中のすべてのアニメーションは、{@link Display} ごとに一つの共有タイマで駆動されます。
+ * </p>
+ * <p>
+ * プレビューなどで表示する大きなイメージは、{@link #loadTiledImage(String)} メソッドで {@link TiledImage}
+ * として読み込むと、イメージ全体をネイティブイメージにせず、表示する範囲のタイルだけを作成して描画できます。
+ * </p>
+ * <p>
+ * {@link #putImage(String, IFile)} メソッドでワークスペース上のファイルから登録したイメージは、ファイルの変更を監視します。
+ * ファイルが変更されると、そのファイルから読み込んだイメージだけをワーカスレッドでデコードし直し、{@link Display}
+ * スレッド上でまとめて置き換えます。デコードに失敗した場合は、変更前のイメージを保持します。
+ * </p>
+ * <p>
+ * {@link #getImageInfo(String)} メソッドは、イメージファイルのヘッダのみを読み取って幅・高さ・深さを返します。
+ * {@link Image} オブジェクトを生成せずにダイアログなどのレイアウトを決める場合に使用してください。
+ * </p>
+ * <p>
+ * {@link #setUsageProfile(ImageUsageProfile)} メソッドで {@link ImageUsageProfile} を設定すると、セッション中に使用されたキーを記録して終了時に保存し、
+ * 次回の起動時には、前回使用されたイメージを優先度の低いバックグラウンドのジョブで事前にデコードします。
+ * </p>
+ * <p>
+ * {@link #internKey(String)} メソッドでキーに対応する整数の ID を取得しておくと、{@link #getImage(int)}
+ * メソッドで、キーの文字列によるハッシュ検索を行わずに配列の添字でイメージを参照できます。
+ * </p>
  * 
  * @author y-komori
  * @author $Author$
  * @version $Revision$ $Date$
  */
 public class ImageManager {
-    private static ImageRegistry imageRegistry = new ImageRegistry();
+    /**
+     * 非同期ロードで使用するワーカスレッドの最大数です。<br />
+     */
+    protected static final int LOADER_POOL_SIZE = Math.max(1, Math.min(4, Runtime.getRuntime()
+            .availableProcessors()));
+
+    /**
+     * {@link Display} と、{@link Display} ごとのレジストリのマップです。
+     */
+    private static final ConcurrentMap<Display, DisplayImageRegistry> registries = new ConcurrentHashMap<Display, DisplayImageRegistry>();
+
+    private static final ThreadLocal<DisplayImageRegistry> currentRegistry = new ThreadLocal<DisplayImageRegistry>();
+
+    private static final ImageKeyTable keyTable = new ImageKeyTable();
+
+    private static final ConcurrentMap<String, ImageInfo> imageInfos = new ConcurrentHashMap<String, ImageInfo>();
+
+    private static ExecutorService loaderPool;
+
+    private static volatile ImageDataCache imageDataCache;
+
+    private static volatile boolean paletteCompaction;
+
+    private static volatile ImageUsageProfile usageProfile;
+
+    private static ScheduledExecutorService statisticsDumper;
 
     protected static final Logger logger = Logger.getLogger(ImageManager.class);
 
+    static {
+        Display current = Display.getCurrent();
+        if (current != null) {
+            init(current);
+        }
+    }
+
     private ImageManager() {
     }
 
     /**
      * {@link ImageManager} を初期化します。<br />
+     * <p>
+     * 指定された {@link Display} のためのレジストリを作成します。既にレジストリが存在する場合、破棄して作り直します。<br />
+     * 作成したレジストリは、{@link Display} が破棄されると自動的に破棄されます。<br />
+     * 本メソッドは {@code display} のスレッドから呼び出してください。
+     * </p>
      * 
      * @param display
      *        本クラスを使用する前に呼び出してください。
      */
     public static void init(final Display display) {
-        imageRegistry = new ImageRegistry(display);
+        final DisplayImageRegistry registry = new DisplayImageRegistry(display);
+        DisplayImageRegistry previous = registries.put(display, registry);
+        if (previous != null) {
+            dispose(previous);
+        }
+        display.disposeExec(new Runnable() {
+            public void run() {
+                dispose(registry);
+            }
+        });
     }
 
     /**
      * 指定されたキーで登録された画像の {@link Image} オブジェクトを返します。<br />
+     * <p>
+     * 本メソッドは {@link Display} スレッドから呼び出してください。
+     * </p>
      * 
      * @param key
      *        キー
      * @return 見つかった {@link Image} オブジェクト。見つからない場合は <code>null</code>。
      */
     public static Image getImage(final String key) {
-        return imageRegistry.get(key);
+        DisplayImageRegistry registry = getRegistry();
+        Image image = lookupImage(registry, key);
+        if (image == null) {
+            return null;
+        }
+        registry.exposed.add(key);
+        if (registry.imageCache.isBounded()) {
+            registry.imageCache.touch(key, image);
+            evictImages(registry, key);
+        }
+        return image;
+    }
+
+    /**
+     * 指定された ID のキーで登録された画像の {@link Image} オブジェクトを返します。<br />
+     * <p>
+     * ID は {@link #internKey(String)} メソッドで取得してください。一度取得した {@link Image}
+     * オブジェクトは ID を添字とした配列で保持されるため、二回目以降はキーの文字列によるハッシュ検索を行いません。<br />
+     * ただし、{@link #setCacheLimit(int, long)} メソッドでキャッシュの上限が設定されている場合は、
+     * 使用履歴を更新するため {@link #getImage(String)} メソッドと同じ検索を行います。<br />
+     * 本メソッドは {@link Display} スレッドから呼び出してください。
+     * </p>
+     * 
+     * @param id
+     *        ID
+     * @return 見つかった {@link Image} オブジェクト。見つからない場合は <code>null</code>。
+     */
+    public static Image getImage(final int id) {
+        DisplayImageRegistry registry = getRegistry();
+        if (!registry.imageCache.isBounded()) {
+            Image image = registry.getImageById(id);
+            if (image != null) {
+                registry.statistics.recordLookupHit();
+                return image;
+            }
+        }
+        String key = keyTable.getKey(id);
+        if (key == null) {
+            return null;
+        }
+        int version = registry.sourceVersion.get();
+        Image image = getImage(key);
+        if (image != null) {
+            registry.putImageById(id, image, version);
+        }
+        return image;
+    }
+
+    /**
+     * キーに対応する ID を返します。<br />
+     * <p>
+     * ID は <code>0</code> から始まる連続した整数で、キーごとに一度だけ割り当てられ、以降は変わりません。
+     * キーがまだ登録されていなくても ID を取得できます。また、ID はすべての {@link Display} で共通です。<br />
+     * ラベルプロバイダなど、頻繁にイメージを参照する処理では、あらかじめ取得した ID を使用して {@link #getImage(int)}
+     * メソッドを呼び出してください。<br />
+     * 本メソッドは任意のスレッドから呼び出すことができます。
+     * </p>
+     * 
+     * @param key
+     *        キー
+     * @return ID
+     */
+    public static int internKey(final String key) {
+        if (key == null) {
+            throw new NullPointerException("key");
+        }
+        return keyTable.intern(key);
+    }
+
+    /**
+     * ID に対応するキーを返します。<br />
+     * 
+     * @param id
+     *        ID
+     * @return キー。{@link #internKey(String)} メソッドで割り当てられていない ID の場合は <code>null</code>。
+     */
+    public static String getKey(final int id) {
+        return keyTable.getKey(id);
+    }
+
+    /**
+     * 指定されたキーで登録された画像を参照する {@link ImageHandle} オブジェクトを返します。<br />
+     * <p>
+     * 本メソッドは、キーの参照カウントを増やします。{@link Image} オブジェクトが不要になったら、
+     * 必ず {@link ImageHandle#release()} メソッドを呼び出してください。<br />
+     * 参照カウントが <code>0</code> になると、{@link Image} オブジェクトは破棄されます。ただし、
+     * {@link #pinImage(String)} メソッドでピン留めされたキーと、同じ {@link Image} オブジェクトを
+     * {@link #getImage(String)} メソッドや {@code putImage} メソッドなどで {@link ImageHandle}
+     * 以外の呼び出し元へ返したキーは、それらの呼び出し元が使用している可能性があるため破棄されません。<br />
+     * 破棄された後も {@link ImageDescriptor} は登録されたまま残るため、再び本メソッドや
+     * {@link #getImage(String)} メソッドを呼び出すと、{@link Image} オブジェクトが再生成されます。
+     * </p>
+     * 
+     * @param key
+     *        キー
+     * @return {@link ImageHandle} オブジェクト。見つからない場合は <code>null</code>。
+     */
+    public static ImageHandle acquireImage(final String key) {
+        DisplayImageRegistry registry = getRegistry();
+        Image image = lookupImage(registry, key);
+        if (image == null) {
+            return null;
+        }
+        registry.imageCache.retain(key);
+        if (registry.imageCache.isBounded()) {
+            registry.imageCache.touch(key, image);
+            evictImages(registry, key);
+        }
+        return new ImageHandle(registry, key, image);
+    }
+
+    /**
+     * 指定されたキーで登録された画像に、オーバーレイイメージを重ねて描画した {@link Image} オブジェクトを返します。<br />
+     * <p>
+     * 合成したイメージは、ベースとなるイメージのキーとオーバーレイイメージのキーおよび描画位置の組み合わせごとに一度だけ描画され、
+     * 以降の呼び出しでは同じ {@link Image} オブジェクトを返します。<br />
+     * ベースとなるイメージやオーバーレイイメージが別のイメージで置き換えられると、それらを元にした合成イメージは破棄されます。<br />
+     * 登録されていないオーバーレイイメージのキーは無視します。本メソッドは {@link Display} スレッドから呼び出してください。
+     * </p>
+     * 
+     * @param baseKey
+     *        ベースとなるイメージのキー
+     * @param overlays
+     *        オーバーレイイメージ
+     * @return 合成した {@link Image} オブジェクト。ベースとなるイメージが見つからない場合は <code>null</code>。
+     */
+    public static Image getOverlayImage(final String baseKey, final ImageOverlay... overlays) {
+        DisplayImageRegistry registry = getRegistry();
+        ImageDescriptor base = registry.sources.get(baseKey);
+        if (base == null) {
+            return null;
+        }
+        StringBuilder key = new StringBuilder(baseKey).append('<');
+        ImageDescriptor[] descriptors = new ImageDescriptor[overlays.length];
+        ImageOverlay.Position[] positions = new ImageOverlay.Position[overlays.length];
+        for (int i = 0; i < overlays.length; i++) {
+            if (i > 0) {
+                key.append(',');
+            }
+            key.append(overlays[i]);
+            descriptors[i] = registry.sources.get(overlays[i].getKey());
+            positions[i] = overlays[i].getPosition();
+        }
+        String compositeKey = key.append('>').toString();
+
+        String[] keys = new String[overlays.length + 1];
+        keys[0] = baseKey;
+        for (int i = 0; i < overlays.length; i++) {
+            keys[i + 1] = overlays[i].getKey();
+        }
+        return getDerivedImage(registry, compositeKey, new OverlayImageDescriptor(base,
+                descriptors, positions), keys);
+    }
+
+    /**
+     * 指定されたキーで登録された画像の、変種の {@link Image} オブジェクトを返します。<br />
+     * <p>
+     * 変種はキーと {@link ImageVariant} の組み合わせごとに一度だけ作成され、以降の呼び出しでは同じ {@link Image}
+     * オブジェクトを返します。元のイメージが別のイメージで置き換えられると、変種も破棄されます。<br />
+     * 本メソッドは {@link Display} スレッドから呼び出してください。
+     * </p>
+     * 
+     * @param key
+     *        キー
+     * @param variant
+     *        変種。{@link ImageVariant#DISABLED}、{@link ImageVariant#GRAY}、
+     *        {@link ImageVariant#tinted(org.eclipse.swt.graphics.RGB)} など。
+     * @return 変種の {@link Image} オブジェクト。見つからない場合は <code>null</code>。
+     */
+    public static Image getImage(final String key, final ImageVariant variant) {
+        DisplayImageRegistry registry = getRegistry();
+        ImageDescriptor base = registry.sources.get(key);
+        if (base == null) {
+            return null;
+        }
+        return getDerivedImage(registry, key + "#" + variant, new VariantImageDescriptor(base,
+                variant), key);
     }
 
     /**
      * 指定されたキーで登録された画像の {@link ImageDescriptor} オブジェクトを返します。<br />
+     * <p>
+     * 本メソッドは任意のスレッドから呼び出すことができます。
+     * </p>
      * 
      * @param key
      *        キー
      * @return 見つかった {@link ImageDescriptor} オブジェクト。見つからない場合は <code>null</code>。
      */
     public static ImageDescriptor getImageDescriptor(final String key) {
-        return imageRegistry.getDescriptor(key);
+        return getRegistry().sources.get(key);
     }
 
     /**
@@ -117,7 +449,10 @@ public class ImageManager {
     public static Image loadImage(final String path) {
         Image image = getImage(path);
         if (image == null) {
+            getRegistry().statistics.recordLoadMiss();
             image = putImage(path, path);
+        } else {
+            getRegistry().statistics.recordLoadHit();
         }
         return image;
     }
@@ -140,7 +475,36 @@ public class ImageManager {
     public static Image loadImage(final String key, final URL url) {
         Image image = getImage(key);
         if (image == null) {
+            getRegistry().statistics.recordLoadMiss();
             image = putImage(key, url);
+        } else {
+            getRegistry().statistics.recordLoadHit();
+        }
+        return image;
+    }
+
+    /**
+     * {@code file} で指定された {@link Image} オブジェクトを検索し、存在しなければワークスペース上のファイルからロードします。<br />
+     * <p>
+     * ワークスペース上のファイルから読み込むという点を除き、本メソッドは {@link #loadImage(String, URL)} メソッドと同じです。<br />
+     * ロードしたイメージは、{@link #putImage(String, IFile)} メソッドで登録した場合と同様にファイルの変更が監視されます。
+     * </p>
+     * 
+     * @param key
+     *        キー
+     * @param file
+     *        イメージファイル
+     * @return 見つかった {@link Image} オブジェクト
+     * @throws ResourceNotFoundRuntimeException
+     *         ファイルがローカルのファイルシステム上に存在しない場合
+     */
+    public static Image loadImage(final String key, final IFile file) {
+        Image image = getImage(key);
+        if (image == null) {
+            getRegistry().statistics.recordLoadMiss();
+            image = putImage(key, file);
+        } else {
+            getRegistry().statistics.recordLoadHit();
         }
         return image;
     }
@@ -184,8 +548,8 @@ public class ImageManager {
      *         指定されたリソースが見つからなかった場合
      */
     public static Image putImage(final String key, final String path) {
-        InputStream is = ResourceUtil.getResourceAsStream(normalizePath(path));
-        return putImage(key, is);
+        URL url = ResourceUtil.getResource(normalizePath(path));
+        return putImage(key, url, SourceType.PATH);
     }
 
     /**
@@ -204,17 +568,44 @@ public class ImageManager {
      *         指定されたリソースが見つからなかった場合
      */
     public static Image putImage(final String key, final URL url) {
-        InputStream is = URLUtil.openStream(url);
-        return putImage(key, is);
+        return putImage(key, url, SourceType.URL);
     }
 
-    protected static Image putImage(final String key, final InputStream is) {
-        checkKey(key);
-        Image image = new Image(Display.getCurrent(), is);
-        imageRegistry.put(key, image);
+    /**
+     * ワークスペース上のファイルからイメージを読み込んで登録し、ファイルの変更を監視します。<br />
+     * <p>
+     * ファイルの内容が変更されるか、ファイルが作成し直されると、イメージをワーカスレッド上でデコードし直し、
+     * {@link Display} スレッド上で {@link Image} オブジェクトを置き換えます。置き換えの対象は、そのファイルから読み込んだキーのみです。<br />
+     * 同じキーで別のイメージを登録した時点で、ファイルの監視は終了します。<br />
+     * 既に同じキーで {@link Image} オブジェクトが登録されている場合、上書きします。<br />
+     * 本メソッドは {@link Display} スレッドから呼び出してください。
+     * </p>
+     * 
+     * @param key
+     *        キー
+     * @param file
+     *        イメージファイル
+     * @return 登録した {@link Image} オブジェクト
+     * @throws ResourceNotFoundRuntimeException
+     *         ファイルがローカルのファイルシステム上に存在しない場合
+     */
+    public static Image putImage(final String key, final IFile file) {
+        // org.eclipse.core.resources のクラスを本クラスから直接参照しないよう、WorkspaceImageTracker へ委譲する
+        return WorkspaceImageTracker.putImage(getRegistry(), key, file);
+    }
+
+    private static Image putImage(final String key, final URL url, final SourceType type) {
+        DisplayImageRegistry registry = getRegistry();
+        long start = System.nanoTime();
+        Image image = putImage(registry, key, decodeImage(url), createImageDescriptor(url), url);
+        registry.statistics.recordDecode(type, System.nanoTime() - start);
         return image;
     }
 
+    protected static Image putImage(final String key, final InputStream is) {
+        return putImage(key, decodeImage(is));
+    }
+
     /**
      * {@link ImageData} から生成した {@link Image} オブジェクトを登録します。<br />
      * <p>
@@ -228,12 +619,162 @@ public class ImageManager {
      * @return 登録した {@link Image} オブジェクト
      */
     public static Image putImage(final String key, final ImageData imageData) {
-        checkKey(key);
-        Image image = new Image(Display.getCurrent(), imageData);
-        imageRegistry.put(key, image);
+        DisplayImageRegistry registry = getRegistry();
+        long start = System.nanoTime();
+        ImageData compacted = compactPalette(registry, imageData);
+        Image image = putImage(registry, key, compacted, ImageDescriptor
+                .createFromImageData(compacted), null);
+        registry.statistics.recordDecode(SourceType.IMAGE_DATA, System.nanoTime() - start);
+        return image;
+    }
+
+    /**
+     * {@link ImageData} から生成した {@link Image} オブジェクトを、再生成用の {@link ImageDescriptor}
+     * とともに登録します。<br />
+     * 
+     * @param key
+     *        キー
+     * @param imageData
+     *        {@link ImageData} オブジェクト
+     * @param source
+     *        イメージが破棄された後に再生成するための {@link ImageDescriptor} オブジェクト
+     * @return 登録した {@link Image} オブジェクト
+     */
+    protected static Image putImage(final String key, final ImageData imageData,
+            final ImageDescriptor source) {
+        return putImage(getRegistry(), key, imageData, source, null);
+    }
+
+    static Image putImage(final DisplayImageRegistry registry, final String key,
+            final ImageData imageData, final ImageDescriptor source, final URL url) {
+        checkKey(registry, key);
+        setSource(registry, key, source, url);
+        ImageDescriptor descriptor = bind(registry, key, source);
+        ImageData zoomed = imageData;
+        if (descriptor instanceof ZoomedImageDescriptor) {
+            // デコード済みの imageData を拡大し、元のイメージを再度デコードしない
+            zoomed = ((ZoomedImageDescriptor) descriptor).getImageData(imageData);
+        }
+        Image image = new Image(registry.display, zoomed);
+        registry.imageRegistry.put(key, image);
+        registry.registered.put(key, source);
+        registry.exposed.add(key);
+        registry.statistics.track(key, image);
+        ResourceLeakDetector.track(image);
+        if (registry.imageCache.isBounded()) {
+            registry.imageCache.touch(key, image);
+            evictImages(registry, key);
+        }
         return image;
     }
 
+    /**
+     * {@link Image} オブジェクトを非同期に登録します。<br />
+     * <p>
+     * {@code path} で示されるリソースをワーカスレッド上で {@link ImageData} へデコードし、{@link Image}
+     * オブジェクトの生成とレジストリへの登録のみを {@link Display} スレッド上で行います。<br />
+     * 登録が完了すると、{@link Display} スレッド上で {@code listener} へ通知します。<br />
+     * 既に同じキーで {@link Image} オブジェクトが登録されている場合、上書きします。</br>
+     * </p>
+     * 
+     * @param key
+     *        キー
+     * @param path
+     *        イメージのパス
+     * @param listener
+     *        ロード結果の通知先。<code>null</code> でも構いません。
+     * @return デコード結果を表す {@link Future} オブジェクト
+     * @throws ResourceNotFoundRuntimeException
+     *         指定されたリソースが見つからなかった場合
+     */
+    public static Future<ImageData> putImageAsync(final String key, final String path,
+            final ImageLoadListener listener) {
+        URL url = ResourceUtil.getResource(normalizePath(path));
+        return putImageAsync(key, url, listener, SourceType.PATH);
+    }
+
+    /**
+     * {@link Image} オブジェクトを非同期に登録します。<br />
+     * <p>
+     * {@code url} で示されるリソースを読み込むという点を除き、本メソッドは
+     * {@link #putImageAsync(String, String, ImageLoadListener)} メソッドと同じです。<br />
+     * </p>
+     * 
+     * @param key
+     *        キー
+     * @param url
+     *        イメージの URL
+     * @param listener
+     *        ロード結果の通知先。<code>null</code> でも構いません。
+     * @return デコード結果を表す {@link Future} オブジェクト
+     */
+    public static Future<ImageData> putImageAsync(final String key, final URL url,
+            final ImageLoadListener listener) {
+        return putImageAsync(key, url, listener, SourceType.URL);
+    }
+
+    private static Future<ImageData> putImageAsync(final String key, final URL url,
+            final ImageLoadListener listener, final SourceType type) {
+        final DisplayImageRegistry target = getRegistry();
+        return getLoaderPool().submit(new Callable<ImageData>() {
+            public ImageData call() throws Exception {
+                try {
+                    long start = System.nanoTime();
+                    ImageData imageData = decodeImage(url);
+                    long decodeNanos = System.nanoTime() - start;
+                    registerAsync(target, key, imageData, createImageDescriptor(url), url,
+                            listener, type, decodeNanos);
+                    return imageData;
+                } catch (RuntimeException ex) {
+                    notifyFailure(target, key, ex, listener);
+                    throw ex;
+                }
+            }
+        });
+    }
+
+    /**
+     * {@link ResourceBundle} からイメージを読み込み、非同期に一括登録します。<br />
+     * <p>
+     * 「key=path」の形式で記述されたプロパティファイルを元にした {@link ResourceBundle}
+     * に含まれるすべてのイメージを、最大 {@link #LOADER_POOL_SIZE} 個のワーカスレッドで並行してデコードします。<br />
+     * 本メソッドでは {@link ImageDescriptor} ではなく、デコード済みの {@link Image} オブジェクトを登録します。<br />
+     * 各イメージの登録が完了するたびに、{@link Display} スレッド上で {@code listener} へ通知します。
+     * </p>
+     * 
+     * @param bundle
+     *        リソースバンドルの参照
+     * @param listener
+     *        ロード結果の通知先。<code>null</code> でも構いません。
+     * @throws ResourceNotFoundRuntimeException
+     *         指定されたリソースが見つからなかった場合
+     */
+    public static void loadImagesAsync(final ResourceBundle bundle,
+            final ImageLoadListener listener) {
+        Enumeration keys = bundle.getKeys();
+        while (keys.hasMoreElements()) {
+            String key = (String) keys.nextElement();
+            String path = bundle.getString(key);
+            putImageAsync(key, path, listener);
+        }
+    }
+
+    /**
+     * {@link ResourceBundle} からイメージを読み込み、非同期に一括登録します。<br />
+     * <p>
+     * 詳細は {@link #loadImagesAsync(ResourceBundle, ImageLoadListener)} メソッドの説明をご覧ください。
+     * </p>
+     * 
+     * @param baseName
+     *        リソースバンドルの基底名
+     * @param listener
+     *        ロード結果の通知先。<code>null</code> でも構いません。
+     */
+    public static void loadImagesAsync(final String baseName, final ImageLoadListener listener) {
+        ResourceBundle imageResources = ResourceBundle.getBundle(baseName);
+        loadImagesAsync(imageResources, listener);
+    }
+
     /**
      * {@code ImageDescriptor} オブジェクトを登録します。<br />
      * <p>
@@ -261,6 +802,7 @@ public class ImageManager {
      * {@code url} で示されるリソースをクラスパス上から読み込み、{@link ImageDescriptor} オブジェクトとして
      * {@code key} で示されるキーでレジストリに登録します。<br />
      * 既に同じキーで {@link ImageDescriptor} オブジェクトが登録されている場合、上書きします。<br />
+     * 本メソッドは任意のスレッドから呼び出すことができます。
      * </p>
      * 
      * @param key
@@ -272,9 +814,8 @@ public class ImageManager {
      *         指定されたリソースが見つからなかった場合
      */
     public static ImageDescriptor putImageDescriptor(final String key, final URL url) {
-        checkKey(key);
-        ImageDescriptor descriptor = ImageDescriptor.createFromURL(url);
-        imageRegistry.put(key, descriptor);
+        ImageDescriptor descriptor = createImageDescriptor(url);
+        setSource(getRegistry(), key, descriptor, url);
         return descriptor;
     }
 
@@ -285,7 +826,8 @@ public class ImageManager {
      * オブジェクトを一括して読み込みます。
      * </p>
      * <p>
-     * 本メソッドではイメージを {@link ImageDescriptor} として登録します。
+     * 本メソッドではイメージを {@link ImageDescriptor} として登録します。<br />
+     * 本メソッドは任意のスレッドから呼び出すことができます。
      * </p>
      * 
      * <p>
@@ -349,42 +891,304 @@ public class ImageManager {
     }
 
     /**
-     * 指定されたクラスの定数フィールドに対して、 {@link ImageManager} が 管理するオブジェクトをインジェクションします。</br>
-     * インジェクション対象となるのは、以下の条件を満たすフィールドです。<br />
-     * <p>
-     * <ol>
-     * <li>{@code public static} な定数フィールドであること
-     * <li>{@link Image} または {@link ImageDescriptor} 型のフィールドであること
-     * </ol>
-     * </p>
-     * 以上の条件を満たすフィールドに対して、フィールド名をキーとして {@link ImageManager} が登録する {@link Image}
-     * または {@link ImageDescriptor} を検索し、見つかればインジェクションを行います。<br />
-     * 見つからなかった場合は、Warning ログを出力します。
+     * {@link ResourceBundle} からイメージを読み込み、内容が同一のイメージを共有して一括登録します。<br />
      * <p>
-     * <b>【例】</b><br />
-     * 以下の例では、{@code ImageHolder} クラスの フィールド、{@code IMAGE_A} と {@code IMAGE_B}
-     * に対して、 {@link ImageManager} が管理するオブジェクトの中から、 {@code IMAGE_A}、{@code
-     * IMAGE_B} という名前のキーで登録されたオブジェクトをインジェクションします。
-     * 
-     * <pre>
-     *   public class ImageHolder() {
-     *     public static Image IMAGE_A;
-     *     public static ImageDescriptor IMAGE_B;
-     *   }
-     * </pre>
-     * 
-     * <pre>
-     * ImageManager.injectImages(ImageHolder.class);
-     * </pre>
-     * 
+     * 「key=path」の形式で記述されたプロパティファイルを元にした {@link ResourceBundle}
+     * に含まれるすべてのリソースを、最大 {@link #LOADER_POOL_SIZE} 個のワーカスレッドで並行して読み込み、内容のハッシュ値を計算します。<br />
+     * 内容が同一のキーには、同じ {@link ImageDescriptor} を登録します。そのため、これらのキーからは同じ {@link Image}
+     * オブジェクトが返され、デコードも一度しか行われません。<br />
+     * {@link #loadImages(ResourceBundle)} メソッドと同様に、イメージは {@link ImageDescriptor}
+     * として登録します。本メソッドは任意のスレッドから呼び出すことができます。
      * </p>
      * 
-     * @param clazz
-     *        対象クラス
+     * @param bundle
+     *        リソースバンドルの参照
+     * @return 重複排除の結果
+     * @throws ResourceNotFoundRuntimeException
+     *         指定されたリソースが見つからなかった場合
      */
-    public static void injectImages(final Class clazz) {
-        BeanDesc beanDesc = BeanDescFactory.getBeanDesc(clazz);
-        for (int i = 0; i < beanDesc.getFieldSize(); i++) {
+    public static ImageDedupReport loadImagesDeduplicated(final ResourceBundle bundle) {
+        DisplayImageRegistry registry = getRegistry();
+        Map<String, URL> urls = new LinkedHashMap<String, URL>();
+        Map<String, Future<String>> hashes = new LinkedHashMap<String, Future<String>>();
+        Enumeration keys = bundle.getKeys();
+        while (keys.hasMoreElements()) {
+            String key = (String) keys.nextElement();
+            final URL url = ResourceUtil.getResource(normalizePath(bundle.getString(key)));
+            urls.put(key, url);
+            hashes.put(key, getLoaderPool().submit(new Callable<String>() {
+                public String call() throws Exception {
+                    byte[] content = InputStreamUtil.getBytes(URLUtil.openStream(url));
+                    return ImageDataCache.toHexString(ImageDataCache.digest(content));
+                }
+            }));
+        }
+
+        ImageDedupReport report = new ImageDedupReport();
+        Map<String, String> canonicalKeys = new HashMap<String, String>();
+        // 他のスレッドが正規のキーを置き換えても別名が影響を受けないよう、共有の sources からは読み戻さない
+        Map<String, ImageDescriptor> canonicalDescriptors = new HashMap<String, ImageDescriptor>();
+        for (Map.Entry<String, Future<String>> entry : hashes.entrySet()) {
+            String key = entry.getKey();
+            String hash = getResult(entry.getValue());
+            String canonicalKey = canonicalKeys.get(hash);
+            ImageDescriptor descriptor;
+            URL url;
+            if (canonicalKey == null) {
+                canonicalKeys.put(hash, key);
+                url = urls.get(key);
+                descriptor = createImageDescriptor(url);
+                canonicalDescriptors.put(key, descriptor);
+                report.addUnique();
+            } else {
+                url = urls.get(canonicalKey);
+                descriptor = canonicalDescriptors.get(canonicalKey);
+                report.addAlias(key, canonicalKey);
+            }
+            setSource(registry, key, descriptor, url);
+        }
+        return report;
+    }
+
+    /**
+     * {@link ResourceBundle} からイメージを読み込み、内容が同一のイメージを共有して一括登録します。<br />
+     * <p>
+     * 詳細は {@link #loadImagesDeduplicated(ResourceBundle)} メソッドの説明をご覧ください。
+     * </p>
+     * 
+     * @param baseName
+     *        リソースバンドルの基底名
+     * @return 重複排除の結果
+     */
+    public static ImageDedupReport loadImagesDeduplicated(final String baseName) {
+        return loadImagesDeduplicated(ResourceBundle.getBundle(baseName));
+    }
+
+    /**
+     * {@code path} で示されるアニメーション GIF などの複数のフレームからなるイメージを、クラスパスから読み込みます。<br />
+     * <p>
+     * 読み込んだ {@link AnimatedImage} は {@code path} ごとにキャッシュされ、レジストリの破棄とともに破棄されます。
+     * 同じ {@code path} に対しては、同じ {@link AnimatedImage} を返します。<br />
+     * 本メソッドは {@link Display} スレッドから呼び出してください。
+     * </p>
+     * 
+     * @param path
+     *        イメージのパス
+     * @return {@link AnimatedImage} オブジェクト
+     * @throws ResourceNotFoundRuntimeException
+     *         指定されたリソースが見つからなかった場合
+     */
+    public static AnimatedImage loadAnimatedImage(final String path) {
+        DisplayImageRegistry registry = getRegistry();
+        String normalized = normalizePath(path);
+        AnimatedImage animatedImage = registry.animatedImages.get(normalized);
+        if (animatedImage == null || animatedImage.isDisposed()) {
+            URL url = ResourceUtil.getResource(normalized);
+            animatedImage = AnimatedImage.load(registry.display, url);
+            registry.animatedImages.put(normalized, animatedImage);
+        }
+        return animatedImage;
+    }
+
+    /**
+     * {@code path} で示される大きなイメージを、タイルに分割して表示する {@link TiledImage} としてクラスパスから読み込みます。<br />
+     * <p>
+     * 返された {@link TiledImage} はキャッシュされません。使用後は呼び出し元で破棄してください。<br />
+     * 本メソッドは {@link Display} スレッドから呼び出してください。
+     * </p>
+     * 
+     * @param path
+     *        イメージのパス
+     * @return {@link TiledImage} オブジェクト
+     * @throws ResourceNotFoundRuntimeException
+     *         指定されたリソースが見つからなかった場合
+     */
+    public static TiledImage loadTiledImage(final String path) {
+        DisplayImageRegistry registry = getRegistry();
+        URL url = ResourceUtil.getResource(normalizePath(path));
+        return TiledImage.load(registry.display, url);
+    }
+
+    /**
+     * {@code path} で示されるイメージの幅・高さ・深さを、クラスパス上のファイルのヘッダのみを読み取って返します。<br />
+     * <p>
+     * 詳細は {@link #getImageInfo(URL)} メソッドの説明をご覧ください。
+     * </p>
+     * 
+     * @param path
+     *        イメージのパス
+     * @return {@link ImageInfo} オブジェクト
+     * @throws ResourceNotFoundRuntimeException
+     *         指定されたリソースが見つからなかった場合
+     */
+    public static ImageInfo getImageInfo(final String path) {
+        return getImageInfo(ResourceUtil.getResource(normalizePath(path)));
+    }
+
+    /**
+     * {@code url} で示されるイメージの幅・高さ・深さを、ファイルのヘッダのみを読み取って返します。<br />
+     * <p>
+     * GIF・PNG・BMP・JPEG 形式のファイルは、画素をデコードせずにヘッダの先頭数十バイトのみを読み取ります。
+     * それ以外の形式の場合はデコードして求めます。<br />
+     * 結果は URL ごとにキャッシュされ、2 回目以降はファイルを読み込みません。
+     * {@link #putImage(String, IFile)} メソッドで登録したファイルが変更された場合は、キャッシュを破棄します。<br />
+     * 本メソッドは {@link Display} に依存しないため、任意のスレッドから呼び出すことができます。
+     * </p>
+     * 
+     * @param url
+     *        イメージの URL
+     * @return {@link ImageInfo} オブジェクト
+     */
+    public static ImageInfo getImageInfo(final URL url) {
+        String location = url.toExternalForm();
+        ImageInfo info = imageInfos.get(location);
+        if (info == null) {
+            info = probeImage(url);
+            imageInfos.put(location, info);
+        }
+        return info;
+    }
+
+    /**
+     * ビルド時に作成された {@link ImageArchive} を読み込み、含まれるすべてのイメージを一括登録します。<br />
+     * <p>
+     * アーカイブは一度の読み込みでメモリ上へ展開され、各イメージは {@link ImageDescriptor} として登録されます。<br />
+     * ピクセルデータはデコード済みの状態で格納されているため、{@link Image} オブジェクトの生成時にイメージファイルの読み込みやデコードは発生しません。<br />
+     * 本メソッドは任意のスレッドから呼び出すことができます。
+     * </p>
+     * 
+     * @param path
+     *        アーカイブのパス
+     * @return 読み込んだ {@link ImageArchive} オブジェクト
+     * @throws ResourceNotFoundRuntimeException
+     *         指定されたリソースが見つからなかった場合
+     * @see ImageArchiveBuilder
+     */
+    public static ImageArchive loadImageArchive(final String path) {
+        URL url = ResourceUtil.getResource(normalizePath(path));
+        return loadImageArchive(url);
+    }
+
+    /**
+     * ビルド時に作成された {@link ImageArchive} を読み込み、含まれるすべてのイメージを一括登録します。<br />
+     * <p>
+     * 詳細は {@link #loadImageArchive(String)} メソッドの説明をご覧ください。
+     * </p>
+     * 
+     * @param url
+     *        アーカイブの URL
+     * @return 読み込んだ {@link ImageArchive} オブジェクト
+     */
+    public static ImageArchive loadImageArchive(final URL url) {
+        ImageArchive archive = ImageArchive.load(url);
+        DisplayImageRegistry registry = getRegistry();
+        for (String key : archive.getKeys()) {
+            setSource(registry, key, archive.getImageDescriptor(key), null);
+        }
+        return archive;
+    }
+
+    /**
+     * {@link ResourceBundle} からイメージを読み込み、{@link ImageAtlas} へまとめて登録します。<br />
+     * <p>
+     * 「key=path」の形式で記述されたプロパティファイルを元にした {@link ResourceBundle}
+     * に含まれるイメージを、少数の大きな {@link Image} オブジェクトへまとめて配置します。<br />
+     * 各イメージは {@link #getImageRegion(String)} メソッドで {@link ImageRegion} として取得し、
+     * {@link ImageRegion#draw(org.eclipse.swt.graphics.GC, int, int)} メソッドで描画します。<br />
+     * 作成した {@link ImageAtlas} は、{@link #dispose()} メソッドで破棄されます。
+     * </p>
+     * 
+     * @param bundle
+     *        リソースバンドルの参照
+     * @return 作成した {@link ImageAtlas} オブジェクト
+     * @throws ResourceNotFoundRuntimeException
+     *         指定されたリソースが見つからなかった場合
+     */
+    public static ImageAtlas loadImageAtlas(final ResourceBundle bundle) {
+        DisplayImageRegistry registry = getRegistry();
+        ImageAtlas atlas = ImageAtlas.create(registry.display, bundle);
+        synchronized (registry.atlases) {
+            registry.atlases.add(atlas);
+        }
+        return atlas;
+    }
+
+    /**
+     * {@link ResourceBundle} からイメージを読み込み、{@link ImageAtlas} へまとめて登録します。<br />
+     * <p>
+     * 詳細は {@link #loadImageAtlas(ResourceBundle)} メソッドの説明をご覧ください。
+     * </p>
+     * 
+     * @param baseName
+     *        リソースバンドルの基底名
+     * @return 作成した {@link ImageAtlas} オブジェクト
+     */
+    public static ImageAtlas loadImageAtlas(final String baseName) {
+        return loadImageAtlas(ResourceBundle.getBundle(baseName));
+    }
+
+    /**
+     * {@link #loadImageAtlas(ResourceBundle)} メソッドで登録されたイメージの {@link ImageRegion} を返します。<br />
+     * 
+     * @param key
+     *        キー
+     * @return 見つかった {@link ImageRegion} オブジェクト。見つからない場合は <code>null</code>。
+     */
+    public static ImageRegion getImageRegion(final String key) {
+        List<ImageAtlas> atlases = getRegistry().atlases;
+        synchronized (atlases) {
+            for (int i = atlases.size() - 1; i >= 0; i--) {
+                ImageRegion region = atlases.get(i).getRegion(key);
+                if (region != null) {
+                    return region;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 指定されたクラスの定数フィールドに対して、 {@link ImageManager} が 管理するオブジェクトをインジェクションします。</br>
+     * インジェクション対象となるのは、以下の条件を満たすフィールドです。<br />
+     * <p>
+     * <ol>
+     * <li>{@code public static} な定数フィールドであること
+     * <li>{@link Image}、{@link ImageDescriptor} または {@link LazyImage} 型のフィールドであること
+     * </ol>
+     * </p>
+     * 以上の条件を満たすフィールドに対して、フィールド名をキーとして {@link ImageManager} が登録する {@link Image}
+     * または {@link ImageDescriptor} を検索し、見つかればインジェクションを行います。<br />
+     * {@link LazyImage} 型のフィールドには、{@link Image} オブジェクトを生成せずに {@link LazyImage}
+     * をインジェクションします。{@link Image} オブジェクトは、最初に {@link LazyImage#getImage()}
+     * メソッドが呼び出されたときに生成されます。<br />
+     * 見つからなかった場合は、Warning ログを出力します。
+     * <p>
+     * <b>【例】</b><br />
+     * 以下の例では、{@code ImageHolder} クラスの フィールド、{@code IMAGE_A}、{@code IMAGE_B} と {@code
+     * IMAGE_C} に対して、 {@link ImageManager} が管理するオブジェクトの中から、 {@code IMAGE_A}、{@code
+     * IMAGE_B}、{@code IMAGE_C} という名前のキーで登録されたオブジェクトをインジェクションします。
+     * 
+     * <pre>
+     *   public class ImageHolder() {
+     *     public static Image IMAGE_A;
+     *     public static ImageDescriptor IMAGE_B;
+     *     public static LazyImage IMAGE_C;
+     *   }
+     * </pre>
+     * 
+     * <pre>
+     * ImageManager.injectImages(ImageHolder.class);
+     * </pre>
+     * 
+     * </p>
+     * 
+     * @param clazz
+     *        対象クラス
+     */
+    public static void injectImages(final Class clazz) {
+        DisplayImageRegistry registry = getRegistry();
+        BeanDesc beanDesc = BeanDescFactory.getBeanDesc(clazz);
+        for (int i = 0; i < beanDesc.getFieldSize(); i++) {
             Field field = beanDesc.getField(i);
             String key = field.getName();
             if (!validateMask(field)) {
@@ -392,24 +1196,621 @@ public class ImageManager {
             }
 
             if (isAssignableFrom(Image.class, field)) {
-                injectField(clazz, field, imageRegistry.get(key));
+                Image image = lookupImage(registry, key);
+                if (image != null) {
+                    registry.imageCache.pin(key);
+                }
+                injectField(clazz, field, image);
             } else if (isAssignableFrom(ImageDescriptor.class, field)) {
-                injectField(clazz, field, imageRegistry.getDescriptor(key));
+                injectField(clazz, field, getImageDescriptor(key));
+            } else if (isAssignableFrom(LazyImage.class, field)) {
+                if (getImageDescriptor(key) != null) {
+                    injectField(clazz, field, new LazyImage(key));
+                }
+            }
+        }
+    }
+
+    /**
+     * 生成済みの {@link Image} オブジェクトを保持する上限を設定します。<br />
+     * <p>
+     * 上限を超えた場合、最も長く使用されていない {@link Image} オブジェクトから破棄します。<br />
+     * 破棄されたキーは {@link ImageDescriptor} として登録されたまま残るため、{@link #getImage(String)}
+     * メソッドを呼び出すと再生成されます。<br />
+     * そのため上限を設定した場合、取得した {@link Image} オブジェクトを長期間保持せず、使用する都度
+     * {@link #getImage(String)} メソッドで取得してください。長期間保持する必要があるキーは
+     * {@link #pinImage(String)} メソッドでピン留めしてください。<br />
+     * <code>0</code> 以下の値を指定した場合、その項目については上限を設けません。
+     * </p>
+     * 
+     * @param maxImages
+     *        保持する {@link Image} オブジェクト数の上限
+     * @param maxPixelBytes
+     *        保持するピクセルバイト数の上限
+     */
+    public static void setCacheLimit(final int maxImages, final long maxPixelBytes) {
+        DisplayImageRegistry registry = getRegistry();
+        registry.imageCache.setLimit(maxImages, maxPixelBytes);
+        evictImages(registry, null);
+    }
+
+    /**
+     * イメージの倍率を設定します。<br />
+     * <p>
+     * 倍率は {@link #init(Display)} メソッドの呼び出し時に {@link Display} の解像度から自動的に設定されます。
+     * 自動的に設定される倍率は等倍か 200% のいずれかです({@link ZoomedImageDescriptor#computeZoom(org.eclipse.swt.graphics.Point)})。
+     * 125% や 150% などの倍率を使用する場合や、オフスクリーン描画などで別の倍率を使用する場合に、本メソッドで変更してください。<br />
+     * 倍率を変更すると生成済みの {@link Image} オブジェクトは破棄され、次に要求されたときに新しい倍率で再生成されます。<br />
+     * 本メソッドは {@link Display} スレッドから呼び出してください。
+     * </p>
+     * 
+     * @param zoom
+     *        倍率(パーセント)。等倍は <code>100</code>。
+     */
+    public static void setZoom(final int zoom) {
+        DisplayImageRegistry registry = getRegistry();
+        if (registry.zoom == zoom) {
+            return;
+        }
+        registry.zoom = zoom;
+        for (String key : new ArrayList<String>(registry.registered.keySet())) {
+            checkKey(registry, key);
+        }
+    }
+
+    /**
+     * イメージの倍率を返します。<br />
+     * 
+     * @return 倍率(パーセント)
+     */
+    public static int getZoom() {
+        return getRegistry().zoom;
+    }
+
+    /**
+     * 指定されたキーのイメージをピン留めし、キャッシュの上限を超えても破棄されないようにします。<br />
+     * <p>
+     * {@link #injectImages(Class)} メソッドで {@link Image} 型のフィールドへインジェクションされたキーは、自動的にピン留めされます。
+     * </p>
+     * 
+     * @param key
+     *        キー
+     */
+    public static void pinImage(final String key) {
+        getRegistry().imageCache.pin(key);
+    }
+
+    /**
+     * 指定されたキーのイメージのピン留めを解除します。<br />
+     * 
+     * @param key
+     *        キー
+     */
+    public static void unpinImage(final String key) {
+        DisplayImageRegistry registry = getRegistry();
+        registry.imageCache.unpin(key);
+        evictImages(registry, null);
+    }
+
+    /**
+     * デコード済みのイメージを保存するディスクキャッシュを設定します。<br />
+     * <p>
+     * 設定以降に URL またはパスを指定して登録されるイメージは、{@link ImageDataCache} を経由して読み込まれます。<br />
+     * <code>null</code> を指定すると、ディスクキャッシュを使用しません。
+     * </p>
+     * 
+     * @param cache
+     *        {@link ImageDataCache} オブジェクト
+     */
+    public static void setImageDataCache(final ImageDataCache cache) {
+        imageDataCache = cache;
+    }
+
+    /**
+     * 設定されているディスクキャッシュを返します。<br />
+     * 
+     * @return {@link ImageDataCache} オブジェクト。設定されていない場合は <code>null</code>。
+     */
+    public static ImageDataCache getImageDataCache() {
+        return imageDataCache;
+    }
+
+    /**
+     * パレットの圧縮を行うかどうかを設定します。<br />
+     * <p>
+     * 有効にすると、{@link #putImage(String, ImageData)} メソッドと入力ストリームから登録されるイメージのうち、
+     * 使用している色が 256 色以下のダイレクトカラーのものを、インデックスカラーに変換してから登録します。
+     * 変換したイメージの {@link ImageData} は、破棄後の再生成のために保持されるため、保持するメモリが削減されます。
+     * プラットフォームによっては、ネイティブイメージもインデックスカラーのまま作成されます。<br />
+     * 変換したイメージの数と削減したバイト数は、{@link ImageStatistics#getCompactedImageCount()} と
+     * {@link ImageStatistics#getCompactionSavedBytes()} で参照できます。<br />
+     * 既定値は <code>false</code> です。
+     * </p>
+     * 
+     * @param enabled
+     *        パレットの圧縮を行う場合は <code>true</code>
+     * @see ImageDataUtil#compactPalette(ImageData)
+     */
+    public static void setPaletteCompaction(final boolean enabled) {
+        paletteCompaction = enabled;
+    }
+
+    /**
+     * パレットの圧縮を行うかどうかを返します。<br />
+     * 
+     * @return パレットの圧縮を行う場合は <code>true</code>
+     */
+    public static boolean isPaletteCompaction() {
+        return paletteCompaction;
+    }
+
+    /**
+     * イメージの使用履歴を記録する {@link ImageUsageProfile} を設定します。<br />
+     * <p>
+     * 設定すると、{@link #getImage(String)} メソッドなどで参照されたキーを記録し、すべてのレジストリが破棄されるときに
+     * {@link ImageUsageProfile#save()} メソッドで保存します。<br />
+     * また、前回のセッションで使用されたイメージのうち {@link ImageDescriptor} として登録済みのものを、
+     * 優先度の低いバックグラウンドのジョブで事前にデコードします。そのため、本メソッドはイメージを登録した後に呼び出してください。<br />
+     * <code>null</code> を指定すると、記録を停止します。
+     * </p>
+     * 
+     * @param profile
+     *        {@link ImageUsageProfile} オブジェクト
+     */
+    public static void setUsageProfile(final ImageUsageProfile profile) {
+        usageProfile = profile;
+        if (profile == null) {
+            return;
+        }
+        DisplayImageRegistry registry = getRegistry();
+        List<String> keys = profile.getPreviousKeys();
+        if (registry != null && !keys.isEmpty()) {
+            new ImagePrefetchJob(registry, keys).schedule();
+        }
+    }
+
+    /**
+     * イメージの使用履歴を記録する {@link ImageUsageProfile} を返します。<br />
+     * 
+     * @return {@link ImageUsageProfile} オブジェクト。設定されていない場合は <code>null</code>。
+     */
+    public static ImageUsageProfile getUsageProfile() {
+        return usageProfile;
+    }
+
+    /**
+     * {@code url} で示されるイメージの {@link ImageDescriptor} を作成します。<br />
+     * <p>
+     * ディスクキャッシュが設定されている場合、キャッシュを経由して読み込む {@link ImageDescriptor} を返します。
+     * </p>
+     * 
+     * @param url
+     *        イメージの URL
+     * @return {@link ImageDescriptor} オブジェクト
+     */
+    public static ImageDescriptor createImageDescriptor(final URL url) {
+        ImageDataCache cache = imageDataCache;
+        if (cache != null) {
+            return cache.createDescriptor(url);
+        }
+        return ImageDescriptor.createFromURL(url);
+    }
+
+    /**
+     * {@link ImageManager} の統計情報を返します。<br />
+     * <p>
+     * 返されるオブジェクトは常に最新の値を反映します。本メソッドは任意のスレッドから呼び出すことができます。
+     * </p>
+     * 
+     * @return {@link ImageStatistics} オブジェクト
+     */
+    public static ImageStatistics getStatistics() {
+        return getRegistry().statistics;
+    }
+
+    /**
+     * 指定された {@link Display} のレジストリの統計情報を返します。<br />
+     * 
+     * @param display
+     *        {@link Display} オブジェクト
+     * @return {@link ImageStatistics} オブジェクト。レジストリが存在しない場合は <code>null</code>。
+     */
+    public static ImageStatistics getStatistics(final Display display) {
+        DisplayImageRegistry registry = registries.get(display);
+        return registry != null ? registry.statistics : null;
+    }
+
+    /**
+     * 統計情報を定期的にプラグインのログへ出力します。<br />
+     * <p>
+     * 既に出力中の場合、以前の設定を破棄して新しい間隔で出力し直します。出力は {@link #stopStatisticsDump()}
+     * メソッドまたは {@link #dispose()} メソッドを呼び出すまで続きます。<br />
+     * {@code plugin} に <code>null</code> を指定した場合、{@link Logger} へ出力します。
+     * </p>
+     * 
+     * @param plugin
+     *        ログの出力先となるプラグイン
+     * @param intervalMillis
+     *        出力間隔(ミリ秒)
+     */
+    public static synchronized void startStatisticsDump(final Plugin plugin,
+            final long intervalMillis) {
+        stopStatisticsDump();
+        statisticsDumper = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(final Runnable r) {
+                Thread thread = new Thread(r, "ImageManager-statistics");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+        statisticsDumper.scheduleAtFixedRate(new Runnable() {
+            public void run() {
+                for (DisplayImageRegistry registry : registries.values()) {
+                    String message = registry.display + ": " + registry.statistics;
+                    if (plugin != null) {
+                        LogUtil.log(plugin, message);
+                    } else {
+                        logger.info(message);
+                    }
+                }
             }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 統計情報の定期的な出力を停止します。<br />
+     */
+    public static synchronized void stopStatisticsDump() {
+        if (statisticsDumper != null) {
+            statisticsDumper.shutdownNow();
+            statisticsDumper = null;
         }
     }
 
     /**
      * {@link ImageManager} が管理する {@link ImageRegistry} を破棄します。<br />
      * <p>
+     * 呼び出したスレッドの {@link Display} のレジストリを破棄します。<br />
      * 再び {@link ImageManager} を使用したい場合、{@link #init(Display)} メソッドを呼び出してください。<br />
      * </p>
      */
     public static void dispose() {
-        if (imageRegistry != null) {
-            imageRegistry.dispose();
+        DisplayImageRegistry registry = getRegistry();
+        if (registry != null) {
+            dispose(registry);
+        }
+    }
+
+    /**
+     * 指定された {@link Display} のレジストリを破棄します。<br />
+     * <p>
+     * すべてのレジストリが破棄されると、ワーカスレッドと統計情報の定期的な出力も停止します。<br />
+     * 本メソッドは {@code display} のスレッドから呼び出してください。
+     * </p>
+     * 
+     * @param display
+     *        {@link Display} オブジェクト
+     */
+    public static void dispose(final Display display) {
+        DisplayImageRegistry registry = registries.get(display);
+        if (registry != null) {
+            dispose(registry);
+        }
+    }
+
+    private static void dispose(final DisplayImageRegistry registry) {
+        registries.remove(registry.display, registry);
+        registry.dispose();
+        if (currentRegistry.get() == registry) {
+            currentRegistry.remove();
+        }
+        if (registries.isEmpty()) {
+            shutdownLoaderPool();
+            stopStatisticsDump();
+            saveUsageProfile();
+        }
+    }
+
+    private static void saveUsageProfile() {
+        ImageUsageProfile profile = usageProfile;
+        if (profile == null) {
+            return;
+        }
+        try {
+            profile.save();
+        } catch (RuntimeException ex) {
+            logger.warn("Failed to save image usage profile. file=" + profile.getFile(), ex);
+        }
+    }
+
+    /**
+     * 前回のセッションで使用されたイメージを事前にデコードし、{@link Display} スレッド上で登録します。<br />
+     * <p>
+     * {@link ImagePrefetchJob} から呼び出されます。{@link ImageDescriptor} として登録されていないキーや、
+     * 既に {@link Image} オブジェクトが生成されているキーは何もしません。
+     * </p>
+     * 
+     * @param registry
+     *        レジストリ
+     * @param key
+     *        キー
+     */
+    static void prefetchImage(final DisplayImageRegistry registry, final String key) {
+        final ImageDescriptor source = registry.sources.get(key);
+        if (source == null) {
+            return;
+        }
+        final int zoom = registry.zoom;
+        ImageDescriptor descriptor = source;
+        if (zoom != ZoomedImageDescriptor.DEFAULT_ZOOM) {
+            descriptor = new ZoomedImageDescriptor(source, registry.urls.get(key), zoom);
+        }
+        final long start = System.nanoTime();
+        final ImageData imageData;
+        try {
+            imageData = descriptor.getImageData();
+        } catch (RuntimeException ex) {
+            logger.warn("Failed to prefetch image. key=" + key, ex);
+            return;
+        }
+        final long decodeNanos = System.nanoTime() - start;
+        if (imageData == null || registry.isDisposed() || registry.display.isDisposed()) {
+            return;
+        }
+        registry.display.asyncExec(new Runnable() {
+            public void run() {
+                if (registry.isDisposed() || registry.sources.get(key) != source
+                        || registry.registered.get(key) == source || registry.zoom != zoom) {
+                    return;
+                }
+                long createStart = System.nanoTime();
+                checkKey(registry, key);
+                bind(registry, key, source);
+                Image image = new Image(registry.display, imageData);
+                registry.imageRegistry.put(key, image);
+                registry.registered.put(key, source);
+                registry.statistics.track(key, image);
+                ResourceLeakDetector.track(image);
+                registry.statistics.recordDecode(SourceType.PREFETCH, decodeNanos
+                        + System.nanoTime() - createStart);
+                if (registry.imageCache.isBounded()) {
+                    registry.imageCache.touch(key, image);
+                    evictImages(registry, key);
+                }
+            }
+        });
+    }
+
+    /**
+     * 入力ストリームからイメージを読み込み、{@link ImageData} へデコードします。<br />
+     * <p>
+     * 本メソッドは {@link Display} に依存しないため、任意のスレッドから呼び出すことができます。<br />
+     * 入力ストリームは本メソッド内でクローズされます。
+     * </p>
+     * 
+     * @param is
+     *        入力ストリーム
+     * @return デコードした {@link ImageData} オブジェクト
+     */
+    protected static ImageData decodeImage(final InputStream is) {
+        try {
+            return new ImageLoader().load(is)[0];
+        } finally {
+            InputStreamUtil.close(is);
+        }
+    }
+
+    /**
+     * {@code url} で示されるイメージを読み込み、{@link ImageData} へデコードします。<br />
+     * <p>
+     * ディスクキャッシュが設定されている場合、キャッシュを経由して読み込みます。<br />
+     * 本メソッドは任意のスレッドから呼び出すことができます。
+     * </p>
+     * 
+     * @param url
+     *        イメージの URL
+     * @return デコードした {@link ImageData} オブジェクト
+     */
+    protected static ImageData decodeImage(final URL url) {
+        ImageDataCache cache = imageDataCache;
+        if (cache != null) {
+            return cache.load(url);
+        }
+        return decodeImage(URLUtil.openStream(url));
+    }
+
+    /**
+     * パレットの圧縮が有効な場合、{@link ImageData} をインデックスカラーに変換します。<br />
+     * 
+     * @param registry
+     *        統計情報を記録するレジストリ
+     * @param imageData
+     *        {@link ImageData} オブジェクト
+     * @return 変換した {@link ImageData}。変換しない場合は {@code imageData} そのもの。
+     */
+    private static ImageData compactPalette(final DisplayImageRegistry registry,
+            final ImageData imageData) {
+        if (!paletteCompaction) {
+            return imageData;
+        }
+        ImageData compacted = ImageDataUtil.compactPalette(imageData);
+        if (compacted != imageData) {
+            registry.statistics.recordCompaction(imageData.data.length, compacted.data.length);
+        }
+        return compacted;
+    }
+
+    /**
+     * {@code url} で示されるイメージファイルのヘッダを読み取ります。<br />
+     * <p>
+     * ヘッダを解析できない形式の場合は、デコードして求めます。
+     * </p>
+     * 
+     * @param url
+     *        イメージの URL
+     * @return {@link ImageInfo} オブジェクト
+     */
+    protected static ImageInfo probeImage(final URL url) {
+        InputStream is = URLUtil.openStream(url);
+        try {
+            ImageInfo info = ImageInfo.read(is);
+            if (info != null) {
+                return info;
+            }
+        } catch (IOException ex) {
+            throw new IORuntimeException(ex);
+        } finally {
+            InputStreamUtil.close(is);
+        }
+        return ImageInfo.valueOf(decodeImage(url));
+    }
+
+    /**
+     * 呼び出したスレッドで使用するレジストリを返します。<br />
+     * <p>
+     * {@link Display} スレッド以外から呼び出された場合は、レジストリが一つだけ存在する場合に限りそれを返します。
+     * </p>
+     * 
+     * @return レジストリ。初期化されていない場合は <code>null</code>。
+     * @throws IllegalStateException
+     *         {@link Display} スレッド以外から呼び出され、複数の {@link Display} のレジストリが存在する場合
+     */
+    static DisplayImageRegistry getRegistry() {
+        DisplayImageRegistry registry = currentRegistry.get();
+        if (registry != null && !registry.isDisposed()) {
+            return registry;
+        }
+        Display current = Display.getCurrent();
+        if (current == null) {
+            return getSoleRegistry();
+        }
+        registry = registries.get(current);
+        if (registry != null) {
+            currentRegistry.set(registry);
+        } else {
+            currentRegistry.remove();
         }
-        imageRegistry = null;
+        return registry;
+    }
+
+    private static DisplayImageRegistry getSoleRegistry() {
+        Iterator<DisplayImageRegistry> it = registries.values().iterator();
+        if (!it.hasNext()) {
+            return null;
+        }
+        DisplayImageRegistry registry = it.next();
+        if (it.hasNext()) {
+            throw new IllegalStateException(
+                    "ImageManager is initialized for more than one Display. Call from a Display thread.");
+        }
+        return registry;
+    }
+
+    /**
+     * 指定された {@link Display} のレジストリを返します。<br />
+     * 
+     * @param display
+     *        {@link Display} オブジェクト
+     * @return レジストリ。初期化されていない場合は <code>null</code>。
+     */
+    static DisplayImageRegistry getRegistry(final Display display) {
+        return registries.get(display);
+    }
+
+    protected static synchronized ExecutorService getLoaderPool() {
+        if (loaderPool == null) {
+            loaderPool = Executors.newFixedThreadPool(LOADER_POOL_SIZE, new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                public Thread newThread(final Runnable r) {
+                    Thread thread = new Thread(r, "ImageManager-loader-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                }
+            });
+        }
+        return loaderPool;
+    }
+
+    protected static synchronized void shutdownLoaderPool() {
+        if (loaderPool != null) {
+            loaderPool.shutdownNow();
+            loaderPool = null;
+        }
+    }
+
+    private static <T> T getResult(final Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading images.");
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            IllegalStateException ise = new IllegalStateException(String.valueOf(cause));
+            ise.initCause(cause);
+            throw ise;
+        }
+    }
+
+    /**
+     * キャッシュしている、{@code url} で示されるイメージファイルのヘッダ情報を破棄します。<br />
+     * 
+     * @param url
+     *        イメージの URL
+     */
+    static void removeImageInfo(final URL url) {
+        imageInfos.remove(url.toExternalForm());
+    }
+
+    private static void registerAsync(final DisplayImageRegistry target, final String key,
+            final ImageData imageData, final ImageDescriptor source, final URL url,
+            final ImageLoadListener listener, final SourceType type, final long decodeNanos) {
+        if (target.isDisposed() || target.display.isDisposed()) {
+            return;
+        }
+        target.display.asyncExec(new Runnable() {
+            public void run() {
+                if (target.isDisposed()) {
+                    return;
+                }
+                Image image;
+                try {
+                    long start = System.nanoTime();
+                    image = putImage(target, key, imageData, source, url);
+                    target.statistics.recordDecode(type, decodeNanos + System.nanoTime() - start);
+                } catch (RuntimeException ex) {
+                    if (listener != null) {
+                        listener.imageLoadFailed(key, ex);
+                    }
+                    return;
+                }
+                if (listener != null) {
+                    listener.imageLoaded(key, image);
+                }
+            }
+        });
+    }
+
+    private static void notifyFailure(final DisplayImageRegistry target, final String key,
+            final Throwable cause, final ImageLoadListener listener) {
+        logger.warn("Failed to load image. key=" + key, cause);
+        if (listener == null || target.display.isDisposed()) {
+            return;
+        }
+        target.display.asyncExec(new Runnable() {
+            public void run() {
+                listener.imageLoadFailed(key, cause);
+            }
+        });
     }
 
     protected static void injectField(final Class clazz, final Field field, final Object o) {
@@ -428,10 +1829,214 @@ public class ImageManager {
         return clazz.isAssignableFrom(target.getType());
     }
 
-    protected static void checkKey(final String key) {
-        if (imageRegistry.get(key) != null) {
-            imageRegistry.remove(key);
+    private static void checkKey(final DisplayImageRegistry registry, final String key) {
+        boolean unloaded = registry.unloaded.remove(key);
+        registry.exposed.remove(key);
+        if (registry.registered.remove(key) != null) {
+            // 登録済みのエントリは破棄したもの以外すべて生成済みのため、デコードさせずに削除できる
+            if (!unloaded) {
+                registry.imageRegistry.remove(key);
+            }
+            removeDerivedImages(registry, key);
+        }
+        registry.bound.remove(key);
+        registry.imageCache.remove(key);
+        registry.statistics.untrack(key);
+        registry.removeImageById(keyTable.getId(key));
+        if (registry.workspaceTracker != null) {
+            registry.workspaceTracker.unwatch(key);
+        }
+    }
+
+    /**
+     * 他のイメージを元に合成・変換したイメージを返します。<br />
+     * <p>
+     * {@code descriptor} が登録済みのものと等しくない場合のみ登録し直すため、イメージは組み合わせごとに一度だけ作成されます。
+     * </p>
+     * 
+     * @param registry
+     *        レジストリ
+     * @param derivedKey
+     *        合成・変換したイメージのキー
+     * @param descriptor
+     *        合成・変換したイメージの {@link ImageDescriptor}
+     * @param keys
+     *        元のイメージのキー
+     * @return {@link Image} オブジェクト
+     */
+    private static Image getDerivedImage(final DisplayImageRegistry registry,
+            final String derivedKey, final ImageDescriptor descriptor, final String... keys) {
+        if (!descriptor.equals(registry.sources.get(derivedKey))) {
+            setSource(registry, derivedKey, descriptor, null);
+            for (String key : keys) {
+                Set<String> derivedKeys = registry.derived.get(key);
+                if (derivedKeys == null) {
+                    derivedKeys = new HashSet<String>();
+                    registry.derived.put(key, derivedKeys);
+                }
+                derivedKeys.add(derivedKey);
+            }
+        }
+        return getImage(derivedKey);
+    }
+
+    /**
+     * 指定されたキーのイメージを元に合成・変換したイメージを破棄します。<br />
+     * 
+     * @param registry
+     *        レジストリ
+     * @param key
+     *        キー
+     */
+    private static void removeDerivedImages(final DisplayImageRegistry registry, final String key) {
+        Set<String> derivedKeys = registry.derived.remove(key);
+        if (derivedKeys == null) {
+            return;
+        }
+        for (String derivedKey : derivedKeys) {
+            registry.sources.remove(derivedKey);
+            checkKey(registry, derivedKey);
+        }
+    }
+
+    /**
+     * {@link ImageRegistry} から {@link Image} オブジェクトを取得します。<br />
+     * <p>
+     * 任意のスレッドから登録・更新された {@link ImageDescriptor} が {@link ImageRegistry}
+     * へ反映されていなければ、ここで反映します。本メソッドは {@link Display} スレッドから呼び出してください。
+     * </p>
+     * 
+     * @param registry
+     *        レジストリ
+     * @param key
+     *        キー
+     * @return {@link Image} オブジェクト。見つからない場合は <code>null</code>。
+     */
+    private static Image lookupImage(final DisplayImageRegistry registry, final String key) {
+        ImageDescriptor source = registry.sources.get(key);
+        if (source != null && registry.registered.get(key) != source) {
+            checkKey(registry, key);
+            registry.imageRegistry.put(key, bind(registry, key, source));
+            registry.registered.put(key, source);
+        } else if (source != null && registry.unloaded.remove(key)) {
+            ImageDescriptor descriptor = registry.bound.get(key);
+            registry.imageRegistry.put(key, descriptor != null ? descriptor : source);
+        }
+        ImageStatistics statistics = registry.statistics;
+        long start = System.nanoTime();
+        Image image = registry.imageRegistry.get(key);
+        ImageUsageProfile profile = usageProfile;
+        if (profile != null && image != null) {
+            profile.record(key);
+        }
+        if (image == null) {
+            statistics.recordLookupMiss();
+        } else if (statistics.track(key, image)) {
+            statistics.recordDecode(SourceType.DESCRIPTOR, System.nanoTime() - start);
+            ResourceLeakDetector.track(image);
+            statistics.recordLookupMiss();
+        } else {
+            statistics.recordLookupHit();
+        }
+        return image;
+    }
+
+    /**
+     * キーに対応する {@link ImageDescriptor} と読み込み元の URL を登録します。<br />
+     * <p>
+     * 参照側が新しい {@link ImageDescriptor} と古い URL を組み合わせないよう、URL を先に更新します。
+     * </p>
+     */
+    private static void setSource(final DisplayImageRegistry registry, final String key,
+            final ImageDescriptor source, final URL url) {
+        if (url != null) {
+            registry.urls.put(key, url);
+        } else {
+            registry.urls.remove(key);
+        }
+        registry.sources.put(key, source);
+        registry.sourceVersion.incrementAndGet();
+    }
+
+    /**
+     * {@link ImageRegistry} へ登録する、レジストリの倍率を反映した {@link ImageDescriptor} を返します。<br />
+     * 
+     * @param registry
+     *        レジストリ
+     * @param key
+     *        キー
+     * @param source
+     *        元の {@link ImageDescriptor}
+     * @return 倍率を反映した {@link ImageDescriptor}。等倍の場合は {@code source} そのもの。
+     */
+    private static ImageDescriptor bind(final DisplayImageRegistry registry, final String key,
+            final ImageDescriptor source) {
+        ImageDescriptor descriptor = source;
+        int zoom = registry.zoom;
+        if (zoom != ZoomedImageDescriptor.DEFAULT_ZOOM) {
+            descriptor = new ZoomedImageDescriptor(source, registry.urls.get(key), zoom);
+        }
+        registry.bound.put(key, descriptor);
+        return descriptor;
+    }
+
+    /**
+     * {@link ImageHandle} が解放されたときに呼び出されます。<br />
+     * 
+     * @param registry
+     *        レジストリ
+     * @param key
+     *        キー
+     */
+    static void releaseImage(final DisplayImageRegistry registry, final String key) {
+        if (registry.isDisposed()) {
+            return;
+        }
+        ImageCache imageCache = registry.imageCache;
+        if (imageCache.release(key) == 0 && !imageCache.isPinned(key)
+                && !registry.exposed.contains(key)) {
+            imageCache.remove(key);
+            unloadImage(registry, key);
+        }
+    }
+
+    /**
+     * キャッシュの上限を超えている分の {@link Image} オブジェクトを破棄します。<br />
+     * 
+     * @param registry
+     *        レジストリ
+     * @param protectedKey
+     *        破棄しないキー。<code>null</code> でも構いません。
+     */
+    private static void evictImages(final DisplayImageRegistry registry, final String protectedKey) {
+        List<String> victims = registry.imageCache.collectVictims(protectedKey);
+        for (String key : victims) {
+            unloadImage(registry, key);
+        }
+    }
+
+    /**
+     * 指定されたキーの {@link Image} オブジェクトを破棄し、{@link ImageDescriptor} のみを登録した状態に戻します。<br />
+     * <p>
+     * 破棄したキーは {@link ImageRegistry} から取り除き、次に {@link #lookupImage(DisplayImageRegistry, String)}
+     * メソッドで参照されたときに登録し直します。生成していない {@link ImageDescriptor} を {@link ImageRegistry}
+     * に残さないため、キーを置き換えるときに参照カウントを合わせるためだけにイメージを生成する必要がありません。
+     * </p>
+     * 
+     * @param registry
+     *        レジストリ
+     * @param key
+     *        キー
+     */
+    private static void unloadImage(final DisplayImageRegistry registry, final String key) {
+        if (registry.isDisposed() || !registry.registered.containsKey(key)
+                || !registry.unloaded.add(key)) {
+            return;
         }
+        registry.imageRegistry.remove(key);
+        registry.exposed.remove(key);
+        registry.statistics.untrack(key);
+        registry.removeImageById(keyTable.getId(key));
     }
 
     protected static String normalizePath(final String path) {
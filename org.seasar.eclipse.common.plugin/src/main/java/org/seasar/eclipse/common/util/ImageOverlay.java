@@ -0,0 +1,108 @@
+/*
+ * Copyright 2004-2008 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.eclipse.common.util;
+
+/**
+ * ベースとなるイメージに重ねて描画するオーバーレイイメージを表すクラスです。<br />
+ * <p>
+ * {@link ImageManager#getOverlayImage(String, ImageOverlay[])} メソッドに、オーバーレイイメージのキーと描画位置を指定するために使用します。
+ * </p>
+ * 
+ * @author y-komori
+ */
+public class ImageOverlay {
+    /**
+     * オーバーレイイメージの描画位置です。<br />
+     */
+    public enum Position {
+        /**
+         * 左上
+         */
+        TOP_LEFT,
+
+        /**
+         * 右上
+         */
+        TOP_RIGHT,
+
+        /**
+         * 左下
+         */
+        BOTTOM_LEFT,
+
+        /**
+         * 右下
+         */
+        BOTTOM_RIGHT
+    }
+
+    private final String key;
+
+    private final Position position;
+
+    /**
+     * {@link ImageOverlay} を構築します。<br />
+     * 
+     * @param key
+     *        オーバーレイイメージのキー
+     * @param position
+     *        描画位置
+     */
+    public ImageOverlay(final String key, final Position position) {
+        if (key == null || position == null) {
+            throw new NullPointerException("key or position");
+        }
+        this.key = key;
+        this.position = position;
+    }
+
+    /**
+     * オーバーレイイメージのキーを返します。<br />
+     * 
+     * @return キー
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * 描画位置を返します。<br />
+     * 
+     * @return 描画位置
+     */
+    public Position getPosition() {
+        return position;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (!(o instanceof ImageOverlay)) {
+            return false;
+        }
+        ImageOverlay other = (ImageOverlay) o;
+        return key.equals(other.key) && position == other.position;
+    }
+
+    @Override
+    public int hashCode() {
+        return key.hashCode() * 31 + position.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return position + ":" + key;
+    }
+}
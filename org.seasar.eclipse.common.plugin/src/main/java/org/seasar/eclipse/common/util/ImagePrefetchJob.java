@@ -0,0 +1,75 @@
+/*
+ * Copyright 2004-2008 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.eclipse.common.util;
+
+import java.util.List;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+/**
+ * 前回のセッションで使用されたイメージを、バックグラウンドで事前にデコードするジョブです。<br />
+ * <p>
+ * {@link ImageUsageProfile#getPreviousKeys()} が返す順にデコードし、{@link org.eclipse.swt.graphics.Image} オブジェクトの生成のみを
+ * {@link org.eclipse.swt.widgets.Display} スレッド上で行います。{@link org.eclipse.jface.resource.ImageDescriptor} として登録されていないキーや、
+ * 既に {@link org.eclipse.swt.graphics.Image} オブジェクトが生成されているキーは読み飛ばします。
+ * </p>
+ * 
+ * @author y-komori
+ */
+class ImagePrefetchJob extends Job {
+    private final DisplayImageRegistry registry;
+
+    private final List<String> keys;
+
+    /**
+     * {@link ImagePrefetchJob} を構築します。<br />
+     * 
+     * @param registry
+     *        イメージを登録するレジストリ
+     * @param keys
+     *        事前にデコードするキーのリスト
+     */
+    ImagePrefetchJob(final DisplayImageRegistry registry, final List<String> keys) {
+        super("Prefetching images");
+        this.registry = registry;
+        this.keys = keys;
+        setSystem(true);
+        setPriority(DECORATE);
+    }
+
+    @Override
+    protected IStatus run(final IProgressMonitor monitor) {
+        monitor.beginTask(getName(), keys.size());
+        try {
+            for (String key : keys) {
+                if (monitor.isCanceled()) {
+                    return Status.CANCEL_STATUS;
+                }
+                if (registry.isDisposed()) {
+                    break;
+                }
+                ImageManager.prefetchImage(registry, key);
+                monitor.worked(1);
+            }
+            return Status.OK_STATUS;
+        } finally {
+            monitor.done();
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2004-2008 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.eclipse.common.util;
+
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.Rectangle;
+
+/**
+ * 大きなイメージをタイルに分割し、縮小表示用のミップマップ(縦横半分ずつに縮小したイメージの列)を保持するクラスです。<br />
+ * <p>
+ * レベル <code>0</code> が元のイメージで、レベルが一つ上がるごとに縦横が半分になります。
+ * 最上位のレベルは、幅・高さともにタイル一枚に収まる大きさです。<br />
+ * 各レベルの {@link ImageData} は、最初に必要になったときに一つ下のレベルから作成します。
+ * 本クラスはスレッドセーフです。
+ * </p>
+ * 
+ * @author y-komori
+ */
+class ImagePyramid {
+    private final int tileSize;
+
+    private final int[] widths;
+
+    private final int[] heights;
+
+    private final ImageData[] levels;
+
+    /**
+     * {@link ImagePyramid} を構築します。<br />
+     * 
+     * @param imageData
+     *        元のイメージ
+     * @param tileSize
+     *        タイルの幅と高さ
+     */
+    ImagePyramid(final ImageData imageData, final int tileSize) {
+        if (tileSize <= 0) {
+            throw new IllegalArgumentException("tileSize=" + tileSize);
+        }
+        this.tileSize = tileSize;
+        int count = 1;
+        int w = imageData.width;
+        int h = imageData.height;
+        while (w > tileSize || h > tileSize) {
+            w = (w + 1) / 2;
+            h = (h + 1) / 2;
+            count++;
+        }
+        this.widths = new int[count];
+        this.heights = new int[count];
+        this.levels = new ImageData[count];
+        widths[0] = imageData.width;
+        heights[0] = imageData.height;
+        for (int i = 1; i < count; i++) {
+            widths[i] = (widths[i - 1] + 1) / 2;
+            heights[i] = (heights[i - 1] + 1) / 2;
+        }
+        levels[0] = imageData;
+    }
+
+    int getTileSize() {
+        return tileSize;
+    }
+
+    int getLevelCount() {
+        return levels.length;
+    }
+
+    int getWidth(final int level) {
+        return widths[level];
+    }
+
+    int getHeight(final int level) {
+        return heights[level];
+    }
+
+    int getColumns(final int level) {
+        return (widths[level] + tileSize - 1) / tileSize;
+    }
+
+    int getRows(final int level) {
+        return (heights[level] + tileSize - 1) / tileSize;
+    }
+
+    /**
+     * 指定された倍率で表示する際に使用するレベルを返します。<br />
+     * <p>
+     * 倍率以上の解像度を持つレベルのうち、最も小さいものを選択します。
+     * </p>
+     * 
+     * @param scale
+     *        元のイメージに対する表示倍率
+     * @return レベル
+     */
+    int selectLevel(final double scale) {
+        int level = 0;
+        for (double s = scale * 2; s <= 1.0 && level < levels.length - 1; s *= 2) {
+            level++;
+        }
+        return level;
+    }
+
+    /**
+     * 指定されたレベルの {@link ImageData} を返します。<br />
+     * 
+     * @param level
+     *        レベル
+     * @return {@link ImageData} オブジェクト
+     */
+    synchronized ImageData getLevel(final int level) {
+        int built = level;
+        while (levels[built] == null) {
+            built--;
+        }
+        for (; built < level; built++) {
+            levels[built + 1] = ImageDataUtil.downsample(levels[built]);
+        }
+        return levels[level];
+    }
+
+    /**
+     * 指定されたタイルの、レベル内での範囲を返します。<br />
+     * 
+     * @param level
+     *        レベル
+     * @param column
+     *        タイルの列
+     * @param row
+     *        タイルの行
+     * @return タイルの範囲
+     */
+    Rectangle getTileBounds(final int level, final int column, final int row) {
+        int x = column * tileSize;
+        int y = row * tileSize;
+        return new Rectangle(x, y, Math.min(tileSize, widths[level] - x), Math.min(tileSize,
+                heights[level] - y));
+    }
+
+    /**
+     * 指定されたタイルの {@link ImageData} を作成します。<br />
+     * 
+     * @param level
+     *        レベル
+     * @param column
+     *        タイルの列
+     * @param row
+     *        タイルの行
+     * @return タイルの {@link ImageData}
+     */
+    ImageData getTile(final int level, final int column, final int row) {
+        Rectangle bounds = getTileBounds(level, column, row);
+        ImageData imageData = getLevel(level);
+        if (bounds.x == 0 && bounds.y == 0 && bounds.width == imageData.width
+                && bounds.height == imageData.height) {
+            return imageData;
+        }
+        return ImageDataUtil.crop(imageData, bounds.x, bounds.y, bounds.width, bounds.height);
+    }
+}
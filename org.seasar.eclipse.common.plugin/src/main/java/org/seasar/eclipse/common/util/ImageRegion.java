@@ -0,0 +1,147 @@
+/*
+ * Copyright 2004-2008 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.eclipse.common.util;
+
+import org.eclipse.swt.graphics.GC;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.Rectangle;
+
+/**
+ * {@link ImageAtlas} 上の 1 つのイメージの領域を表すクラスです。<br />
+ * <p>
+ * 本クラスは、ネイティブイメージを持たない軽量なハンドルです。
+ * 描画は {@link #draw(GC, int, int)} メソッドで、アトラスのページから直接行います。<br />
+ * ウィジェットの API が {@link Image} オブジェクトを要求する場合に限り、{@link #getImage()}
+ * メソッドで単独の {@link Image} オブジェクトを取り出してください。
+ * </p>
+ * 
+ * @author y-komori
+ */
+public class ImageRegion {
+    private final ImageAtlas atlas;
+
+    private final String key;
+
+    private final int page;
+
+    private final Rectangle bounds;
+
+    ImageRegion(final ImageAtlas atlas, final String key, final int page, final Rectangle bounds) {
+        this.atlas = atlas;
+        this.key = key;
+        this.page = page;
+        this.bounds = bounds;
+    }
+
+    /**
+     * キーを返します。<br />
+     * 
+     * @return キー
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * この領域を含むページの {@link Image} オブジェクトを返します。<br />
+     * 
+     * @return ページの {@link Image} オブジェクト
+     */
+    public Image getPageImage() {
+        return atlas.getPage(page);
+    }
+
+    /**
+     * ページの番号を返します。<br />
+     * 
+     * @return ページの番号
+     */
+    int getPage() {
+        return page;
+    }
+
+    /**
+     * ページ上での領域を返します。<br />
+     * 
+     * @return ページ上での領域
+     */
+    public Rectangle getBounds() {
+        return new Rectangle(bounds.x, bounds.y, bounds.width, bounds.height);
+    }
+
+    /**
+     * 領域の幅を返します。<br />
+     * 
+     * @return 幅
+     */
+    public int getWidth() {
+        return bounds.width;
+    }
+
+    /**
+     * 領域の高さを返します。<br />
+     * 
+     * @return 高さ
+     */
+    public int getHeight() {
+        return bounds.height;
+    }
+
+    /**
+     * イメージを原寸で描画します。<br />
+     * 
+     * @param gc
+     *        描画先の {@link GC} オブジェクト
+     * @param x
+     *        描画先の X 座標
+     * @param y
+     *        描画先の Y 座標
+     */
+    public void draw(final GC gc, final int x, final int y) {
+        draw(gc, x, y, bounds.width, bounds.height);
+    }
+
+    /**
+     * イメージを指定された大きさに拡大・縮小して描画します。<br />
+     * 
+     * @param gc
+     *        描画先の {@link GC} オブジェクト
+     * @param x
+     *        描画先の X 座標
+     * @param y
+     *        描画先の Y 座標
+     * @param width
+     *        描画先の幅
+     * @param height
+     *        描画先の高さ
+     */
+    public void draw(final GC gc, final int x, final int y, final int width, final int height) {
+        gc.drawImage(getPageImage(), bounds.x, bounds.y, bounds.width, bounds.height, x, y, width,
+                height);
+    }
+
+    /**
+     * この領域を単独の {@link Image} オブジェクトとして返します。<br />
+     * <p>
+     * {@link Image} オブジェクトは初回の呼び出し時に生成され、{@link ImageAtlas} が破棄されるときに破棄されます。
+     * </p>
+     * 
+     * @return {@link Image} オブジェクト
+     */
+    public Image getImage() {
+        return atlas.extract(this);
+    }
+}
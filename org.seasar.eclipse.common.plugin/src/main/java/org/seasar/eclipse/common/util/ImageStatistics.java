@@ -0,0 +1,379 @@
+/*
+ * Copyright 2004-2008 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.eclipse.common.util;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.swt.graphics.Image;
+
+/**
+ * {@link ImageManager} の実行時統計情報を保持するクラスです。<br />
+ * <p>
+ * 以下の情報を記録します。
+ * <ul>
+ * <li>{@link ImageManager#getImage(String)} のヒット数・ミス数
+ * <li>{@link ImageManager#loadImage(String)} のヒット数・ミス数
+ * <li>イメージの種類({@link SourceType})ごとの、{@link Image} オブジェクト生成までの処理時間の分布
+ * <li>生成済みの {@link Image} オブジェクトの数と、推定ピクセルバイト数
+ * <li>パレットの圧縮によってインデックスカラーに変換したイメージの数と、削減したピクセルバイト数
+ * </ul>
+ * カウンタの参照は任意のスレッドから行うことができます。
+ * </p>
+ * 
+ * @author y-komori
+ */
+public class ImageStatistics {
+    /**
+     * イメージの読み込み元の種類です。<br />
+     */
+    public enum SourceType {
+        /** クラスパス上のパス */
+        PATH,
+        /** URL */
+        URL,
+        /** {@link org.eclipse.swt.graphics.ImageData} */
+        IMAGE_DATA,
+        /** 登録済みの {@link org.eclipse.jface.resource.ImageDescriptor} からの遅延生成 */
+        DESCRIPTOR,
+        /** 使用履歴に基づく、バックグラウンドでの事前読み込み */
+        PREFETCH
+    }
+
+    private final AtomicLong lookupHits = new AtomicLong();
+
+    private final AtomicLong lookupMisses = new AtomicLong();
+
+    private final AtomicLong loadHits = new AtomicLong();
+
+    private final AtomicLong loadMisses = new AtomicLong();
+
+    private final AtomicLong compactedImages = new AtomicLong();
+
+    private final AtomicLong compactionSavedBytes = new AtomicLong();
+
+    private final Map<SourceType, LatencyHistogram> histograms = new HashMap<SourceType, LatencyHistogram>();
+
+    /**
+     * キーと記録済みのオブジェクトのマップです。更新はモニタを取得して行いますが、記録済みかどうかの確認はロックを伴いません。
+     */
+    private final Map<String, Object> liveKeys = new ConcurrentHashMap<String, Object>();
+
+    private final Map<Object, long[]> liveImages = new IdentityHashMap<Object, long[]>();
+
+    private volatile int liveImageCount;
+
+    private volatile long pixelBytes;
+
+    /**
+     * {@link ImageStatistics} を構築します。<br />
+     */
+    public ImageStatistics() {
+        for (SourceType type : SourceType.values()) {
+            histograms.put(type, new LatencyHistogram());
+        }
+    }
+
+    /**
+     * {@link ImageManager#getImage(String)} のヒットを記録します。<br />
+     */
+    public void recordLookupHit() {
+        lookupHits.incrementAndGet();
+    }
+
+    /**
+     * {@link ImageManager#getImage(String)} のミスを記録します。<br />
+     */
+    public void recordLookupMiss() {
+        lookupMisses.incrementAndGet();
+    }
+
+    /**
+     * {@link ImageManager#loadImage(String)} のヒットを記録します。<br />
+     */
+    public void recordLoadHit() {
+        loadHits.incrementAndGet();
+    }
+
+    /**
+     * {@link ImageManager#loadImage(String)} のミスを記録します。<br />
+     */
+    public void recordLoadMiss() {
+        loadMisses.incrementAndGet();
+    }
+
+    /**
+     * パレットの圧縮によって {@link org.eclipse.swt.graphics.ImageData} をインデックスカラーに変換したことを記録します。<br />
+     * 
+     * @param bytesBefore
+     *        変換前のピクセルバイト数
+     * @param bytesAfter
+     *        変換後のピクセルバイト数
+     */
+    public void recordCompaction(final long bytesBefore, final long bytesAfter) {
+        compactedImages.incrementAndGet();
+        compactionSavedBytes.addAndGet(bytesBefore - bytesAfter);
+    }
+
+    /**
+     * {@link Image} オブジェクトの生成にかかった時間を記録します。<br />
+     * 
+     * @param type
+     *        読み込み元の種類
+     * @param nanos
+     *        処理時間(ナノ秒)
+     */
+    public void recordDecode(final SourceType type, final long nanos) {
+        histograms.get(type).record(nanos);
+    }
+
+    /**
+     * キーに対応する {@link Image} オブジェクトを記録します。<br />
+     * 
+     * @param key
+     *        キー
+     * @param image
+     *        {@link Image} オブジェクト
+     * @return {@link Image} オブジェクトが新たに生成されたものとして記録された場合は <code>true</code>
+     */
+    public boolean track(final String key, final Image image) {
+        // 既に記録済みであれば、ネイティブ呼び出しを伴う重みの計算とロックの取得を行わない
+        if (image == null || liveKeys.get(key) == image) {
+            return false;
+        }
+        return track(key, image, ImageCache.weigh(image));
+    }
+
+    /**
+     * キーに対応するオブジェクトを、指定した重みで記録します。<br />
+     * <p>
+     * 複数のキーが同じオブジェクトを共有している場合、そのオブジェクトは一度だけ数えられます。<br />
+     * 既に他のキーで記録されているオブジェクトの場合、<code>false</code> を返します。
+     * </p>
+     * 
+     * @param key
+     *        キー
+     * @param image
+     *        記録するオブジェクト
+     * @param weight
+     *        ピクセルバイト数
+     * @return オブジェクトが新たに生成されたものとして記録された場合は <code>true</code>
+     */
+    public synchronized boolean track(final String key, final Object image, final long weight) {
+        Object previous = liveKeys.put(key, image);
+        if (previous == image) {
+            return false;
+        }
+        if (previous != null) {
+            release(previous);
+        }
+        long[] entry = liveImages.get(image);
+        if (entry == null) {
+            liveImages.put(image, new long[] { 1, weight });
+            liveImageCount++;
+            pixelBytes += weight;
+            return true;
+        }
+        entry[0]++;
+        return false;
+    }
+
+    /**
+     * キーに対応するオブジェクトの記録を削除します。<br />
+     * 
+     * @param key
+     *        キー
+     */
+    public synchronized void untrack(final String key) {
+        Object previous = liveKeys.remove(key);
+        if (previous != null) {
+            release(previous);
+        }
+    }
+
+    /**
+     * {@link ImageManager#getImage(String)} のヒット数を返します。<br />
+     * <p>
+     * 生成済みの {@link Image} オブジェクトを返した場合をヒットとします。
+     * </p>
+     * 
+     * @return ヒット数
+     */
+    public long getLookupHitCount() {
+        return lookupHits.get();
+    }
+
+    /**
+     * {@link ImageManager#getImage(String)} のミス数を返します。<br />
+     * <p>
+     * キーが登録されていなかった場合と、{@link Image} オブジェクトを(再)生成した場合をミスとします。
+     * </p>
+     * 
+     * @return ミス数
+     */
+    public long getLookupMissCount() {
+        return lookupMisses.get();
+    }
+
+    /**
+     * {@link ImageManager#getImage(String)} のヒット率を返します。<br />
+     * 
+     * @return <code>0.0</code> 以上 <code>1.0</code> 以下のヒット率
+     */
+    public double getLookupHitRatio() {
+        return ratio(lookupHits.get(), lookupMisses.get());
+    }
+
+    /**
+     * {@link ImageManager#loadImage(String)} のヒット数を返します。<br />
+     * 
+     * @return ヒット数
+     */
+    public long getLoadHitCount() {
+        return loadHits.get();
+    }
+
+    /**
+     * {@link ImageManager#loadImage(String)} のミス数を返します。<br />
+     * <p>
+     * レジストリに登録されておらず、リソースを読み込んだ場合をミスとします。
+     * </p>
+     * 
+     * @return ミス数
+     */
+    public long getLoadMissCount() {
+        return loadMisses.get();
+    }
+
+    /**
+     * {@link ImageManager#loadImage(String)} のヒット率を返します。<br />
+     * 
+     * @return <code>0.0</code> 以上 <code>1.0</code> 以下のヒット率
+     */
+    public double getLoadHitRatio() {
+        return ratio(loadHits.get(), loadMisses.get());
+    }
+
+    /**
+     * 読み込み元の種類ごとの処理時間の分布を返します。<br />
+     * 
+     * @param type
+     *        読み込み元の種類
+     * @return {@link LatencyHistogram} オブジェクト
+     */
+    public LatencyHistogram getDecodeHistogram(final SourceType type) {
+        return histograms.get(type);
+    }
+
+    /**
+     * 生成済みの {@link Image} オブジェクトの数を返します。<br />
+     * 
+     * @return {@link Image} オブジェクトの数
+     */
+    public int getLiveImageCount() {
+        return liveImageCount;
+    }
+
+    /**
+     * 生成済みの {@link Image} オブジェクトの推定ピクセルバイト数を返します。<br />
+     * 
+     * @return ピクセルバイト数
+     */
+    public long getPixelBytes() {
+        return pixelBytes;
+    }
+
+    /**
+     * パレットの圧縮によってインデックスカラーに変換したイメージの数を返します。<br />
+     * 
+     * @return イメージの数
+     */
+    public long getCompactedImageCount() {
+        return compactedImages.get();
+    }
+
+    /**
+     * パレットの圧縮によって削減したピクセルバイト数の合計を返します。<br />
+     * 
+     * @return 削減したピクセルバイト数
+     */
+    public long getCompactionSavedBytes() {
+        return compactionSavedBytes.get();
+    }
+
+    /**
+     * ヒット数・ミス数、処理時間、パレットの圧縮の記録を消去します。<br />
+     * <p>
+     * 生成済みの {@link Image} オブジェクトの記録は消去しません。
+     * </p>
+     */
+    public void reset() {
+        lookupHits.set(0);
+        lookupMisses.set(0);
+        loadHits.set(0);
+        loadMisses.set(0);
+        compactedImages.set(0);
+        compactionSavedBytes.set(0);
+        for (LatencyHistogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * 生成済みの {@link Image} オブジェクトの記録を消去します。<br />
+     */
+    public synchronized void clearLiveImages() {
+        liveKeys.clear();
+        liveImages.clear();
+        liveImageCount = 0;
+        pixelBytes = 0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("ImageManager statistics: liveImages=").append(getLiveImageCount());
+        builder.append(", pixelBytes=").append(getPixelBytes());
+        builder.append(", getImage[hits=").append(getLookupHitCount());
+        builder.append(", misses=").append(getLookupMissCount()).append("]");
+        builder.append(", loadImage[hits=").append(getLoadHitCount());
+        builder.append(", misses=").append(getLoadMissCount()).append("]");
+        builder.append(", paletteCompaction[images=").append(getCompactedImageCount());
+        builder.append(", savedBytes=").append(getCompactionSavedBytes()).append("]");
+        for (SourceType type : SourceType.values()) {
+            builder.append("\n  decode[").append(type).append("] ");
+            builder.append(histograms.get(type));
+        }
+        return builder.toString();
+    }
+
+    private void release(final Object image) {
+        long[] entry = liveImages.get(image);
+        if (entry != null && --entry[0] == 0) {
+            liveImages.remove(image);
+            liveImageCount--;
+            pixelBytes -= entry[1];
+        }
+    }
+
+    private static double ratio(final long hits, final long misses) {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+}
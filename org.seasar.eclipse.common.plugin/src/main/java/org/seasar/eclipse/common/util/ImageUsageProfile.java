@@ -0,0 +1,262 @@
+/*
+ * Copyright 2004-2008 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.eclipse.common.util;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.Plugin;
+import org.seasar.framework.exception.IORuntimeException;
+import org.seasar.framework.log.Logger;
+
+/**
+ * セッション中に使用されたイメージのキーを記録し、次回の起動時に事前読み込みを行うためのクラスです。<br />
+ * <p>
+ * {@link ImageManager#getImage(String)} メソッドなどで最初に参照された順にキーを記録し、{@link #save()}
+ * メソッドでファイルへ保存します。次回の起動時には、保存されたキーを {@link #getPreviousKeys()} メソッドで参照できます。<br />
+ * {@link ImageManager#setUsageProfile(ImageUsageProfile)} メソッドで設定すると、前回のセッションで使用されたイメージを
+ * 優先度の低いバックグラウンドのジョブで事前にデコードし、すべてのレジストリが破棄されるときに今回のセッションの記録を保存します。<br />
+ * 本クラスはスレッドセーフです。
+ * </p>
+ * <p>
+ * コーディング例
+ * </p>
+ * 
+ * <pre>
+ * ImageManager.loadImages(&quot;org/seasar/xxx/images&quot;);
+ * ImageManager.setUsageProfile(ImageUsageProfile.create(MyPlugin.getDefault()));
+ * </pre>
+ * 
+ * @author y-komori
+ */
+public class ImageUsageProfile {
+    /**
+     * プラグインの状態ロケーションに作成する記録ファイルの名前です。<br />
+     */
+    public static final String PROFILE_FILE = "imageusage.prof";
+
+    /**
+     * 記録するキーの数の既定の上限です。<br />
+     */
+    public static final int DEFAULT_MAX_KEYS = 1024;
+
+    private static final int MAGIC = 0x53325550;
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int MAX_KEY_BYTES = 0x10000;
+
+    private static final Logger logger = Logger.getLogger(ImageUsageProfile.class);
+
+    private final File file;
+
+    private final int maxKeys;
+
+    private final List<String> previousKeys;
+
+    private final ConcurrentMap<String, Integer> usedKeys = new ConcurrentHashMap<String, Integer>();
+
+    private final AtomicInteger sequence = new AtomicInteger();
+
+    /**
+     * {@link ImageUsageProfile} を構築します。<br />
+     * <p>
+     * {@code file} が存在する場合、前回のセッションの記録として読み込みます。
+     * </p>
+     * 
+     * @param file
+     *        記録ファイル
+     */
+    public ImageUsageProfile(final File file) {
+        this(file, DEFAULT_MAX_KEYS);
+    }
+
+    /**
+     * {@link ImageUsageProfile} を構築します。<br />
+     * <p>
+     * {@code file} が存在する場合、前回のセッションの記録として読み込みます。
+     * 記録ファイルが壊れている場合は、前回の記録がないものとして扱います。
+     * </p>
+     * 
+     * @param file
+     *        記録ファイル
+     * @param maxKeys
+     *        記録するキーの数の上限
+     */
+    public ImageUsageProfile(final File file, final int maxKeys) {
+        this.file = file;
+        this.maxKeys = maxKeys;
+        this.previousKeys = Collections.unmodifiableList(read(file, maxKeys));
+    }
+
+    /**
+     * プラグインの状態ロケーションの記録ファイルを使用する {@link ImageUsageProfile} を作成します。<br />
+     * 
+     * @param plugin
+     *        プラグイン
+     * @return {@link ImageUsageProfile} オブジェクト
+     */
+    public static ImageUsageProfile create(final Plugin plugin) {
+        return new ImageUsageProfile(plugin.getStateLocation().append(PROFILE_FILE).toFile());
+    }
+
+    /**
+     * 記録ファイルを返します。<br />
+     * 
+     * @return 記録ファイル
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * 前回のセッションで使用されたキーを、最初に使用された順に返します。<br />
+     * 
+     * @return キーのリスト。前回の記録がない場合は空のリスト。
+     */
+    public List<String> getPreviousKeys() {
+        return previousKeys;
+    }
+
+    /**
+     * キーが使用されたことを記録します。<br />
+     * <p>
+     * 既に記録されているキーや、記録したキーの数が上限に達した後のキーは無視します。
+     * </p>
+     * 
+     * @param key
+     *        キー
+     */
+    public void record(final String key) {
+        if (usedKeys.containsKey(key) || sequence.get() >= maxKeys) {
+            return;
+        }
+        usedKeys.putIfAbsent(key, new Integer(sequence.getAndIncrement()));
+    }
+
+    /**
+     * 今回のセッションで使用されたキーを、最初に使用された順に返します。<br />
+     * 
+     * @return キーのリスト
+     */
+    public List<String> getRecordedKeys() {
+        String[] keys = new String[sequence.get()];
+        for (Map.Entry<String, Integer> entry : usedKeys.entrySet()) {
+            int index = entry.getValue().intValue();
+            if (index < keys.length) {
+                keys[index] = entry.getKey();
+            }
+        }
+        List<String> result = new ArrayList<String>(keys.length);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                result.add(keys[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 今回のセッションで使用されたキーを記録ファイルへ保存します。<br />
+     * <p>
+     * 一つもキーが使用されていない場合、記録ファイルは更新しません。
+     * </p>
+     * 
+     * @throws IORuntimeException
+     *         記録ファイルの書き込みに失敗した場合
+     */
+    public void save() {
+        List<String> keys = getRecordedKeys();
+        if (keys.isEmpty()) {
+            return;
+        }
+        try {
+            write(file, keys);
+        } catch (IOException ex) {
+            throw new IORuntimeException(ex);
+        }
+    }
+
+    private static void write(final File file, final List<String> keys) throws IOException {
+        File directory = file.getAbsoluteFile().getParentFile();
+        directory.mkdirs();
+        File temp = File.createTempFile("imageusage", ".tmp", directory);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(temp)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(keys.size());
+            for (String key : keys) {
+                byte[] bytes = ImageDataCache.toBytes(key);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            out.flush();
+        } finally {
+            out.close();
+        }
+        file.delete();
+        if (!temp.renameTo(file)) {
+            temp.delete();
+        }
+    }
+
+    private static List<String> read(final File file, final int maxKeys) {
+        List<String> keys = new ArrayList<String>();
+        if (!file.exists()) {
+            return keys;
+        }
+        try {
+            DataInputStream in = new DataInputStream(new FileInputStream(file));
+            try {
+                if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                    return keys;
+                }
+                int count = Math.min(in.readInt(), maxKeys);
+                for (int i = 0; i < count; i++) {
+                    int length = in.readInt();
+                    if (length < 0 || length > MAX_KEY_BYTES) {
+                        break;
+                    }
+                    byte[] bytes = new byte[length];
+                    in.readFully(bytes);
+                    keys.add(new String(bytes, "UTF-8"));
+                }
+            } finally {
+                in.close();
+            }
+        } catch (EOFException ex) {
+            logger.warn("Image usage profile is truncated. file=" + file, ex);
+        } catch (IOException ex) {
+            logger.warn("Failed to read image usage profile. file=" + file, ex);
+        }
+        return keys;
+    }
+}
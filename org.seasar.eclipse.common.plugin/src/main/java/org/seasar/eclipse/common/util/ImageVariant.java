@@ -0,0 +1,135 @@
+/*
+ * Copyright 2004-2008 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.eclipse.common.util;
+
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.RGB;
+
+/**
+ * 登録されたイメージから作成する変種を表すクラスです。<br />
+ * <p>
+ * {@link ImageManager#getImage(String, ImageVariant)} メソッドに指定します。
+ * 変種の作成には {@link ImageDataUtil} を使用します。
+ * </p>
+ * 
+ * @author y-komori
+ */
+public class ImageVariant {
+    /**
+     * 無効状態を表す、淡いグレースケールの変種です。<br />
+     * 
+     * @see ImageDataUtil#disable(ImageData)
+     */
+    public static final ImageVariant DISABLED = new ImageVariant(Kind.DISABLED, null, 0);
+
+    /**
+     * グレースケールの変種です。<br />
+     * 
+     * @see ImageDataUtil#grayscale(ImageData)
+     */
+    public static final ImageVariant GRAY = new ImageVariant(Kind.GRAY, null, 0);
+
+    /**
+     * {@link #tinted(RGB)} メソッドで着色する割合です。<br />
+     */
+    public static final int DEFAULT_TINT_AMOUNT = 128;
+
+    private enum Kind {
+        DISABLED, GRAY, TINTED
+    }
+
+    private final Kind kind;
+
+    private final RGB color;
+
+    private final int amount;
+
+    private ImageVariant(final Kind kind, final RGB color, final int amount) {
+        this.kind = kind;
+        this.color = color;
+        this.amount = amount;
+    }
+
+    /**
+     * 指定した色で着色した変種を返します。<br />
+     * 
+     * @param color
+     *        着色する色
+     * @return {@link ImageVariant} オブジェクト
+     */
+    public static ImageVariant tinted(final RGB color) {
+        return tinted(color, DEFAULT_TINT_AMOUNT);
+    }
+
+    /**
+     * 指定した色で着色した変種を返します。<br />
+     * 
+     * @param color
+     *        着色する色
+     * @param amount
+     *        {@code color} の割合(<code>0</code> ~ <code>255</code>)
+     * @return {@link ImageVariant} オブジェクト
+     * @see ImageDataUtil#tint(ImageData, RGB, int)
+     */
+    public static ImageVariant tinted(final RGB color, final int amount) {
+        if (color == null) {
+            throw new NullPointerException("color");
+        }
+        return new ImageVariant(Kind.TINTED, new RGB(color.red, color.green, color.blue), Math
+                .max(0, Math.min(255, amount)));
+    }
+
+    /**
+     * 元のイメージから変種を作成します。<br />
+     * 
+     * @param imageData
+     *        元のイメージ
+     * @return 変種の {@link ImageData}
+     */
+    public ImageData apply(final ImageData imageData) {
+        switch (kind) {
+        case DISABLED:
+            return ImageDataUtil.disable(imageData);
+        case GRAY:
+            return ImageDataUtil.grayscale(imageData);
+        default:
+            return ImageDataUtil.tint(imageData, color, amount);
+        }
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (!(o instanceof ImageVariant)) {
+            return false;
+        }
+        ImageVariant other = (ImageVariant) o;
+        return kind == other.kind && amount == other.amount
+                && (color == null ? other.color == null : color.equals(other.color));
+    }
+
+    @Override
+    public int hashCode() {
+        return kind.hashCode() * 31 + (color != null ? color.hashCode() : 0) + amount;
+    }
+
+    @Override
+    public String toString() {
+        if (kind != Kind.TINTED) {
+            return kind.name();
+        }
+        return "TINTED(" + color.red + "," + color.green + "," + color.blue + "," + amount + ")";
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2004-2008 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.eclipse.common.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 処理時間の分布を記録するヒストグラムです。<br />
+ * <p>
+ * 処理時間はマイクロ秒単位で 2 の累乗ごとのバケットに分類されます。バケット <code>0</code> は 1
+ * マイクロ秒未満、バケット <code>i</code> は 2<sup>i-1</sup> 以上 2<sup>i</sup>
+ * マイクロ秒未満を表し、最後のバケットはそれ以上のすべてを表します。<br />
+ * 本クラスはスレッドセーフであり、記録はロックを伴いません。
+ * </p>
+ * 
+ * @author y-komori
+ */
+public class LatencyHistogram {
+    /**
+     * バケットの数です。<br />
+     */
+    public static final int BUCKET_COUNT = 24;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+    private final AtomicLong count = new AtomicLong();
+
+    private final AtomicLong totalNanos = new AtomicLong();
+
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * 処理時間を記録します。<br />
+     * 
+     * @param nanos
+     *        処理時間(ナノ秒)
+     */
+    public void record(final long nanos) {
+        long value = Math.max(0, nanos);
+        buckets.incrementAndGet(getBucketIndex(value));
+        count.incrementAndGet();
+        totalNanos.addAndGet(value);
+        long max;
+        while ((max = maxNanos.get()) < value) {
+            if (maxNanos.compareAndSet(max, value)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * 記録された回数を返します。<br />
+     * 
+     * @return 記録された回数
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * 記録された処理時間の合計を返します。<br />
+     * 
+     * @return 処理時間の合計(ナノ秒)
+     */
+    public long getTotalNanos() {
+        return totalNanos.get();
+    }
+
+    /**
+     * 記録された処理時間の平均を返します。<br />
+     * 
+     * @return 処理時間の平均(ナノ秒)。記録がない場合は <code>0</code>。
+     */
+    public long getMeanNanos() {
+        long n = count.get();
+        return n == 0 ? 0 : totalNanos.get() / n;
+    }
+
+    /**
+     * 記録された処理時間の最大値を返します。<br />
+     * 
+     * @return 処理時間の最大値(ナノ秒)
+     */
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * 指定したバケットに記録された回数を返します。<br />
+     * 
+     * @param index
+     *        バケットのインデックス
+     * @return 記録された回数
+     */
+    public long getBucketCount(final int index) {
+        return buckets.get(index);
+    }
+
+    /**
+     * 指定したバケットの上限値を返します。<br />
+     * 
+     * @param index
+     *        バケットのインデックス
+     * @return 上限値(ナノ秒)。最後のバケットの場合は {@link Long#MAX_VALUE}。
+     */
+    public static long getBucketUpperBoundNanos(final int index) {
+        if (index >= BUCKET_COUNT - 1) {
+            return Long.MAX_VALUE;
+        }
+        return (1L << index) * 1000L;
+    }
+
+    /**
+     * 指定したパーセンタイルの処理時間の上限を返します。<br />
+     * <p>
+     * 値はバケットの上限値で近似されます。ただし、記録された最大値を超えることはありません。
+     * </p>
+     * 
+     * @param percentile
+     *        <code>0.0</code> より大きく <code>100.0</code> 以下のパーセンタイル
+     * @return 処理時間(ナノ秒)。記録がない場合は <code>0</code>。
+     */
+    public long getPercentileNanos(final double percentile) {
+        long n = count.get();
+        if (n == 0) {
+            return 0;
+        }
+        long threshold = Math.max(1, (long) Math.ceil(n * percentile / 100.0));
+        long cumulative = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            cumulative += buckets.get(i);
+            if (cumulative >= threshold) {
+                return Math.min(getBucketUpperBoundNanos(i), maxNanos.get());
+            }
+        }
+        return maxNanos.get();
+    }
+
+    /**
+     * 記録をすべて消去します。<br />
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        totalNanos.set(0);
+        maxNanos.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + getCount() + ", mean=" + toMicros(getMeanNanos()) + "us, p50<="
+                + toMicros(getPercentileNanos(50)) + "us, p90<="
+                + toMicros(getPercentileNanos(90)) + "us, p99<="
+                + toMicros(getPercentileNanos(99)) + "us, max=" + toMicros(getMaxNanos())
+                + "us";
+    }
+
+    protected static int getBucketIndex(final long nanos) {
+        long micros = nanos / 1000L;
+        int index = 0;
+        while (micros > 0 && index < BUCKET_COUNT - 1) {
+            micros >>>= 1;
+            index++;
+        }
+        return index;
+    }
+
+    private static long toMicros(final long nanos) {
+        return nanos / 1000L;
+    }
+}
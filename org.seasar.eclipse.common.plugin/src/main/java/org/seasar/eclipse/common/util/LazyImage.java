@@ -0,0 +1,113 @@
+/*
+ * Copyright 2004-2008 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.eclipse.common.util;
+
+import org.eclipse.jface.resource.ImageDescriptor;
+import org.eclipse.jface.resource.ImageRegistry;
+import org.eclipse.swt.graphics.Image;
+
+/**
+ * 最初に使用されるまで {@link Image} オブジェクトの生成を遅延させるハンドルです。<br />
+ * <p>
+ * {@link ImageManager#injectImages(Class)} メソッドや {@link StaticImageLoader}
+ * は、本クラス型の {@code public static} フィールドに対して、ネイティブイメージを生成せずに本クラスのインスタンスをインジェクションします。<br />
+ * {@link Image} オブジェクトは、{@link #getImage()} メソッドが最初に呼び出されたときに生成されます。
+ * </p>
+ * 
+ * <pre>
+ *   public class ImageHolder() {
+ *     public static LazyImage IMAGE_A;
+ *   }
+ * </pre>
+ * 
+ * <pre>
+ * ImageManager.injectImages(ImageHolder.class);
+ * label.setImage(ImageHolder.IMAGE_A.getImage());
+ * </pre>
+ * 
+ * @author y-komori
+ */
+public class LazyImage {
+    private final ImageRegistry registry;
+
+    private final String key;
+
+    /**
+     * {@link ImageManager} が管理するイメージを参照する {@link LazyImage} を構築します。<br />
+     * 
+     * @param key
+     *        キー
+     */
+    public LazyImage(final String key) {
+        this(null, key);
+    }
+
+    /**
+     * 指定された {@link ImageRegistry} が管理するイメージを参照する {@link LazyImage} を構築します。<br />
+     * 
+     * @param registry
+     *        {@link ImageRegistry} オブジェクト。<code>null</code> の場合は {@link ImageManager} を参照します。
+     * @param key
+     *        キー
+     */
+    public LazyImage(final ImageRegistry registry, final String key) {
+        this.registry = registry;
+        this.key = key;
+    }
+
+    /**
+     * キーを返します。<br />
+     * 
+     * @return キー
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * {@link Image} オブジェクトを返します。<br />
+     * <p>
+     * {@link Image} オブジェクトがまだ生成されていない場合は、ここで生成されます。<br />
+     * {@link ImageManager} のキャッシュによって破棄されている場合も再生成されるため、
+     * 戻り値を長期間保持せず、使用する都度本メソッドを呼び出してください。
+     * </p>
+     * 
+     * @return {@link Image} オブジェクト。見つからない場合は <code>null</code>。
+     */
+    public Image getImage() {
+        if (registry != null) {
+            return registry.get(key);
+        }
+        return ImageManager.getImage(key);
+    }
+
+    /**
+     * {@link ImageDescriptor} オブジェクトを返します。<br />
+     * 
+     * @return {@link ImageDescriptor} オブジェクト。見つからない場合は <code>null</code>。
+     */
+    public ImageDescriptor getImageDescriptor() {
+        if (registry != null) {
+            return registry.getDescriptor(key);
+        }
+        return ImageManager.getImageDescriptor(key);
+    }
+
+    @Override
+    public String toString() {
+        return "LazyImage(" + key + ")";
+    }
+}
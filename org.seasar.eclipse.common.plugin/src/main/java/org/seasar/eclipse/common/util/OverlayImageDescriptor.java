@@ -0,0 +1,132 @@
+/*
+ * Copyright 2004-2008 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.eclipse.common.util;
+
+import java.util.Arrays;
+
+import org.eclipse.jface.resource.CompositeImageDescriptor;
+import org.eclipse.jface.resource.ImageDescriptor;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.Point;
+import org.seasar.eclipse.common.util.ImageOverlay.Position;
+
+/**
+ * ベースとなるイメージにオーバーレイイメージを重ねて描画する {@link ImageDescriptor} です。<br />
+ * <p>
+ * イメージの大きさはベースとなるイメージと同じです。オーバーレイイメージは指定された順に、指定された隅へ描画されます。<br />
+ * 同じイメージと描画位置の組み合わせを持つ {@link OverlayImageDescriptor} は等しいものとして扱われます。
+ * </p>
+ * 
+ * @author y-komori
+ */
+public class OverlayImageDescriptor extends CompositeImageDescriptor {
+    private final ImageDescriptor base;
+
+    private final ImageDescriptor[] overlays;
+
+    private final Position[] positions;
+
+    private Point size;
+
+    /**
+     * {@link OverlayImageDescriptor} を構築します。<br />
+     * 
+     * @param base
+     *        ベースとなるイメージの {@link ImageDescriptor}
+     * @param overlays
+     *        オーバーレイイメージの {@link ImageDescriptor}。<code>null</code> の要素は描画しません。
+     * @param positions
+     *        各オーバーレイイメージの描画位置
+     * @throws IllegalArgumentException
+     *         {@code overlays} と {@code positions} の長さが異なる場合
+     */
+    public OverlayImageDescriptor(final ImageDescriptor base, final ImageDescriptor[] overlays,
+            final Position[] positions) {
+        if (overlays.length != positions.length) {
+            throw new IllegalArgumentException("overlays.length != positions.length");
+        }
+        this.base = base;
+        this.overlays = overlays.clone();
+        this.positions = positions.clone();
+    }
+
+    /**
+     * ベースとなるイメージの {@link ImageDescriptor} を返します。<br />
+     * 
+     * @return {@link ImageDescriptor} オブジェクト
+     */
+    public ImageDescriptor getBase() {
+        return base;
+    }
+
+    @Override
+    protected void drawCompositeImage(final int width, final int height) {
+        ImageData baseData = base.getImageData();
+        if (baseData == null) {
+            baseData = DEFAULT_IMAGE_DATA;
+        }
+        drawImage(baseData, 0, 0);
+        for (int i = 0; i < overlays.length; i++) {
+            ImageData overlayData = overlays[i] != null ? overlays[i].getImageData() : null;
+            if (overlayData == null) {
+                continue;
+            }
+            int x = 0;
+            int y = 0;
+            Position position = positions[i];
+            if (position == Position.TOP_RIGHT || position == Position.BOTTOM_RIGHT) {
+                x = width - overlayData.width;
+            }
+            if (position == Position.BOTTOM_LEFT || position == Position.BOTTOM_RIGHT) {
+                y = height - overlayData.height;
+            }
+            drawImage(overlayData, x, y);
+        }
+    }
+
+    @Override
+    protected Point getSize() {
+        if (size == null) {
+            ImageData baseData = base.getImageData();
+            if (baseData == null) {
+                baseData = DEFAULT_IMAGE_DATA;
+            }
+            size = new Point(baseData.width, baseData.height);
+        }
+        return size;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (!(o instanceof OverlayImageDescriptor)) {
+            return false;
+        }
+        OverlayImageDescriptor other = (OverlayImageDescriptor) o;
+        return base.equals(other.base) && Arrays.equals(overlays, other.overlays)
+                && Arrays.equals(positions, other.positions);
+    }
+
+    @Override
+    public int hashCode() {
+        return base.hashCode() * 31 + Arrays.hashCode(overlays);
+    }
+
+    @Override
+    public String toString() {
+        return "OverlayImageDescriptor(" + base + ", " + Arrays.asList(overlays) + ", "
+                + Arrays.asList(positions) + ")";
+    }
+}
@@ -0,0 +1,374 @@
+/*
+ * Copyright 2004-2008 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.eclipse.common.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.Plugin;
+import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.graphics.Font;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.Resource;
+import org.eclipse.swt.widgets.Display;
+import org.seasar.framework.log.Logger;
+
+/**
+ * {@link Image}、{@link Color}、{@link Font} などのグラフィックリソースの破棄漏れを検出するためのクラスです。<br />
+ * <p>
+ * 有効にすると、{@link ImageManager}、{@link ColorManager}、{@link FontManager} などの本プラグインのユーティリティが作成した
+ * {@link Resource} オブジェクトを、作成した箇所(スタックトレース)とともに記録します。<br />
+ * {@link #report()} メソッドは、まだ破棄されていないリソースの数を作成箇所ごとに集計し、前回の報告からの増減とともに返します。
+ * 長時間の使用で増え続ける作成箇所が、破棄漏れの候補となります。
+ * </p>
+ * <p>
+ * スタックトレースの取得には時間がかかるため、{@link #setSamplingInterval(int)} メソッドで指定した数のリソースにつき一度だけ取得します。
+ * スタックトレースを取得しなかったリソースは、種類ごとにまとめて集計されます。<br />
+ * 記録は既定では無効です。システムプロパティ {@value #ENABLED_PROPERTY} に <code>true</code> を指定するか、
+ * {@link #setEnabled(boolean)} メソッドで有効にしてください。サンプリングの間隔はシステムプロパティ {@value #SAMPLING_INTERVAL_PROPERTY}
+ * でも指定できます。<br />
+ * 本クラスはスレッドセーフです。
+ * </p>
+ * <p>
+ * コーディング例
+ * </p>
+ * 
+ * <pre>
+ * ResourceLeakDetector.setEnabled(true);
+ * ResourceLeakDetector.reportOnDispose(display, MyPlugin.getDefault());
+ * </pre>
+ * 
+ * @author y-komori
+ */
+public class ResourceLeakDetector {
+    /**
+     * 記録を有効にするためのシステムプロパティの名前です。<br />
+     */
+    public static final String ENABLED_PROPERTY = "org.seasar.eclipse.common.leakDetection";
+
+    /**
+     * サンプリングの間隔を指定するためのシステムプロパティの名前です。<br />
+     */
+    public static final String SAMPLING_INTERVAL_PROPERTY = "org.seasar.eclipse.common.leakDetection.samplingInterval";
+
+    /**
+     * サンプリングの間隔の既定値です。すべてのリソースについてスタックトレースを取得します。<br />
+     */
+    public static final int DEFAULT_SAMPLING_INTERVAL = 1;
+
+    /**
+     * 報告に出力するスタックトレースの最大の深さです。<br />
+     */
+    protected static final int MAX_REPORTED_FRAMES = 8;
+
+    private static final int INITIAL_PURGE_THRESHOLD = 256;
+
+    private static final String NOT_SAMPLED = " (not sampled)";
+
+    private static final Logger logger = Logger.getLogger(ResourceLeakDetector.class);
+
+    private static volatile boolean enabled = Boolean.getBoolean(ENABLED_PROPERTY);
+
+    private static volatile int samplingInterval = Math.max(1, Integer.getInteger(
+            SAMPLING_INTERVAL_PROPERTY, DEFAULT_SAMPLING_INTERVAL).intValue());
+
+    /**
+     * 記録中のリソースと、その作成箇所のマップです。{@link #lock} で保護されます。
+     */
+    private static final Map<Resource, AllocationSite> allocations = new IdentityHashMap<Resource, AllocationSite>();
+
+    private static final Map<String, AllocationSite> sites = new HashMap<String, AllocationSite>();
+
+    private static final Object lock = new Object();
+
+    private static long allocationCount;
+
+    private static int purgeThreshold = INITIAL_PURGE_THRESHOLD;
+
+    private ResourceLeakDetector() {
+    }
+
+    /**
+     * 記録を行うかどうかを設定します。<br />
+     * <p>
+     * 無効にしても、それまでの記録は消去しません。記録を消去するには {@link #clear()} メソッドを呼び出してください。
+     * </p>
+     * 
+     * @param enabled
+     *        記録を行う場合は <code>true</code>
+     */
+    public static void setEnabled(final boolean enabled) {
+        ResourceLeakDetector.enabled = enabled;
+    }
+
+    /**
+     * 記録を行うかどうかを返します。<br />
+     * 
+     * @return 記録を行う場合は <code>true</code>
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * スタックトレースを取得する間隔を設定します。<br />
+     * <p>
+     * {@code interval} 個のリソースにつき一度、スタックトレースを取得します。<code>1</code> を指定すると、すべてのリソースについて取得します。
+     * </p>
+     * 
+     * @param interval
+     *        サンプリングの間隔
+     */
+    public static void setSamplingInterval(final int interval) {
+        if (interval < 1) {
+            throw new IllegalArgumentException("interval=" + interval);
+        }
+        samplingInterval = interval;
+    }
+
+    /**
+     * スタックトレースを取得する間隔を返します。<br />
+     * 
+     * @return サンプリングの間隔
+     */
+    public static int getSamplingInterval() {
+        return samplingInterval;
+    }
+
+    /**
+     * 作成したリソースを記録します。<br />
+     * <p>
+     * 記録が無効な場合や、既に記録しているリソースの場合は何もしません。
+     * </p>
+     * 
+     * @param resource
+     *        作成したリソース
+     */
+    public static void track(final Resource resource) {
+        if (!enabled || resource == null) {
+            return;
+        }
+        boolean sampled;
+        synchronized (lock) {
+            if (allocations.containsKey(resource)) {
+                return;
+            }
+            sampled = ++allocationCount % samplingInterval == 0;
+        }
+        String kind = getKind(resource);
+        Throwable stack = null;
+        String name = kind + NOT_SAMPLED;
+        if (sampled) {
+            stack = new Throwable("Allocation site");
+            name = kind + " at " + findCaller(stack.getStackTrace());
+        }
+        synchronized (lock) {
+            AllocationSite site = sites.get(name);
+            if (site == null) {
+                site = new AllocationSite(name, stack);
+                sites.put(name, site);
+            }
+            site.allocated++;
+            site.live++;
+            allocations.put(resource, site);
+            if (allocations.size() >= purgeThreshold) {
+                purge();
+                purgeThreshold = Math.max(INITIAL_PURGE_THRESHOLD, allocations.size() * 2);
+            }
+        }
+    }
+
+    /**
+     * 記録しているリソースのうち、まだ破棄されていないものの数を返します。<br />
+     * 
+     * @return 破棄されていないリソースの数
+     */
+    public static int getLiveCount() {
+        synchronized (lock) {
+            purge();
+            return allocations.size();
+        }
+    }
+
+    /**
+     * 破棄されていないリソースを作成箇所ごとに集計した報告を返します。<br />
+     * <p>
+     * 破棄されていないリソースの多い順に、作成箇所、破棄されていないリソースの数と前回の報告からの増減、作成したリソースの総数、
+     * およびスタックトレースを出力します。破棄されていないリソースがなく、前回の報告から変化もない作成箇所は出力しません。
+     * </p>
+     * 
+     * @return 報告
+     */
+    public static String report() {
+        synchronized (lock) {
+            purge();
+            List<AllocationSite> sorted = new ArrayList<AllocationSite>(sites.values());
+            Collections.sort(sorted, new Comparator<AllocationSite>() {
+                public int compare(final AllocationSite o1, final AllocationSite o2) {
+                    return o2.live - o1.live;
+                }
+            });
+            StringBuilder builder = new StringBuilder();
+            builder.append("Undisposed graphics resources: live=").append(allocations.size());
+            builder.append(", allocated=").append(allocationCount);
+            builder.append(", samplingInterval=").append(samplingInterval);
+            for (AllocationSite site : sorted) {
+                int growth = site.live - site.reportedLive;
+                site.reportedLive = site.live;
+                if (site.live == 0 && growth == 0) {
+                    continue;
+                }
+                builder.append("\n  ").append(site.name);
+                builder.append(": live=").append(site.live);
+                builder.append(" (").append(growth >= 0 ? "+" : "").append(growth).append(")");
+                builder.append(", allocated=").append(site.allocated);
+                if (site.stack != null) {
+                    StackTraceElement[] frames = site.stack.getStackTrace();
+                    for (int i = 1; i < frames.length && i <= MAX_REPORTED_FRAMES; i++) {
+                        builder.append("\n      at ").append(frames[i]);
+                    }
+                }
+            }
+            return builder.toString();
+        }
+    }
+
+    /**
+     * {@link Display} が破棄されるときに、破棄されていないリソースの報告をプラグインのログへ出力するよう設定します。<br />
+     * <p>
+     * 報告は、記録が有効で、かつ破棄されていないリソースがある場合にのみ出力します。
+     * {@code plugin} に <code>null</code> を指定した場合、{@link Logger} へ出力します。<br />
+     * 本メソッドは {@code display} のスレッドから呼び出してください。
+     * </p>
+     * 
+     * @param display
+     *        {@link Display} オブジェクト
+     * @param plugin
+     *        ログの出力先となるプラグイン
+     */
+    public static void reportOnDispose(final Display display, final Plugin plugin) {
+        display.disposeExec(new Runnable() {
+            public void run() {
+                if (!enabled || getLiveCount() == 0) {
+                    return;
+                }
+                String message = report();
+                if (plugin != null) {
+                    LogUtil.log(plugin, message);
+                } else {
+                    logger.warn(message);
+                }
+            }
+        });
+    }
+
+    /**
+     * すべての記録を消去します。<br />
+     */
+    public static void clear() {
+        synchronized (lock) {
+            allocations.clear();
+            sites.clear();
+            allocationCount = 0;
+            purgeThreshold = INITIAL_PURGE_THRESHOLD;
+        }
+    }
+
+    /**
+     * 破棄されたリソースを記録から取り除き、作成箇所ごとの破棄されていないリソースの数を更新します。<br />
+     * <p>
+     * 呼び出す前に {@link #lock} を取得してください。
+     * </p>
+     */
+    private static void purge() {
+        for (Iterator<Map.Entry<Resource, AllocationSite>> it = allocations.entrySet().iterator(); it
+                .hasNext();) {
+            Map.Entry<Resource, AllocationSite> entry = it.next();
+            if (entry.getKey().isDisposed()) {
+                entry.getValue().live--;
+                it.remove();
+            }
+        }
+    }
+
+    private static String getKind(final Resource resource) {
+        if (resource instanceof Image) {
+            return "Image";
+        } else if (resource instanceof Color) {
+            return "Color";
+        } else if (resource instanceof Font) {
+            return "Font";
+        }
+        String name = resource.getClass().getName();
+        return name.substring(name.lastIndexOf('.') + 1);
+    }
+
+    /**
+     * スタックトレースから、リソースの作成を依頼した箇所を探します。<br />
+     * <p>
+     * 本プラグインのユーティリティと Eclipse のクラスを読み飛ばした、最初のフレームを返します。
+     * 該当するフレームがない場合は、本クラスを呼び出したフレームを返します。
+     * </p>
+     * 
+     * @param frames
+     *        スタックトレース
+     * @return 作成を依頼した箇所
+     */
+    static String findCaller(final StackTraceElement[] frames) {
+        String self = ResourceLeakDetector.class.getName();
+        String utilPackage = self.substring(0, self.lastIndexOf('.') + 1);
+        StackTraceElement fallback = null;
+        for (int i = 0; i < frames.length; i++) {
+            String className = frames[i].getClassName();
+            if (className.startsWith(self)) {
+                continue;
+            }
+            if (fallback == null) {
+                fallback = frames[i];
+            }
+            if (!className.startsWith(utilPackage) && !className.startsWith("org.eclipse.")) {
+                return frames[i].toString();
+            }
+        }
+        return fallback != null ? fallback.toString() : "unknown";
+    }
+
+    /**
+     * リソースの作成箇所ごとの集計です。<br />
+     */
+    private static class AllocationSite {
+        final String name;
+
+        final Throwable stack;
+
+        int allocated;
+
+        int live;
+
+        int reportedLive;
+
+        AllocationSite(final String name, final Throwable stack) {
+            this.name = name;
+            this.stack = stack;
+        }
+    }
+}
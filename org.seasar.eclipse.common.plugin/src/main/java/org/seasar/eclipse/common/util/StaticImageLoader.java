@@ -17,6 +17,7 @@ package org.seasar.eclipse.common.util;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
+import java.net.URL;
 import java.util.Locale;
 import java.util.Map;
 import java.util.MissingResourceException;
@@ -64,8 +65,7 @@ public class StaticImageLoader {
 
             ImageDescriptor id = registry.getDescriptor(key);
             if (id == null) {
-                id = ImageDescriptor.createFromFile(holder, pathMap.get(key)
-                        .toString());
+                id = createDescriptor(holder, pathMap.get(key).toString());
                 registry.put(key, id);
             } else {
                 log(key + " is already registered [" + holder + "]");
@@ -75,10 +75,20 @@ public class StaticImageLoader {
                 FieldUtil.set(field, null, id);
             } else if (isAssignableFrom(Image.class, field)) {
                 FieldUtil.set(field, null, registry.get(key));
+            } else if (isAssignableFrom(LazyImage.class, field)) {
+                FieldUtil.set(field, null, new LazyImage(registry, key));
             }
         }
     }
 
+    private static ImageDescriptor createDescriptor(Class holder, String path) {
+        URL url = holder.getResource(path);
+        if (url == null) {
+            return ImageDescriptor.createFromFile(holder, path);
+        }
+        return ImageManager.createImageDescriptor(url);
+    }
+
     private static boolean validateMask(Field f) {
         final int MOD_EXPECTED = Modifier.PUBLIC | Modifier.STATIC;
         final int MOD_MASK = MOD_EXPECTED | Modifier.FINAL;
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2004-2008 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.eclipse.common.util;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.eclipse.swt.graphics.ImageData;
+import org.seasar.framework.util.InputStreamUtil;
+
+/**
+ * サムネイルの {@link ImageData} をディスク上にキャッシュするクラスです。<br />
+ * <p>
+ * キャッシュファイルはファイルのパスをもとにした名前で保存され、ファイルの修正スタンプが一致する場合にのみ使用されます。
+ * ファイルが更新された場合は、同じキャッシュファイルを上書きします。<br />
+ * 本クラスのメソッドは任意のスレッドから呼び出すことができます。
+ * </p>
+ * 
+ * @author y-komori
+ */
+class ThumbnailCache {
+    private static final int MAGIC = 0x53325448;
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final String SUFFIX = ".thm";
+
+    private final File directory;
+
+    /**
+     * {@link ThumbnailCache} を構築します。<br />
+     * 
+     * @param directory
+     *        キャッシュディレクトリ
+     */
+    ThumbnailCache(final File directory) {
+        this.directory = directory;
+        directory.mkdirs();
+    }
+
+    File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * キャッシュされたサムネイルを読み込みます。<br />
+     * 
+     * @param path
+     *        ファイルのパス
+     * @param stamp
+     *        ファイルの修正スタンプ
+     * @return サムネイル。キャッシュされていないか、修正スタンプが一致しない場合は <code>null</code>。
+     * @throws IOException
+     *         キャッシュファイルの読み込みに失敗した場合
+     */
+    ImageData read(final String path, final long stamp) throws IOException {
+        File file = getCacheFile(path);
+        if (!file.exists()) {
+            return null;
+        }
+        byte[] content;
+        FileInputStream in = new FileInputStream(file);
+        try {
+            content = InputStreamUtil.getBytes(in);
+        } finally {
+            InputStreamUtil.close(in);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(content);
+        if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION
+                || buffer.getLong() != stamp) {
+            return null;
+        }
+        byte[] storedPath = new byte[buffer.getInt()];
+        buffer.get(storedPath);
+        if (!Arrays.equals(ImageDataCache.toBytes(path), storedPath)) {
+            return null;
+        }
+        return ImageDataCache.readImageData(buffer);
+    }
+
+    /**
+     * サムネイルをキャッシュへ保存します。<br />
+     * 
+     * @param path
+     *        ファイルのパス
+     * @param stamp
+     *        ファイルの修正スタンプ
+     * @param imageData
+     *        サムネイル
+     * @throws IOException
+     *         キャッシュファイルの書き込みに失敗した場合
+     */
+    void write(final String path, final long stamp, final ImageData imageData)
+            throws IOException {
+        File file = getCacheFile(path);
+        File temp = File.createTempFile("thumbnail", ".tmp", directory);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(temp)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(stamp);
+            byte[] bytes = ImageDataCache.toBytes(path);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+            ImageDataCache.writeImageData(out, imageData);
+            out.flush();
+        } finally {
+            out.close();
+        }
+        file.delete();
+        if (!temp.renameTo(file)) {
+            temp.delete();
+        }
+    }
+
+    /**
+     * キャッシュファイルをすべて削除します。<br />
+     */
+    void clear() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (int i = 0; i < files.length; i++) {
+                files[i].delete();
+            }
+        }
+    }
+
+    File getCacheFile(final String path) {
+        byte[] hash = ImageDataCache.digest(ImageDataCache.toBytes(path));
+        return new File(directory, ImageDataCache.toHexString(hash) + SUFFIX);
+    }
+}
@@ -0,0 +1,414 @@
+/*
+ * Copyright 2004-2008 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.eclipse.common.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.Plugin;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.ImageLoader;
+import org.eclipse.swt.widgets.Display;
+import org.seasar.framework.log.Logger;
+import org.seasar.framework.util.InputStreamUtil;
+
+/**
+ * ワークスペース上のイメージファイルのサムネイルを、バックグラウンドで作成するクラスです。<br />
+ * <p>
+ * {@link #getThumbnail(IFile, ThumbnailListener)} メソッドは、作成済みのサムネイルがあればそれを返し、
+ * なければ {@link #POOL_SIZE} 個のワーカスレッドに作成を依頼して <code>null</code> を返します。
+ * サムネイルができあがると、{@link Display} スレッド上で {@link ThumbnailListener} へ通知します。
+ * したがって、フォルダ内の多数のイメージをスクロールして表示する場合でも、{@link Display} スレッドでデコードが行われることはありません。<br />
+ * 作成の依頼は新しいものから順に処理するため、スクロールして表示されなくなった項目よりも、いま表示されている項目が先に処理されます。<br />
+ * 作成したサムネイルは、ファイルのパスと修正スタンプをキーとしてディスクにキャッシュします。
+ * ファイルが更新されていなければ、次回以降はデコードせずにキャッシュから読み込みます。<br />
+ * メモリ上には、{@link #setMemoryCacheLimit(int)} メソッドで設定した数までのサムネイルを保持し、
+ * 上限を超えた場合は最も長く使用されていないものから破棄します。<br />
+ * {@link #getThumbnail(IFile, ThumbnailListener)} メソッドは {@link Display} スレッドから呼び出してください。
+ * </p>
+ * <p>
+ * コーディング例
+ * </p>
+ * 
+ * <pre>
+ * public Image getImage(Object element) {
+ *     return thumbnails.getThumbnail((IFile) element, new ThumbnailListener() {
+ *         public void thumbnailLoaded(IFile file, Image thumbnail) {
+ *             viewer.update(file, null);
+ *         }
+ * 
+ *         public void thumbnailFailed(IFile file, Throwable cause) {
+ *         }
+ *     });
+ * }
+ * </pre>
+ * 
+ * @author y-komori
+ */
+public class ThumbnailService {
+    /**
+     * サムネイルの幅と高さの既定値です。<br />
+     */
+    public static final int DEFAULT_SIZE = 64;
+
+    /**
+     * サムネイルを作成するワーカスレッドの数です。<br />
+     */
+    public static final int POOL_SIZE = 2;
+
+    /**
+     * メモリ上に保持するサムネイルの数の上限の既定値です。<br />
+     */
+    public static final int DEFAULT_MEMORY_CACHE_LIMIT = 256;
+
+    /**
+     * キャッシュディレクトリの名前です。<br />
+     */
+    public static final String CACHE_DIR = "thumbnails";
+
+    private static final Logger logger = Logger.getLogger(ThumbnailService.class);
+
+    private final Display display;
+
+    private final int size;
+
+    private final ThumbnailCache diskCache;
+
+    private final ThreadPoolExecutor pool;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final Map<String, Thumbnail> thumbnails = new LinkedHashMap<String, Thumbnail>(16,
+            0.75f, true);
+
+    private final Map<String, Request> pending = new HashMap<String, Request>();
+
+    private int memoryCacheLimit = DEFAULT_MEMORY_CACHE_LIMIT;
+
+    private volatile boolean disposed;
+
+    /**
+     * {@link ThumbnailService} を構築します。<br />
+     * 
+     * @param display
+     *        {@link Display} オブジェクト
+     * @param cacheDir
+     *        キャッシュディレクトリ
+     * @param size
+     *        サムネイルの幅と高さの上限
+     */
+    public ThumbnailService(final Display display, final File cacheDir, final int size) {
+        this.display = display;
+        this.size = size;
+        this.diskCache = new ThumbnailCache(cacheDir);
+        this.pool = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, 0L, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<Runnable>(), new ThreadFactory() {
+                    private final AtomicInteger count = new AtomicInteger();
+
+                    public Thread newThread(final Runnable r) {
+                        Thread thread = new Thread(r, "ThumbnailService-worker-"
+                                + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        thread.setPriority(Thread.MIN_PRIORITY);
+                        return thread;
+                    }
+                });
+    }
+
+    /**
+     * プラグインの状態ロケーション配下をキャッシュディレクトリとする {@link ThumbnailService} を作成します。<br />
+     * <p>
+     * キャッシュディレクトリは、サムネイルの大きさごとに分けて作成します。
+     * </p>
+     * 
+     * @param plugin
+     *        プラグイン
+     * @param display
+     *        {@link Display} オブジェクト
+     * @param size
+     *        サムネイルの幅と高さの上限
+     * @return {@link ThumbnailService} オブジェクト
+     */
+    public static ThumbnailService create(final Plugin plugin, final Display display,
+            final int size) {
+        File baseDir = plugin.getStateLocation().append(CACHE_DIR).toFile();
+        return new ThumbnailService(display, new File(baseDir, String.valueOf(size)), size);
+    }
+
+    /**
+     * サムネイルの幅と高さの上限を返します。<br />
+     * 
+     * @return サムネイルの幅と高さの上限
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * ファイルのサムネイルを返します。<br />
+     * <p>
+     * ファイルが更新されていないサムネイルがメモリ上にあればそれを返します。
+     * なければバックグラウンドで作成を開始して <code>null</code> を返し、作成が完了した時点で {@code listener} へ通知します。
+     * 同じファイルの作成中に再び呼び出された場合は、作成を重複して行わずに通知先のみを追加します。
+     * 作成中にファイルが更新されていた場合は作成をやり直し、それまでの通知先には新しいサムネイルの作成結果を通知します。<br />
+     * 返された {@link Image} オブジェクトは本クラスが管理しているため、破棄しないでください。
+     * また、メモリ上のキャッシュから破棄されることがあるため、戻り値を保持せず、使用する都度本メソッドを呼び出してください。
+     * </p>
+     * 
+     * @param file
+     *        イメージファイル
+     * @param listener
+     *        作成結果の通知先。<code>null</code> でも構いません。
+     * @return サムネイルの {@link Image} オブジェクト。まだ作成されていない場合は <code>null</code>。
+     */
+    public Image getThumbnail(final IFile file, final ThumbnailListener listener) {
+        checkDisposed();
+        String path = file.getFullPath().toString();
+        long stamp = file.getModificationStamp();
+        Thumbnail thumbnail = thumbnails.get(path);
+        if (thumbnail != null && thumbnail.stamp == stamp) {
+            return thumbnail.image;
+        }
+        Request request = pending.get(path);
+        if (request == null || request.stamp != stamp) {
+            Request replaced = request;
+            request = new Request(file, path, stamp, sequence.incrementAndGet());
+            if (replaced != null) {
+                request.listeners.addAll(replaced.listeners);
+            }
+            pending.put(path, request);
+            pool.execute(request);
+        }
+        if (listener != null) {
+            request.listeners.add(listener);
+        }
+        return null;
+    }
+
+    /**
+     * メモリ上に保持するサムネイルの数の上限を設定します。<br />
+     * 
+     * @param limit
+     *        サムネイルの数の上限
+     */
+    public void setMemoryCacheLimit(final int limit) {
+        this.memoryCacheLimit = Math.max(1, limit);
+        evictThumbnails();
+    }
+
+    /**
+     * メモリ上に保持しているサムネイルの数を返します。<br />
+     * 
+     * @return サムネイルの数
+     */
+    public int getCachedThumbnailCount() {
+        return thumbnails.size();
+    }
+
+    /**
+     * メモリ上とディスク上のキャッシュをすべて削除します。<br />
+     */
+    public void clearCache() {
+        for (Thumbnail thumbnail : thumbnails.values()) {
+            thumbnail.image.dispose();
+        }
+        thumbnails.clear();
+        diskCache.clear();
+    }
+
+    /**
+     * 作成中のサムネイルを破棄し、ワーカスレッドを停止します。<br />
+     * <p>
+     * メモリ上に保持しているサムネイルはすべて破棄されます。ディスク上のキャッシュは削除しません。
+     * </p>
+     */
+    public void dispose() {
+        if (disposed) {
+            return;
+        }
+        disposed = true;
+        pool.shutdownNow();
+        pending.clear();
+        for (Thumbnail thumbnail : thumbnails.values()) {
+            thumbnail.image.dispose();
+        }
+        thumbnails.clear();
+    }
+
+    /**
+     * 破棄されているかどうかを返します。<br />
+     * 
+     * @return 破棄されている場合は <code>true</code>
+     */
+    public boolean isDisposed() {
+        return disposed;
+    }
+
+    /**
+     * ファイルを読み込み、サムネイルを作成します。<br />
+     * 
+     * @param file
+     *        イメージファイル
+     * @return サムネイル
+     * @throws CoreException
+     *         ファイルの読み込みに失敗した場合
+     */
+    protected ImageData createThumbnail(final IFile file) throws CoreException {
+        ImageData imageData;
+        InputStream in = file.getContents();
+        try {
+            imageData = new ImageLoader().load(in)[0];
+        } finally {
+            InputStreamUtil.close(in);
+        }
+        return ImageDataUtil.scaleToFit(imageData, size, size);
+    }
+
+    private ImageData loadThumbnail(final Request request) throws CoreException {
+        ImageData imageData = null;
+        try {
+            imageData = diskCache.read(request.path, request.stamp);
+        } catch (IOException ex) {
+            logger.warn("Failed to read thumbnail cache. path=" + request.path, ex);
+        } catch (RuntimeException ex) {
+            logger.warn("Broken thumbnail cache. path=" + request.path, ex);
+        }
+        if (imageData == null) {
+            imageData = createThumbnail(request.file);
+            try {
+                diskCache.write(request.path, request.stamp, imageData);
+            } catch (IOException ex) {
+                logger.warn("Failed to write thumbnail cache. path=" + request.path, ex);
+            }
+        }
+        return imageData;
+    }
+
+    private void deliver(final Request request, final ImageData imageData, final Throwable cause) {
+        if (disposed || display.isDisposed()) {
+            return;
+        }
+        display.asyncExec(new Runnable() {
+            public void run() {
+                if (disposed || pending.get(request.path) != request) {
+                    return;
+                }
+                pending.remove(request.path);
+                if (imageData == null) {
+                    for (ThumbnailListener listener : request.listeners) {
+                        listener.thumbnailFailed(request.file, cause);
+                    }
+                    return;
+                }
+                Image image = new Image(display, imageData);
+                ResourceLeakDetector.track(image);
+                Thumbnail old = thumbnails.put(request.path, new Thumbnail(image, request.stamp));
+                if (old != null) {
+                    old.image.dispose();
+                }
+                evictThumbnails();
+                for (ThumbnailListener listener : request.listeners) {
+                    listener.thumbnailLoaded(request.file, image);
+                }
+            }
+        });
+    }
+
+    private void evictThumbnails() {
+        Iterator<Thumbnail> it = thumbnails.values().iterator();
+        while (thumbnails.size() > memoryCacheLimit && it.hasNext()) {
+            it.next().image.dispose();
+            it.remove();
+        }
+    }
+
+    private void checkDisposed() {
+        if (disposed) {
+            throw new IllegalStateException("ThumbnailService is disposed.");
+        }
+    }
+
+    /**
+     * メモリ上に保持しているサムネイルです。<br />
+     */
+    private static class Thumbnail {
+        final Image image;
+
+        final long stamp;
+
+        Thumbnail(final Image image, final long stamp) {
+            this.image = image;
+            this.stamp = stamp;
+        }
+    }
+
+    /**
+     * サムネイルの作成依頼です。新しい依頼ほど先に処理されるよう順序付けします。<br />
+     */
+    private class Request implements Runnable, Comparable<Request> {
+        final IFile file;
+
+        final String path;
+
+        final long stamp;
+
+        final long order;
+
+        final List<ThumbnailListener> listeners = new ArrayList<ThumbnailListener>();
+
+        Request(final IFile file, final String path, final long stamp, final long order) {
+            this.file = file;
+            this.path = path;
+            this.stamp = stamp;
+            this.order = order;
+        }
+
+        public void run() {
+            if (disposed) {
+                return;
+            }
+            try {
+                deliver(this, loadThumbnail(this), null);
+            } catch (CoreException ex) {
+                logger.warn("Failed to create thumbnail. path=" + path, ex);
+                deliver(this, null, ex);
+            } catch (RuntimeException ex) {
+                logger.warn("Failed to create thumbnail. path=" + path, ex);
+                deliver(this, null, ex);
+            }
+        }
+
+        public int compareTo(final Request other) {
+            return order > other.order ? -1 : order < other.order ? 1 : 0;
+        }
+    }
+}
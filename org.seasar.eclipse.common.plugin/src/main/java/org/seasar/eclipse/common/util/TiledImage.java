@@ -0,0 +1,378 @@
+/*
+ * Copyright 2004-2008 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.eclipse.common.util;
+
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.swt.graphics.GC;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.ImageLoader;
+import org.eclipse.swt.graphics.Rectangle;
+import org.eclipse.swt.widgets.Display;
+import org.seasar.framework.util.InputStreamUtil;
+import org.seasar.framework.util.URLUtil;
+
+/**
+ * 大きなイメージをタイルに分割して表示するためのクラスです。<br />
+ * <p>
+ * イメージ全体を一つの {@link Image} オブジェクトにせず、{@link #paint(GC, int, int, int, int, int, int, int, int)}
+ * メソッドで描画する範囲に含まれるタイルの {@link Image} オブジェクトだけを作成します。
+ * 縮小して表示する場合は、縦横半分ずつに縮小したミップマップのうち表示倍率に見合うレベルのタイルを使用するため、
+ * 全体を表示する場合でも作成するタイルは数枚で済みます。<br />
+ * 作成したタイルは {@link #setTileCacheLimit(int)} メソッドで設定した枚数までキャッシュし、
+ * 上限を超えた場合は最も長く使用されていないタイルから破棄します。
+ * したがって、ネイティブイメージが使用するメモリはイメージの大きさによらず一定です。<br />
+ * 本クラスのメソッドは {@link Display} スレッドから呼び出してください。
+ * </p>
+ * <p>
+ * コーディング例
+ * </p>
+ * 
+ * <pre>
+ * final TiledImage image = TiledImage.load(display, url);
+ * canvas.addPaintListener(new PaintListener() {
+ *     public void paintControl(PaintEvent e) {
+ *         image.paint(e.gc, viewX, viewY, viewWidth, viewHeight, 0, 0, canvasWidth, canvasHeight);
+ *     }
+ * });
+ * </pre>
+ * 
+ * @author y-komori
+ */
+public class TiledImage {
+    /**
+     * タイルの幅と高さの既定値です。<br />
+     */
+    public static final int DEFAULT_TILE_SIZE = 256;
+
+    /**
+     * キャッシュするタイルの枚数の上限の既定値です。<br />
+     */
+    public static final int DEFAULT_TILE_CACHE_LIMIT = 64;
+
+    private final Display display;
+
+    private final ImagePyramid pyramid;
+
+    private final Map<Long, Image> tileCache = new LinkedHashMap<Long, Image>(16, 0.75f, true);
+
+    private int tileCacheLimit = DEFAULT_TILE_CACHE_LIMIT;
+
+    private boolean disposed;
+
+    /**
+     * {@link TiledImage} を構築します。<br />
+     * 
+     * @param display
+     *        {@link Display} オブジェクト
+     * @param imageData
+     *        イメージ
+     */
+    public TiledImage(final Display display, final ImageData imageData) {
+        this(display, imageData, DEFAULT_TILE_SIZE);
+    }
+
+    /**
+     * タイルの大きさを指定して {@link TiledImage} を構築します。<br />
+     * 
+     * @param display
+     *        {@link Display} オブジェクト
+     * @param imageData
+     *        イメージ
+     * @param tileSize
+     *        タイルの幅と高さ
+     */
+    public TiledImage(final Display display, final ImageData imageData, final int tileSize) {
+        this.display = display;
+        this.pyramid = new ImagePyramid(imageData, tileSize);
+    }
+
+    /**
+     * {@code url} で示されるイメージを読み込みます。<br />
+     * 
+     * @param display
+     *        {@link Display} オブジェクト
+     * @param url
+     *        イメージの URL
+     * @return {@link TiledImage} オブジェクト
+     */
+    public static TiledImage load(final Display display, final URL url) {
+        return load(display, URLUtil.openStream(url));
+    }
+
+    /**
+     * 入力ストリームからイメージを読み込みます。<br />
+     * <p>
+     * 入力ストリームは本メソッド内でクローズされます。
+     * </p>
+     * 
+     * @param display
+     *        {@link Display} オブジェクト
+     * @param is
+     *        入力ストリーム
+     * @return {@link TiledImage} オブジェクト
+     */
+    public static TiledImage load(final Display display, final InputStream is) {
+        try {
+            return new TiledImage(display, new ImageLoader().load(is)[0]);
+        } finally {
+            InputStreamUtil.close(is);
+        }
+    }
+
+    /**
+     * イメージの幅を返します。<br />
+     * 
+     * @return 幅
+     */
+    public int getWidth() {
+        return pyramid.getWidth(0);
+    }
+
+    /**
+     * イメージの高さを返します。<br />
+     * 
+     * @return 高さ
+     */
+    public int getHeight() {
+        return pyramid.getHeight(0);
+    }
+
+    /**
+     * タイルの幅と高さを返します。<br />
+     * 
+     * @return タイルの幅と高さ
+     */
+    public int getTileSize() {
+        return pyramid.getTileSize();
+    }
+
+    /**
+     * ミップマップのレベルの数を返します。<br />
+     * 
+     * @return レベルの数
+     */
+    public int getLevelCount() {
+        return pyramid.getLevelCount();
+    }
+
+    /**
+     * 指定された倍率で表示する際に使用するレベルを返します。<br />
+     * 
+     * @param scale
+     *        元のイメージに対する表示倍率
+     * @return レベル
+     */
+    public int selectLevel(final double scale) {
+        return pyramid.selectLevel(scale);
+    }
+
+    /**
+     * 指定されたレベルのタイルの列数を返します。<br />
+     * 
+     * @param level
+     *        レベル
+     * @return 列数
+     */
+    public int getColumnCount(final int level) {
+        return pyramid.getColumns(level);
+    }
+
+    /**
+     * 指定されたレベルのタイルの行数を返します。<br />
+     * 
+     * @param level
+     *        レベル
+     * @return 行数
+     */
+    public int getRowCount(final int level) {
+        return pyramid.getRows(level);
+    }
+
+    /**
+     * 指定されたタイルの {@link Image} オブジェクトを返します。<br />
+     * <p>
+     * 返された {@link Image} オブジェクトは本クラスが管理しているため、破棄しないでください。
+     * また、他のタイルを取得するとキャッシュから破棄されることがあるため、戻り値を保持しないでください。
+     * </p>
+     * 
+     * @param level
+     *        レベル
+     * @param column
+     *        タイルの列
+     * @param row
+     *        タイルの行
+     * @return {@link Image} オブジェクト
+     */
+    public Image getTile(final int level, final int column, final int row) {
+        checkDisposed();
+        Long key = new Long(((long) level << 48) | ((long) row << 24) | column);
+        Image tile = tileCache.get(key);
+        if (tile == null) {
+            tile = new Image(display, pyramid.getTile(level, column, row));
+            ResourceLeakDetector.track(tile);
+            tileCache.put(key, tile);
+            evictTiles(key);
+        }
+        return tile;
+    }
+
+    /**
+     * イメージの矩形領域を、描画先の矩形領域に拡大・縮小して描画します。<br />
+     * <p>
+     * 引数の意味は {@link GC#drawImage(Image, int, int, int, int, int, int, int, int)} と同じです。
+     * 描画する範囲に含まれるタイルだけを作成します。
+     * </p>
+     * 
+     * @param gc
+     *        描画に使用する {@link GC}
+     * @param srcX
+     *        イメージの矩形領域の X 座標
+     * @param srcY
+     *        イメージの矩形領域の Y 座標
+     * @param srcWidth
+     *        イメージの矩形領域の幅
+     * @param srcHeight
+     *        イメージの矩形領域の高さ
+     * @param destX
+     *        描画先の X 座標
+     * @param destY
+     *        描画先の Y 座標
+     * @param destWidth
+     *        描画先の幅
+     * @param destHeight
+     *        描画先の高さ
+     */
+    public void paint(final GC gc, final int srcX, final int srcY, final int srcWidth,
+            final int srcHeight, final int destX, final int destY, final int destWidth,
+            final int destHeight) {
+        checkDisposed();
+        if (srcWidth <= 0 || srcHeight <= 0 || destWidth <= 0 || destHeight <= 0) {
+            return;
+        }
+        double scaleX = (double) destWidth / srcWidth;
+        double scaleY = (double) destHeight / srcHeight;
+        int level = pyramid.selectLevel(Math.min(scaleX, scaleY));
+        double levelX = (double) pyramid.getWidth(level) / getWidth();
+        double levelY = (double) pyramid.getHeight(level) / getHeight();
+
+        // 描画範囲をレベル内の座標に変換する
+        int left = Math.max(0, (int) Math.floor(srcX * levelX));
+        int top = Math.max(0, (int) Math.floor(srcY * levelY));
+        int right = Math.min(pyramid.getWidth(level), (int) Math.ceil((srcX + srcWidth)
+                * levelX));
+        int bottom = Math.min(pyramid.getHeight(level), (int) Math.ceil((srcY + srcHeight)
+                * levelY));
+        int tileSize = pyramid.getTileSize();
+        for (int row = top / tileSize; row * tileSize < bottom; row++) {
+            for (int column = left / tileSize; column * tileSize < right; column++) {
+                Rectangle bounds = pyramid.getTileBounds(level, column, row);
+                int x0 = Math.max(bounds.x, left);
+                int y0 = Math.max(bounds.y, top);
+                int x1 = Math.min(bounds.x + bounds.width, right);
+                int y1 = Math.min(bounds.y + bounds.height, bottom);
+                // 隣り合うタイルの間に隙間ができないよう、両端をそれぞれ描画先の座標に変換する
+                int dx0 = destX + (int) Math.round((x0 / levelX - srcX) * scaleX);
+                int dy0 = destY + (int) Math.round((y0 / levelY - srcY) * scaleY);
+                int dx1 = destX + (int) Math.round((x1 / levelX - srcX) * scaleX);
+                int dy1 = destY + (int) Math.round((y1 / levelY - srcY) * scaleY);
+                if (x1 > x0 && y1 > y0 && dx1 > dx0 && dy1 > dy0) {
+                    gc.drawImage(getTile(level, column, row), x0 - bounds.x, y0 - bounds.y, x1
+                            - x0, y1 - y0, dx0, dy0, dx1 - dx0, dy1 - dy0);
+                }
+            }
+        }
+    }
+
+    /**
+     * キャッシュするタイルの枚数の上限を設定します。<br />
+     * <p>
+     * 一度に描画するタイルの枚数より大きな値を設定してください。
+     * </p>
+     * 
+     * @param limit
+     *        タイルの枚数の上限
+     */
+    public void setTileCacheLimit(final int limit) {
+        this.tileCacheLimit = Math.max(1, limit);
+        evictTiles(null);
+    }
+
+    /**
+     * キャッシュしているタイルの枚数を返します。<br />
+     * 
+     * @return タイルの枚数
+     */
+    public int getCachedTileCount() {
+        return tileCache.size();
+    }
+
+    /**
+     * キャッシュしているすべてのタイルを破棄します。<br />
+     * <p>
+     * 本メソッドを呼び出した後も、再びタイルを作成して描画することができます。
+     * </p>
+     */
+    public void clearTileCache() {
+        for (Image tile : tileCache.values()) {
+            tile.dispose();
+        }
+        tileCache.clear();
+    }
+
+    /**
+     * 保持しているすべてのタイルを破棄します。<br />
+     */
+    public void dispose() {
+        if (disposed) {
+            return;
+        }
+        disposed = true;
+        clearTileCache();
+    }
+
+    /**
+     * 破棄されているかどうかを返します。<br />
+     * 
+     * @return 破棄されている場合は <code>true</code>
+     */
+    public boolean isDisposed() {
+        return disposed;
+    }
+
+    private void evictTiles(final Long keep) {
+        Iterator<Map.Entry<Long, Image>> it = tileCache.entrySet().iterator();
+        while (tileCache.size() > tileCacheLimit && it.hasNext()) {
+            Map.Entry<Long, Image> entry = it.next();
+            if (entry.getKey().equals(keep)) {
+                continue;
+            }
+            entry.getValue().dispose();
+            it.remove();
+        }
+    }
+
+    private void checkDisposed() {
+        if (disposed) {
+            throw new IllegalStateException("TiledImage is disposed.");
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2004-2008 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.eclipse.common.util;
+
+import org.eclipse.jface.resource.ImageDescriptor;
+import org.eclipse.swt.graphics.ImageData;
+
+/**
+ * 元のイメージから {@link ImageVariant} で変種を作成する {@link ImageDescriptor} です。<br />
+ * <p>
+ * 元の {@link ImageDescriptor} と {@link ImageVariant} が等しい {@link VariantImageDescriptor} は、等しいものとして扱われます。
+ * </p>
+ * 
+ * @author y-komori
+ */
+public class VariantImageDescriptor extends ImageDescriptor {
+    private final ImageDescriptor base;
+
+    private final ImageVariant variant;
+
+    /**
+     * {@link VariantImageDescriptor} を構築します。<br />
+     * 
+     * @param base
+     *        元のイメージの {@link ImageDescriptor}
+     * @param variant
+     *        変種
+     */
+    public VariantImageDescriptor(final ImageDescriptor base, final ImageVariant variant) {
+        this.base = base;
+        this.variant = variant;
+    }
+
+    @Override
+    public ImageData getImageData() {
+        ImageData imageData = base.getImageData();
+        return imageData != null ? variant.apply(imageData) : null;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (!(o instanceof VariantImageDescriptor)) {
+            return false;
+        }
+        VariantImageDescriptor other = (VariantImageDescriptor) o;
+        return base.equals(other.base) && variant.equals(other.variant);
+    }
+
+    @Override
+    public int hashCode() {
+        return base.hashCode() * 31 + variant.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "VariantImageDescriptor(" + base + ", " + variant + ")";
+    }
+}
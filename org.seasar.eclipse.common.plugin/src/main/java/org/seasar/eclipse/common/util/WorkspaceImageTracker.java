@@ -0,0 +1,311 @@
+/*
+ * Copyright 2004-2008 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.eclipse.common.util;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.jface.resource.ImageDescriptor;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.ImageData;
+import org.seasar.framework.exception.IORuntimeException;
+import org.seasar.framework.exception.ResourceNotFoundRuntimeException;
+import org.seasar.framework.log.Logger;
+
+/**
+ * ワークスペース上のファイルから読み込んだイメージを監視し、ファイルが変更されたときに読み込み直すためのクラスです。<br />
+ * <p>
+ * {@link ImageManager} によって {@link DisplayImageRegistry} ごとに作成され、ワークスペースのリソース変更リスナとして登録されます。
+ * リソースの変更を受け取ると、監視しているファイルのうち内容が変更されたものだけを読み込み直します。<br />
+ * {@link ImageManager} が org.eclipse.core.resources に依存せずにロードできるよう、ワークスペース上のファイルを扱う処理は本クラスにまとめています。<br />
+ * 本クラスはスレッドセーフです。
+ * </p>
+ * 
+ * @author y-komori
+ */
+class WorkspaceImageTracker implements IResourceChangeListener {
+    private static final int CONTENT_CHANGED = IResourceDelta.CONTENT | IResourceDelta.REPLACED;
+
+    private static final Logger logger = Logger.getLogger(WorkspaceImageTracker.class);
+
+    private final DisplayImageRegistry registry;
+
+    private final Map<IPath, Set<String>> keysByPath = new HashMap<IPath, Set<String>>();
+
+    private final Map<String, IPath> pathsByKey = new HashMap<String, IPath>();
+
+    /**
+     * パスごとの読み込み直しの世代です。古い内容のデコードが後から完了しても、新しい内容を上書きしないようにするために使用します。
+     */
+    private final Map<IPath, Integer> generations = new HashMap<IPath, Integer>();
+
+    /**
+     * {@link WorkspaceImageTracker} を構築します。<br />
+     * 
+     * @param registry
+     *        変更を通知するレジストリ
+     */
+    WorkspaceImageTracker(final DisplayImageRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * ワークスペース上のファイルからイメージを読み込んで登録し、ファイルの変更を監視します。<br />
+     * <p>
+     * 本メソッドは {@link org.eclipse.swt.widgets.Display} スレッドから呼び出してください。
+     * </p>
+     * 
+     * @param registry
+     *        レジストリ
+     * @param key
+     *        キー
+     * @param file
+     *        イメージファイル
+     * @return 登録した {@link Image} オブジェクト
+     * @see ImageManager#putImage(String, IFile)
+     */
+    static Image putImage(final DisplayImageRegistry registry, final String key, final IFile file) {
+        Image image = ImageManager.putImage(key, toURL(file));
+        getTracker(registry).watch(key, file.getFullPath());
+        return image;
+    }
+
+    /**
+     * レジストリの {@link WorkspaceImageTracker} を返します。作成されていなければ作成し、リソース変更リスナとして登録します。<br />
+     * 
+     * @param registry
+     *        レジストリ
+     * @return {@link WorkspaceImageTracker} オブジェクト
+     */
+    private static WorkspaceImageTracker getTracker(final DisplayImageRegistry registry) {
+        if (registry.workspaceTracker == null) {
+            registry.workspaceTracker = new WorkspaceImageTracker(registry);
+            ResourcesPlugin.getWorkspace().addResourceChangeListener(registry.workspaceTracker,
+                    IResourceChangeEvent.POST_CHANGE);
+        }
+        return registry.workspaceTracker;
+    }
+
+    /**
+     * リソース変更リスナの登録を解除します。<br />
+     */
+    void dispose() {
+        ResourcesPlugin.getWorkspace().removeResourceChangeListener(this);
+    }
+
+    /**
+     * キーのイメージの読み込み元として、ファイルを監視します。<br />
+     * 
+     * @param key
+     *        キー
+     * @param path
+     *        ファイルのワークスペース上のパス
+     */
+    synchronized void watch(final String key, final IPath path) {
+        unwatch(key);
+        Set<String> keys = keysByPath.get(path);
+        if (keys == null) {
+            keys = new HashSet<String>();
+            keysByPath.put(path, keys);
+        }
+        keys.add(key);
+        pathsByKey.put(key, path);
+    }
+
+    /**
+     * キーのイメージの監視をやめます。<br />
+     * 
+     * @param key
+     *        キー
+     */
+    synchronized void unwatch(final String key) {
+        IPath path = pathsByKey.remove(key);
+        if (path == null) {
+            return;
+        }
+        Set<String> keys = keysByPath.get(path);
+        keys.remove(key);
+        if (keys.isEmpty()) {
+            keysByPath.remove(path);
+        }
+    }
+
+    /**
+     * キーのイメージの読み込み元として監視しているファイルのパスを返します。<br />
+     * 
+     * @param key
+     *        キー
+     * @return ファイルのパス。監視していない場合は <code>null</code>。
+     */
+    synchronized IPath getPath(final String key) {
+        return pathsByKey.get(key);
+    }
+
+    /**
+     * ファイルを読み込み元とするキーを返します。<br />
+     * 
+     * @param path
+     *        ファイルのパス
+     * @return キーの集合のコピー
+     */
+    synchronized Set<String> getKeys(final IPath path) {
+        Set<String> keys = keysByPath.get(path);
+        return keys != null ? new HashSet<String>(keys) : new HashSet<String>();
+    }
+
+    /**
+     * 監視しているファイルのうち、内容が変更されたか、作成し直されたもののパスを返します。<br />
+     * <p>
+     * 監視しているファイルのパスごとに {@link IResourceDelta#findMember(IPath)}
+     * で差分を探すため、変更されたリソースの数によらず、監視しているファイルの数に比例した時間で処理します。
+     * </p>
+     * 
+     * @param delta
+     *        ワークスペースのルートの差分
+     * @return 変更されたファイルのパスのリスト
+     */
+    List<IPath> collectChangedPaths(final IResourceDelta delta) {
+        List<IPath> paths;
+        synchronized (this) {
+            paths = new ArrayList<IPath>(keysByPath.keySet());
+        }
+        List<IPath> changed = new ArrayList<IPath>();
+        for (IPath path : paths) {
+            IResourceDelta member = delta.findMember(path);
+            if (member == null) {
+                continue;
+            }
+            boolean contentChanged = (member.getFlags() & CONTENT_CHANGED) != 0;
+            if (member.getKind() == IResourceDelta.ADDED
+                    || (member.getKind() == IResourceDelta.CHANGED && contentChanged)) {
+                changed.add(path);
+            }
+        }
+        return changed;
+    }
+
+    public void resourceChanged(final IResourceChangeEvent event) {
+        IResourceDelta delta = event.getDelta();
+        if (delta == null || registry.isDisposed()) {
+            return;
+        }
+        for (IPath path : collectChangedPaths(delta)) {
+            reload(path);
+        }
+    }
+
+    /**
+     * ファイルの世代を進め、新しい世代を返します。<br />
+     * 
+     * @param path
+     *        ファイルのパス
+     * @return 新しい世代
+     */
+    synchronized int nextGeneration(final IPath path) {
+        Integer current = generations.get(path);
+        int generation = current != null ? current.intValue() + 1 : 1;
+        generations.put(path, new Integer(generation));
+        return generation;
+    }
+
+    /**
+     * 指定した世代がファイルの最新の世代かどうかを返します。<br />
+     * 
+     * @param path
+     *        ファイルのパス
+     * @param generation
+     *        世代
+     * @return 最新の世代である場合は <code>true</code>
+     */
+    synchronized boolean isLatest(final IPath path, final int generation) {
+        Integer current = generations.get(path);
+        return current != null && current.intValue() == generation;
+    }
+
+    /**
+     * 変更されたファイルを読み込み直します。<br />
+     * <p>
+     * ファイルをワーカスレッド上でデコードし、{@link org.eclipse.swt.widgets.Display}
+     * スレッド上で、そのファイルを監視しているすべてのキーのイメージを置き換えます。<br />
+     * 続けて変更された場合、デコードは並行して行われ、完了する順序は保証されません。そのため、置き換えは最新の変更に対するデコード結果でのみ行い、
+     * 古い変更に対する結果は破棄します。デコードに失敗した場合は、変更前のイメージを保持します。<br />
+     * 本メソッドは任意のスレッドから呼び出すことができます。
+     * </p>
+     * 
+     * @param path
+     *        変更されたファイルのパス
+     */
+    void reload(final IPath path) {
+        final IFile file = ResourcesPlugin.getWorkspace().getRoot().getFile(path);
+        final int generation = nextGeneration(path);
+        ImageManager.getLoaderPool().execute(new Runnable() {
+            public void run() {
+                if (!isLatest(path, generation)) {
+                    return;
+                }
+                final URL url;
+                final ImageData imageData;
+                try {
+                    url = toURL(file);
+                    ImageManager.removeImageInfo(url);
+                    imageData = ImageManager.decodeImage(url);
+                } catch (RuntimeException ex) {
+                    logger.warn("Failed to reload image. path=" + path, ex);
+                    return;
+                }
+                if (registry.isDisposed() || registry.display.isDisposed()) {
+                    return;
+                }
+                registry.display.asyncExec(new Runnable() {
+                    public void run() {
+                        if (registry.isDisposed() || !isLatest(path, generation)) {
+                            return;
+                        }
+                        ImageDescriptor source = ImageManager.createImageDescriptor(url);
+                        for (String key : getKeys(path)) {
+                            ImageManager.putImage(registry, key, imageData, source, url);
+                            watch(key, path);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    private static URL toURL(final IFile file) {
+        IPath location = file.getLocation();
+        if (location == null) {
+            throw new ResourceNotFoundRuntimeException(file.getFullPath().toString());
+        }
+        try {
+            return location.toFile().toURI().toURL();
+        } catch (MalformedURLException ex) {
+            throw new IORuntimeException(ex);
+        }
+    }
+}
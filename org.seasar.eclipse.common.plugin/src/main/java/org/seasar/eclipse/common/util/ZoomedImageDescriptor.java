@@ -0,0 +1,273 @@
+/*
+ * Copyright 2004-2008 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.eclipse.common.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.SoftReference;
+import java.net.MalformedURLException;
+import java.net.URL;
+
+import org.eclipse.jface.resource.ImageDescriptor;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.ImageLoader;
+import org.eclipse.swt.graphics.Point;
+import org.seasar.framework.log.Logger;
+import org.seasar.framework.util.InputStreamUtil;
+
+/**
+ * 指定した倍率(ズーム)のイメージを提供する {@link ImageDescriptor} です。<br />
+ * <p>
+ * 倍率が {@link #VARIANT_ZOOM_THRESHOLD} 以上で、元のイメージと同じ場所に {@code name@2x.png} 形式の高解像度版が存在する場合は、
+ * 高解像度版を使用します。存在しない場合は、元のイメージを倍率に合わせて拡大します。<br />
+ * 作成した {@link ImageData} はソフト参照で保持されるため、同じ倍率の {@link org.eclipse.swt.graphics.Image}
+ * を再生成する際に、読み込みや拡大の処理を繰り返しません。
+ * </p>
+ * 
+ * @author y-komori
+ */
+public class ZoomedImageDescriptor extends ImageDescriptor {
+    /**
+     * 等倍を表す倍率です。<br />
+     */
+    public static final int DEFAULT_ZOOM = 100;
+
+    /**
+     * 高解像度版を使用する最小の倍率です。<br />
+     */
+    public static final int VARIANT_ZOOM_THRESHOLD = 175;
+
+    /**
+     * 高解像度版のファイル名に付加する接尾辞です。<br />
+     */
+    public static final String VARIANT_2X = "@2x";
+
+    private static final Logger logger = Logger.getLogger(ZoomedImageDescriptor.class);
+
+    private final ImageDescriptor source;
+
+    private final URL url;
+
+    private final int zoom;
+
+    private volatile SoftReference<ImageData> cache;
+
+    /**
+     * {@link ZoomedImageDescriptor} を構築します。<br />
+     * 
+     * @param source
+     *        元のイメージの {@link ImageDescriptor}
+     * @param url
+     *        元のイメージの URL。高解像度版を探す必要がない場合は <code>null</code>。
+     * @param zoom
+     *        倍率(パーセント)
+     */
+    public ZoomedImageDescriptor(final ImageDescriptor source, final URL url, final int zoom) {
+        this.source = source;
+        this.url = url;
+        this.zoom = zoom;
+    }
+
+    /**
+     * 元のイメージの {@link ImageDescriptor} を返します。<br />
+     * 
+     * @return {@link ImageDescriptor} オブジェクト
+     */
+    public ImageDescriptor getSource() {
+        return source;
+    }
+
+    /**
+     * 倍率を返します。<br />
+     * 
+     * @return 倍率(パーセント)
+     */
+    public int getZoom() {
+        return zoom;
+    }
+
+    @Override
+    public ImageData getImageData() {
+        SoftReference<ImageData> ref = cache;
+        ImageData imageData = ref != null ? ref.get() : null;
+        if (imageData == null) {
+            imageData = createImageData();
+            if (imageData != null) {
+                cache = new SoftReference<ImageData>(imageData);
+            }
+        }
+        return imageData;
+    }
+
+    /**
+     * 元のイメージのデコード済みの {@link ImageData} をもとに、倍率に合わせた {@link ImageData} を返します。<br />
+     * <p>
+     * 高解像度版が存在する場合はそれを使用し、存在しない場合は {@code base} を拡大します。
+     * 元のイメージを改めてデコードすることはありません。
+     * </p>
+     * 
+     * @param base
+     *        元のイメージの {@link ImageData}
+     * @return {@link ImageData} オブジェクト
+     */
+    public ImageData getImageData(final ImageData base) {
+        SoftReference<ImageData> ref = cache;
+        ImageData imageData = ref != null ? ref.get() : null;
+        if (imageData == null) {
+            imageData = createVariantData();
+            if (imageData == null) {
+                imageData = scale(base, zoom);
+            }
+            cache = new SoftReference<ImageData>(imageData);
+        }
+        return imageData;
+    }
+
+    /**
+     * 倍率に合わせた {@link ImageData} を作成します。<br />
+     * 
+     * @return {@link ImageData} オブジェクト
+     */
+    protected ImageData createImageData() {
+        ImageData variant = createVariantData();
+        if (variant != null) {
+            return variant;
+        }
+        ImageData base = source.getImageData();
+        return base != null ? scale(base, zoom) : null;
+    }
+
+    /**
+     * 高解像度版を倍率に合わせて縮小した {@link ImageData} を作成します。<br />
+     * 
+     * @return {@link ImageData} オブジェクト。高解像度版を使用しない場合は <code>null</code>。
+     */
+    protected ImageData createVariantData() {
+        if (url != null && zoom >= VARIANT_ZOOM_THRESHOLD) {
+            ImageData variant = loadVariant(getVariantURL(url, VARIANT_2X));
+            if (variant != null) {
+                return scale(variant, zoom * 100 / 200);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * {@code url} で示されるイメージの、指定した接尾辞を持つ変種の URL を返します。<br />
+     * <p>
+     * 例えば {@code icons/app.png} に対して接尾辞 {@code @2x} を指定すると、{@code icons/app@2x.png} を返します。
+     * </p>
+     * 
+     * @param url
+     *        元のイメージの URL
+     * @param suffix
+     *        接尾辞
+     * @return 変種の URL。作成できない場合は <code>null</code>。
+     */
+    public static URL getVariantURL(final URL url, final String suffix) {
+        String s = url.toExternalForm();
+        int slash = s.lastIndexOf('/');
+        int dot = s.lastIndexOf('.');
+        if (dot <= slash) {
+            dot = s.length();
+        }
+        try {
+            return new URL(s.substring(0, dot) + suffix + s.substring(dot));
+        } catch (MalformedURLException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * {@link ImageData} を指定した倍率で拡大・縮小します。<br />
+     * <p>
+     * 倍率が等倍の整数倍の場合は画素をそのまま複製し、それ以外の場合は縁がギザギザにならないよう双線形補間を使用します。
+     * </p>
+     * 
+     * @param imageData
+     *        元の {@link ImageData}
+     * @param zoom
+     *        倍率(パーセント)
+     * @return 拡大・縮小した {@link ImageData}。倍率が等倍の場合は {@code imageData} そのもの。
+     */
+    public static ImageData scale(final ImageData imageData, final int zoom) {
+        if (zoom == DEFAULT_ZOOM) {
+            return imageData;
+        }
+        int width = Math.max(1, (imageData.width * zoom + DEFAULT_ZOOM / 2) / DEFAULT_ZOOM);
+        int height = Math.max(1, (imageData.height * zoom + DEFAULT_ZOOM / 2) / DEFAULT_ZOOM);
+        if (zoom % DEFAULT_ZOOM == 0) {
+            return imageData.scaledTo(width, height);
+        }
+        return ImageDataUtil.scaleBilinear(imageData, width, height);
+    }
+
+    /**
+     * 画面の解像度から倍率を求めます。<br />
+     * <p>
+     * 96 DPI を等倍とし、{@link #VARIANT_ZOOM_THRESHOLD} 以上であれば 200%、それ未満であれば等倍とします。<br />
+     * 120 DPI などの中間の解像度で、登録したイメージの大きさが変わらないよう、自動的に選択する倍率は等倍と 200% に限ります。
+     * それ以外の倍率は {@link ImageManager#setZoom(int)} メソッドで明示的に指定してください。
+     * </p>
+     * 
+     * @param dpi
+     *        画面の解像度
+     * @return 倍率(パーセント)
+     */
+    public static int computeZoom(final Point dpi) {
+        int zoom = dpi.x * DEFAULT_ZOOM / 96;
+        return zoom >= VARIANT_ZOOM_THRESHOLD ? DEFAULT_ZOOM * 2 : DEFAULT_ZOOM;
+    }
+
+    private static ImageData loadVariant(final URL variant) {
+        if (variant == null) {
+            return null;
+        }
+        InputStream is;
+        try {
+            is = variant.openStream();
+        } catch (IOException ex) {
+            return null;
+        }
+        try {
+            return new ImageLoader().load(is)[0];
+        } catch (RuntimeException ex) {
+            logger.warn("Failed to load image variant. url=" + variant, ex);
+            return null;
+        } finally {
+            InputStreamUtil.close(is);
+        }
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (!(o instanceof ZoomedImageDescriptor)) {
+            return false;
+        }
+        ZoomedImageDescriptor other = (ZoomedImageDescriptor) o;
+        return zoom == other.zoom && source.equals(other.source);
+    }
+
+    @Override
+    public int hashCode() {
+        return source.hashCode() * 31 + zoom;
+    }
+
+    @Override
+    public String toString() {
+        return "ZoomedImageDescriptor(" + source + ", " + zoom + "%)";
+    }
+}
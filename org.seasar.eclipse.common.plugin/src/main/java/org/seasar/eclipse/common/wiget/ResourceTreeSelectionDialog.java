@@ -16,7 +16,9 @@
 package org.seasar.eclipse.common.wiget;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IResource;
@@ -32,6 +34,7 @@ import org.eclipse.swt.widgets.Shell;
 import org.eclipse.ui.dialogs.ElementTreeSelectionDialog;
 import org.eclipse.ui.model.IWorkbenchAdapter;
 import org.seasar.eclipse.common.util.LogUtil;
+import org.seasar.eclipse.common.util.ResourceLeakDetector;
 
 /**
  * @author taichi
@@ -53,6 +56,9 @@ public class ResourceTreeSelectionDialog extends ElementTreeSelectionDialog {
 
 	private static class ResourceLabelProvider extends LabelProvider implements
 			ILabelProvider {
+		// 作成した Image は、ラベルプロバイダの破棄時にまとめて破棄する
+		private final Map<ImageDescriptor, Image> images = new HashMap<ImageDescriptor, Image>();
+
 		@Override
         public Image getImage(final Object element) {
 			Image result = null;
@@ -63,7 +69,12 @@ public class ResourceTreeSelectionDialog extends ElementTreeSelectionDialog {
 				if (adapter != null) {
 					ImageDescriptor desc = adapter.getImageDescriptor(r);
 					if (desc != null) {
-						result = desc.createImage();
+						result = images.get(desc);
+						if (result == null) {
+							result = desc.createImage();
+							ResourceLeakDetector.track(result);
+							images.put(desc, result);
+						}
 					}
 				}
 			}
@@ -78,6 +89,15 @@ public class ResourceTreeSelectionDialog extends ElementTreeSelectionDialog {
 			}
 			return super.getText(element);
 		}
+
+		@Override
+		public void dispose() {
+			for (Image image : images.values()) {
+				image.dispose();
+			}
+			images.clear();
+			super.dispose();
+		}
 	}
 
 	private static class ResourceTreeContentProvider implements
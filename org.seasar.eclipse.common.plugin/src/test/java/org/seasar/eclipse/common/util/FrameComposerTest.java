@@ -0,0 +1,100 @@
+/*
+ * Copyright 2004-2008 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.eclipse.common.util;
+
+import junit.framework.TestCase;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.ImageLoader;
+import org.eclipse.swt.graphics.PaletteData;
+import org.eclipse.swt.graphics.RGB;
+import org.seasar.framework.util.ResourceUtil;
+
+/**
+ * {@link FrameComposer} のためのテストクラスです。<br />
+ * 
+ * @author y-komori
+ */
+public class FrameComposerTest extends TestCase {
+    private static final int RED = 0xFFFF0000;
+
+    private static final int BLUE = 0xFF0000FF;
+
+    private static final PaletteData PALETTE = new PaletteData(new RGB[] { new RGB(0, 0, 0),
+            new RGB(255, 0, 0), new RGB(0, 0, 255) });
+
+    /**
+     * 廃棄方法ごとの {@link FrameComposer#compose(int)} メソッドのテストです。<br />
+     */
+    public void testCompose() {
+        ImageData[] frames = new ImageData[] { createFrame(0, 0, 4, 4, 1, SWT.DM_FILL_NONE),
+                createFrame(0, 0, 2, 2, 2, SWT.DM_FILL_BACKGROUND),
+                createFrame(2, 2, 2, 2, 2, SWT.DM_FILL_PREVIOUS),
+                createFrame(0, 2, 1, 1, 2, SWT.DM_FILL_NONE) };
+        FrameComposer composer = new FrameComposer(frames, 4, 4);
+
+        int[] frame0 = composer.compose(0);
+        assertEquals("1", RED, frame0[0]);
+        assertEquals("2", RED, frame0[15]);
+
+        int[] frame1 = composer.compose(1);
+        assertEquals("3", BLUE, frame1[0]);
+        assertEquals("4", RED, frame1[15]);
+
+        int[] frame2 = composer.compose(2);
+        assertEquals("5", 0, frame2[0]);
+        assertEquals("6", BLUE, frame2[15]);
+
+        int[] frame3 = composer.compose(3);
+        assertEquals("7", RED, frame3[15]);
+        assertEquals("8", BLUE, frame3[8]);
+        assertEquals("9", 0, frame3[0]);
+
+        int[] again = composer.compose(1);
+        assertEquals("10", BLUE, again[0]);
+        assertEquals("11", RED, again[15]);
+    }
+
+    /**
+     * アニメーション GIF を読み込む場合のテストです。<br />
+     */
+    public void testCompose_Gif() {
+        ImageLoader loader = new ImageLoader();
+        loader.load(ResourceUtil.getResourceAsStream("images/busy.gif"));
+        FrameComposer composer = new FrameComposer(loader.data, loader.logicalScreenWidth,
+                loader.logicalScreenHeight);
+        assertEquals("1", 3, composer.getFrameCount());
+        assertEquals("2", 8, composer.getWidth());
+        assertEquals("3", RED, composer.compose(0)[0]);
+        assertEquals("4", BLUE, composer.compose(1)[63]);
+    }
+
+    private ImageData createFrame(final int x, final int y, final int width, final int height,
+            final int pixel, final int disposalMethod) {
+        ImageData frame = new ImageData(width, height, 8, PALETTE);
+        for (int j = 0; j < height; j++) {
+            for (int i = 0; i < width; i++) {
+                frame.setPixel(i, j, pixel);
+            }
+        }
+        frame.transparentPixel = 0;
+        frame.x = x;
+        frame.y = y;
+        frame.disposalMethod = disposalMethod;
+        return frame;
+    }
+}
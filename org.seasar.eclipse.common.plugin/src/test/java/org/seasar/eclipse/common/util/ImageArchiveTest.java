@@ -0,0 +1,99 @@
+/*
+ * Copyright 2004-2008 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.eclipse.common.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.ResourceBundle;
+
+import junit.framework.TestCase;
+
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.ImageLoader;
+import org.seasar.framework.util.InputStreamUtil;
+import org.seasar.framework.util.ResourceUtil;
+
+/**
+ * {@link ImageArchive} のためのテストクラスです。<br />
+ * 
+ * @author y-komori
+ */
+public class ImageArchiveTest extends TestCase {
+    private File file;
+
+    @Override
+    protected void setUp() throws Exception {
+        file = new File(System.getProperty("java.io.tmpdir"), "ImageArchiveTest.s2ia");
+        ImageArchiveBuilder builder = new ImageArchiveBuilder();
+        builder.addBundle(ResourceBundle.getBundle("org.seasar.eclipse.common.util.DedupImages"));
+        builder.write(file);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        file.delete();
+    }
+
+    /**
+     * {@link ImageArchive#load(java.net.URL)} メソッドのテストです。<br />
+     */
+    public void testLoad() throws Exception {
+        ImageArchive archive = ImageArchive.load(file.toURI().toURL());
+        assertTrue("1", file.delete());
+        assertArchive(archive);
+    }
+
+    /**
+     * メモリ上のアーカイブを読み込む場合のテストです。<br />
+     */
+    public void testLoad_Buffer() throws Exception {
+        byte[] content = InputStreamUtil.getBytes(new FileInputStream(file));
+        assertArchive(new ImageArchive(ByteBuffer.wrap(content)));
+    }
+
+    /**
+     * 形式が正しくない場合のテストです。<br />
+     */
+    public void testLoad_Illegal() {
+        try {
+            new ImageArchive(ByteBuffer.wrap(new byte[16]));
+            fail("1");
+        } catch (IllegalArgumentException ex) {
+            assertTrue(true);
+        }
+    }
+
+    private void assertArchive(final ImageArchive archive) {
+        assertEquals("1", 3, archive.getKeys().size());
+        assertEquals("2", 2, archive.getImageCount());
+        assertSame("3", archive.getImageDescriptor("ARG_IMG"), archive
+                .getImageDescriptor("ARG_IMG_2"));
+        assertNull("4", archive.getImageData("DUMMY_IMG"));
+
+        assertImageData("images/arg.gif", archive.getImageData("ARG_IMG"));
+        assertImageData("images/container.gif", archive.getImageData("CONTAINER_IMG"));
+    }
+
+    private void assertImageData(final String path, final ImageData actual) {
+        ImageData expected = new ImageLoader().load(ResourceUtil.getResourceAsStream(path))[0];
+        assertEquals(path, expected.width, actual.width);
+        assertEquals(path, expected.height, actual.height);
+        assertEquals(path, expected.transparentPixel, actual.transparentPixel);
+        assertTrue(path, Arrays.equals(expected.data, actual.data));
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2004-2008 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.eclipse.common.util;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * {@link ImageCache} のためのテストクラスです。<br />
+ * 
+ * @author y-komori
+ */
+public class ImageCacheTest extends TestCase {
+
+    /**
+     * 上限が設定されていない場合のテストです。<br />
+     */
+    public void testUnbounded() {
+        ImageCache cache = new ImageCache();
+        assertFalse("1", cache.isBounded());
+        cache.touch("A", 100);
+        cache.touch("B", 100);
+        assertEquals("2", 0, cache.collectVictims(null).size());
+        assertEquals("3", 2, cache.size());
+        assertEquals("4", 200, cache.getPixelBytes());
+    }
+
+    /**
+     * イメージ数の上限による選択のテストです。<br />
+     */
+    public void testCollectVictims_MaxImages() {
+        ImageCache cache = new ImageCache();
+        cache.setLimit(2, 0);
+        cache.touch("A", 100);
+        cache.touch("B", 100);
+        cache.touch("A", 100);
+        cache.touch("C", 100);
+
+        List<String> victims = cache.collectVictims("C");
+        assertEquals("1", 1, victims.size());
+        assertEquals("2", "B", victims.get(0));
+        assertEquals("3", 2, cache.size());
+        assertEquals("4", 200, cache.getPixelBytes());
+    }
+
+    /**
+     * ピクセルバイト数の上限による選択のテストです。<br />
+     */
+    public void testCollectVictims_MaxPixelBytes() {
+        ImageCache cache = new ImageCache();
+        cache.setLimit(0, 250);
+        cache.touch("A", 100);
+        cache.touch("B", 100);
+        cache.touch("C", 100);
+
+        List<String> victims = cache.collectVictims(null);
+        assertEquals("1", 1, victims.size());
+        assertEquals("2", "A", victims.get(0));
+        assertEquals("3", 200, cache.getPixelBytes());
+    }
+
+    /**
+     * ピン留めされたキーのテストです。<br />
+     */
+    public void testPin() {
+        ImageCache cache = new ImageCache();
+        cache.setLimit(1, 0);
+        cache.pin("A");
+        cache.touch("A", 100);
+        cache.touch("B", 100);
+        cache.touch("C", 100);
+
+        List<String> victims = cache.collectVictims("C");
+        assertEquals("1", 1, victims.size());
+        assertEquals("2", "B", victims.get(0));
+        assertTrue("3", cache.isPinned("A"));
+
+        cache.unpin("A");
+        victims = cache.collectVictims("C");
+        assertEquals("4", "A", victims.get(0));
+        assertEquals("5", 1, cache.size());
+    }
+
+    /**
+     * 参照カウントのテストです。<br />
+     */
+    public void testRetainAndRelease() {
+        ImageCache cache = new ImageCache();
+        cache.setLimit(1, 0);
+        assertEquals("1", 1, cache.retain("A"));
+        assertEquals("2", 2, cache.retain("A"));
+        cache.touch("A", 100);
+        cache.touch("B", 100);
+        cache.touch("C", 100);
+
+        List<String> victims = cache.collectVictims("C");
+        assertEquals("3", 1, victims.size());
+        assertEquals("4", "B", victims.get(0));
+
+        assertEquals("5", 1, cache.release("A"));
+        assertEquals("6", 0, cache.release("A"));
+        assertEquals("7", 0, cache.getReferenceCount("A"));
+        assertEquals("8", "A", cache.collectVictims("C").get(0));
+    }
+
+    /**
+     * {@link ImageCache#remove(String)} メソッドのテストです。<br />
+     */
+    public void testRemove() {
+        ImageCache cache = new ImageCache();
+        cache.touch("A", 100);
+        cache.remove("A");
+        cache.remove("B");
+        assertEquals("1", 0, cache.size());
+        assertEquals("2", 0, cache.getPixelBytes());
+    }
+}
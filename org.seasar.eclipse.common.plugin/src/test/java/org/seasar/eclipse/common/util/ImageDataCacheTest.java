@@ -0,0 +1,180 @@
+/*
+ * Copyright 2004-2008 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.eclipse.common.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.ImageLoader;
+import org.seasar.framework.util.InputStreamUtil;
+import org.seasar.framework.util.ResourceUtil;
+
+/**
+ * {@link ImageDataCache} のためのテストクラスです。<br />
+ * 
+ * @author y-komori
+ */
+public class ImageDataCacheTest extends TestCase {
+    private File baseDir;
+
+    @Override
+    protected void setUp() throws Exception {
+        baseDir = new File(System.getProperty("java.io.tmpdir"), "ImageDataCacheTest");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        new ImageDataCache(baseDir, "dummy").clear();
+        new File(baseDir, "dummy").delete();
+        baseDir.delete();
+    }
+
+    /**
+     * {@link ImageDataCache#load(URL)} メソッドのテストです。<br />
+     */
+    public void testLoad() {
+        ImageDataCache cache = new ImageDataCache(baseDir, "1.0.0");
+        cache.clear();
+        assertLoad(cache, "images/arg.gif");
+        assertLoad(cache, "images/cross.png");
+    }
+
+    /**
+     * キャッシュが有効な場合にリソースの内容を読み込まないことのテストです。<br />
+     * 
+     * @throws Exception
+     */
+    public void testLoad_NotReadOnHit() throws Exception {
+        ImageDataCache cache = new ImageDataCache(baseDir, "1.0.0");
+        cache.clear();
+        final URL resource = ResourceUtil.getResource("images/arg.gif");
+        final int[] opened = new int[1];
+        URL url = new URL(null, "test:images/arg.gif", new URLStreamHandler() {
+            @Override
+            protected URLConnection openConnection(final URL u) throws IOException {
+                return new URLConnection(u) {
+                    @Override
+                    public void connect() {
+                    }
+
+                    @Override
+                    public int getContentLength() {
+                        return 100;
+                    }
+
+                    @Override
+                    public long getLastModified() {
+                        return 1L;
+                    }
+
+                    @Override
+                    public InputStream getInputStream() throws IOException {
+                        opened[0]++;
+                        return resource.openStream();
+                    }
+                };
+            }
+        });
+        cache.load(url);
+        assertEquals("1", 1, opened[0]);
+        assertNotNull("2", cache.load(url));
+        assertEquals("3", 1, opened[0]);
+    }
+
+    /**
+     * リソースが更新された場合のテストです。<br />
+     * 
+     * @throws Exception
+     */
+    public void testLoad_Modified() throws Exception {
+        ImageDataCache cache = new ImageDataCache(baseDir, "1.0.0");
+        cache.clear();
+        File file = new File(baseDir, "image.tmp");
+        try {
+            copy("images/arg.gif", file);
+            URL url = file.toURI().toURL();
+            ImageData arg = cache.load(url);
+
+            copy("images/cross.png", file);
+            ImageData expected = new ImageLoader().load(ResourceUtil
+                    .getResourceAsStream("images/cross.png"))[0];
+            ImageData cross = cache.load(url);
+            assertEquals("1", expected.depth, cross.depth);
+            assertFalse("2", Arrays.equals(arg.data, cross.data));
+            assertImageData("3", expected, cross);
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * バージョンが変わった場合のテストです。<br />
+     */
+    public void testPurgeOtherVersions() {
+        ImageDataCache cache = new ImageDataCache(baseDir, "1.0.0");
+        cache.load(ResourceUtil.getResource("images/arg.gif"));
+        assertTrue("1", cache.getDirectory().list().length > 0);
+
+        ImageDataCache newCache = new ImageDataCache(baseDir, "1.0.1");
+        assertFalse("2", cache.getDirectory().exists());
+        assertEquals("3", 0, newCache.getDirectory().list().length);
+        newCache.clear();
+        newCache.getDirectory().delete();
+    }
+
+    private void copy(final String path, final File file) throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(InputStreamUtil.getBytes(ResourceUtil.getResourceAsStream(path)));
+        } finally {
+            out.close();
+        }
+    }
+
+    private void assertLoad(final ImageDataCache cache, final String path) {
+        URL url = ResourceUtil.getResource(path);
+        ImageData expected = new ImageLoader().load(ResourceUtil.getResourceAsStream(path))[0];
+
+        ImageData first = cache.load(url);
+        assertTrue(path, cache.getCacheFile(url).exists());
+        ImageData second = cache.load(url);
+
+        assertImageData(path, expected, first);
+        assertImageData(path, expected, second);
+    }
+
+    private void assertImageData(final String message, final ImageData expected,
+            final ImageData actual) {
+        assertEquals(message, expected.width, actual.width);
+        assertEquals(message, expected.height, actual.height);
+        assertEquals(message, expected.depth, actual.depth);
+        assertEquals(message, expected.transparentPixel, actual.transparentPixel);
+        assertEquals(message, expected.palette.isDirect, actual.palette.isDirect);
+        assertTrue(message, Arrays.equals(expected.data, actual.data));
+        assertTrue(message, Arrays.equals(expected.maskData, actual.maskData));
+        assertTrue(message, Arrays.equals(expected.alphaData, actual.alphaData));
+        assertTrue(message, Arrays.equals(expected.getRGBs(), actual.getRGBs()));
+    }
+}
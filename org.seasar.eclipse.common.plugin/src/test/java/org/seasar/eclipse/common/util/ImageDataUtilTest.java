@@ -0,0 +1,231 @@
+/*
+ * Copyright 2004-2008 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.eclipse.common.util;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.ImageLoader;
+import org.eclipse.swt.graphics.PaletteData;
+import org.eclipse.swt.graphics.RGB;
+import org.seasar.framework.util.ResourceUtil;
+
+/**
+ * {@link ImageDataUtil} のためのテストクラスです。<br />
+ * 
+ * @author y-komori
+ */
+public class ImageDataUtilTest extends TestCase {
+
+    /**
+     * インデックスカラーの {@link ImageDataUtil#toARGB(ImageData)} メソッドのテストです。<br />
+     */
+    public void testToARGB_Indexed() {
+        ImageData imageData = load("images/arg.gif");
+        int[] argb = ImageDataUtil.toARGB(imageData);
+        for (int y = 0; y < imageData.height; y++) {
+            for (int x = 0; x < imageData.width; x++) {
+                int pixel = imageData.getPixel(x, y);
+                RGB rgb = imageData.palette.getRGB(pixel);
+                int alpha = pixel == imageData.transparentPixel ? 0 : 0xFF;
+                int expected = (alpha << 24) | (rgb.red << 16) | (rgb.green << 8) | rgb.blue;
+                assertEquals(x + "," + y, expected, argb[y * imageData.width + x]);
+            }
+        }
+    }
+
+    /**
+     * {@link ImageDataUtil#fromARGB(int[], int, int)} メソッドのテストです。<br />
+     */
+    public void testFromARGB() {
+        int[] argb = new int[] { 0xFF102030, 0x80405060, 0x00000000, 0xFFFFFFFF };
+        ImageData imageData = ImageDataUtil.fromARGB(argb, 2, 2);
+        assertEquals("1", new RGB(0x10, 0x20, 0x30), getRGB(imageData, 0, 0));
+        assertEquals("2", new RGB(0x40, 0x50, 0x60), getRGB(imageData, 1, 0));
+        assertEquals("3", 0x80, imageData.getAlpha(1, 0));
+        assertEquals("4", 0, imageData.getAlpha(0, 1));
+        assertTrue("5", Arrays.equals(argb, ImageDataUtil.toARGB(imageData)));
+
+        assertNull("6", ImageDataUtil.fromARGB(new int[] { 0xFF000000 }, 1, 1).alphaData);
+    }
+
+    /**
+     * {@link ImageDataUtil#scaleNearest(ImageData, int, int)} メソッドのテストです。<br />
+     */
+    public void testScaleNearest() {
+        ImageData imageData = load("images/container.gif");
+        ImageData scaled = ImageDataUtil.scaleNearest(imageData, 32, 32);
+        assertEquals("1", 32, scaled.width);
+        int[] src = ImageDataUtil.toARGB(imageData);
+        int[] dst = ImageDataUtil.toARGB(scaled);
+        for (int y = 0; y < 32; y++) {
+            for (int x = 0; x < 32; x++) {
+                assertEquals(x + "," + y, src[(y / 2) * 16 + x / 2], dst[y * 32 + x]);
+            }
+        }
+    }
+
+    /**
+     * {@link ImageDataUtil#scaleBilinear(ImageData, int, int)} メソッドのテストです。<br />
+     */
+    public void testScaleBilinear() {
+        int[] argb = new int[] { 0xFF000000, 0xFFFFFFFF, 0xFF000000, 0xFFFFFFFF };
+        ImageData scaled = ImageDataUtil.scaleBilinear(ImageDataUtil.fromARGB(argb, 2, 2), 4, 1);
+        int[] result = ImageDataUtil.toARGB(scaled);
+        assertEquals("1", 0xFF000000, result[0]);
+        assertEquals("2", 0xFFFFFFFF, result[3]);
+        int mid = result[1] & 0xFF;
+        assertTrue("3", mid > 0 && mid < 0xFF);
+
+        int[] transparent = new int[] { 0xFFFF0000, 0x0000FF00 };
+        int[] edge = ImageDataUtil.toARGB(ImageDataUtil.scaleBilinear(ImageDataUtil.fromARGB(
+                transparent, 2, 1), 4, 1));
+        assertEquals("4", 0xFF0000, edge[1] & 0xFFFFFF);
+    }
+
+    /**
+     * {@link ImageDataUtil#composite(ImageData, ImageData, int, int)} メソッドのテストです。<br />
+     */
+    public void testComposite() {
+        ImageData base = ImageDataUtil.fromARGB(new int[] { 0xFF0000FF, 0xFF0000FF, 0xFF0000FF,
+                0xFF0000FF }, 2, 2);
+        ImageData overlay = ImageDataUtil.fromARGB(new int[] { 0xFFFF0000, 0x00FF0000 }, 2, 1);
+        int[] result = ImageDataUtil.toARGB(ImageDataUtil.composite(base, overlay, 1, 1));
+        assertEquals("1", 0xFF0000FF, result[0]);
+        assertEquals("2", 0xFF0000FF, result[2]);
+        assertEquals("3", 0xFFFF0000, result[3]);
+    }
+
+    /**
+     * {@link ImageDataUtil#tint(ImageData, RGB, int)} メソッドのテストです。<br />
+     */
+    public void testTint() {
+        ImageData imageData = ImageDataUtil.fromARGB(new int[] { 0x80000000 }, 1, 1);
+        assertEquals("1", 0x80FF0000, ImageDataUtil.toARGB(ImageDataUtil.tint(imageData, new RGB(
+                255, 0, 0), 255))[0]);
+        assertEquals("2", 0x80800000, ImageDataUtil.toARGB(ImageDataUtil.tint(imageData, new RGB(
+                255, 0, 0), 128))[0]);
+    }
+
+    /**
+     * {@link ImageDataUtil#grayscale(ImageData)} メソッドのテストです。<br />
+     */
+    public void testGrayscale() {
+        ImageData imageData = ImageDataUtil.fromARGB(new int[] { 0xFFFF0000, 0x40FFFFFF }, 2, 1);
+        int[] result = ImageDataUtil.toARGB(ImageDataUtil.grayscale(imageData));
+        assertEquals("1", 0xFF4C4C4C, result[0]);
+        assertEquals("2", 0x40FFFFFF, result[1]);
+    }
+
+    /**
+     * {@link ImageDataUtil#crop(ImageData, int, int, int, int)} メソッドのテストです。<br />
+     */
+    public void testCrop() {
+        ImageData imageData = load("images/arg.gif");
+        ImageData cropped = ImageDataUtil.crop(imageData, 3, 2, 5, 4);
+        assertEquals("1", imageData.depth, cropped.depth);
+        assertEquals("2", imageData.transparentPixel, cropped.transparentPixel);
+        for (int y = 0; y < 4; y++) {
+            for (int x = 0; x < 5; x++) {
+                assertEquals(x + "," + y, imageData.getPixel(x + 3, y + 2), cropped.getPixel(x, y));
+            }
+        }
+        try {
+            ImageDataUtil.crop(imageData, 1, 0, imageData.width, 1);
+            fail("3");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    /**
+     * {@link ImageDataUtil#downsample(ImageData)} メソッドのテストです。<br />
+     */
+    public void testDownsample() {
+        int[] argb = new int[] { 0xFF000000, 0xFFFFFFFF, 0xFF0000FF, 0xFF000000, 0xFFFFFFFF,
+                0x000000FF };
+        int[] result = ImageDataUtil.toARGB(ImageDataUtil.downsample(ImageDataUtil.fromARGB(argb,
+                3, 2)));
+        assertEquals("1", 2, result.length);
+        assertEquals("2", 0xFF808080, result[0]);
+        assertEquals("3", 0x800000FF, result[1]);
+    }
+
+    /**
+     * {@link ImageDataUtil#scaleToFit(ImageData, int, int)} メソッドのテストです。<br />
+     */
+    public void testScaleToFit() {
+        ImageData imageData = ImageDataUtil.fromARGB(new int[400 * 100], 400, 100);
+        ImageData scaled = ImageDataUtil.scaleToFit(imageData, 64, 64);
+        assertEquals("1", 64, scaled.width);
+        assertEquals("2", 16, scaled.height);
+
+        ImageData small = ImageDataUtil.fromARGB(new int[16 * 16], 16, 16);
+        assertSame("3", small, ImageDataUtil.scaleToFit(small, 64, 64));
+    }
+
+    public void testCompactPalette() {
+        int[] argb = new int[20 * 10];
+        for (int i = 0; i < argb.length; i++) {
+            argb[i] = new int[] { 0xFFFF0000, 0xFF00FF00, 0x800000FF }[i % 3];
+        }
+        ImageData imageData = ImageDataUtil.fromARGB(argb, 20, 10);
+        ImageData compacted = ImageDataUtil.compactPalette(imageData);
+        assertEquals("1", 2, compacted.depth);
+        assertFalse("2", compacted.palette.isDirect);
+        assertTrue("3", compacted.data.length < imageData.data.length);
+        assertTrue("4", Arrays.equals(argb, ImageDataUtil.toARGB(compacted)));
+
+        int[] colorful = new int[300];
+        for (int i = 0; i < colorful.length; i++) {
+            colorful[i] = 0xFF000000 | i;
+        }
+        ImageData full = ImageDataUtil.fromARGB(colorful, 300, 1);
+        assertSame("5", full, ImageDataUtil.compactPalette(full));
+    }
+
+    /**
+     * 並列に処理される大きさのイメージのテストです。<br />
+     */
+    public void testGrayscale_Parallel() {
+        int width = 300;
+        int height = 300;
+        ImageData imageData = new ImageData(width, height, 8, new PaletteData(new RGB[] {
+                new RGB(255, 0, 0), new RGB(0, 0, 255) }));
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                imageData.setPixel(x, y, (x + y) % 2);
+            }
+        }
+        assertTrue("1", width * height >= ImageDataUtil.PARALLEL_THRESHOLD);
+        int[] result = ImageDataUtil.toARGB(ImageDataUtil.grayscale(imageData));
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int expected = (x + y) % 2 == 0 ? 0xFF4C4C4C : 0xFF1C1C1C;
+                assertEquals(x + "," + y, expected, result[y * width + x]);
+            }
+        }
+    }
+
+    private ImageData load(final String path) {
+        return new ImageLoader().load(ResourceUtil.getResourceAsStream(path))[0];
+    }
+
+    private RGB getRGB(final ImageData imageData, final int x, final int y) {
+        return imageData.palette.getRGB(imageData.getPixel(x, y));
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2004-2008 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.eclipse.common.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+
+import junit.framework.TestCase;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.ImageLoader;
+import org.eclipse.swt.graphics.PaletteData;
+import org.seasar.framework.util.InputStreamUtil;
+import org.seasar.framework.util.ResourceUtil;
+
+/**
+ * {@link ImageInfo} のためのテストクラスです。<br />
+ * 
+ * @author y-komori
+ */
+public class ImageInfoTest extends TestCase {
+
+    /**
+     * GIF 形式と PNG 形式の {@link ImageInfo#read(InputStream)} メソッドのテストです。<br />
+     * 
+     * @throws Exception
+     */
+    public void testRead_Resource() throws Exception {
+        assertResource("images/arg.gif", SWT.IMAGE_GIF);
+        assertResource("images/arg@2x.gif", SWT.IMAGE_GIF);
+        assertResource("images/cross.png", SWT.IMAGE_PNG);
+    }
+
+    /**
+     * BMP 形式と JPEG 形式の {@link ImageInfo#read(InputStream)} メソッドのテストです。<br />
+     * 
+     * @throws Exception
+     */
+    public void testRead_Encoded() throws Exception {
+        ImageData imageData = new ImageData(37, 21, 24, new PaletteData(0xFF, 0xFF00, 0xFF0000));
+
+        ImageInfo bmp = ImageInfo.read(encode(imageData, SWT.IMAGE_BMP));
+        assertEquals("1", SWT.IMAGE_BMP, bmp.getType());
+        assertEquals("2", 37, bmp.getWidth());
+        assertEquals("3", 21, bmp.getHeight());
+        assertEquals("4", 24, bmp.getDepth());
+
+        ImageInfo jpeg = ImageInfo.read(encode(imageData, SWT.IMAGE_JPEG));
+        assertEquals("5", SWT.IMAGE_JPEG, jpeg.getType());
+        assertEquals("6", 37, jpeg.getWidth());
+        assertEquals("7", 21, jpeg.getHeight());
+        assertEquals("8", 24, jpeg.getDepth());
+    }
+
+    /**
+     * 対応していない形式の {@link ImageInfo#read(InputStream)} メソッドのテストです。<br />
+     * 
+     * @throws Exception
+     */
+    public void testRead_Unknown() throws Exception {
+        assertNull("1", ImageInfo.read(new ByteArrayInputStream("text".getBytes())));
+        assertNull("2", ImageInfo.read(new ByteArrayInputStream(new byte[] { 'G', 'I', 'F' })));
+    }
+
+    private void assertResource(final String path, final int type) throws Exception {
+        ImageData expected = new ImageLoader().load(ResourceUtil.getResourceAsStream(path))[0];
+        InputStream is = ResourceUtil.getResourceAsStream(path);
+        try {
+            ImageInfo info = ImageInfo.read(is);
+            assertEquals(path, type, info.getType());
+            assertEquals(path, expected.width, info.getWidth());
+            assertEquals(path, expected.height, info.getHeight());
+        } finally {
+            InputStreamUtil.close(is);
+        }
+    }
+
+    private InputStream encode(final ImageData imageData, final int format) {
+        ImageLoader loader = new ImageLoader();
+        loader.data = new ImageData[] { imageData };
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        loader.save(out, format);
+        return new ByteArrayInputStream(out.toByteArray());
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2004-2008 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.eclipse.common.util;
+
+import junit.framework.TestCase;
+
+/**
+ * {@link ImageKeyTable} のためのテストクラスです。<br />
+ * 
+ * @author y-komori
+ */
+public class ImageKeyTableTest extends TestCase {
+
+    /**
+     * {@link ImageKeyTable#intern(String)} メソッドのテストです。<br />
+     */
+    public void testIntern() {
+        ImageKeyTable table = new ImageKeyTable();
+        assertEquals("1", 0, table.intern("ARG_IMG"));
+        assertEquals("2", 1, table.intern("CONTAINER_IMG"));
+        assertEquals("3", 0, table.intern("ARG_IMG"));
+        assertEquals("4", 2, table.size());
+
+        assertEquals("5", 1, table.getId("CONTAINER_IMG"));
+        assertEquals("6", -1, table.getId("DUMMY_IMG"));
+        assertEquals("7", "ARG_IMG", table.getKey(0));
+        assertNull("8", table.getKey(2));
+        assertNull("9", table.getKey(-1));
+    }
+
+    /**
+     * 初期容量を超えて ID を割り当てる場合のテストです。<br />
+     */
+    public void testIntern_Grow() {
+        ImageKeyTable table = new ImageKeyTable();
+        for (int i = 0; i < 200; i++) {
+            assertEquals(i, table.intern("KEY_" + i));
+        }
+        for (int i = 0; i < 200; i++) {
+            assertEquals("KEY_" + i, table.getKey(i));
+        }
+    }
+}
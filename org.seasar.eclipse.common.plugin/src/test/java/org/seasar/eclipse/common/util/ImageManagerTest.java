@@ -15,14 +15,25 @@
  */
 package org.seasar.eclipse.common.util;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.ResourceBundle;
 
 import org.eclipse.jface.resource.ImageDescriptor;
 import org.eclipse.swt.graphics.Image;
 import org.eclipse.swt.graphics.ImageData;
 import org.eclipse.swt.graphics.ImageLoader;
+import org.eclipse.swt.graphics.RGB;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Shell;
+import org.seasar.eclipse.common.util.ImageStatistics.SourceType;
 import org.seasar.framework.exception.ResourceNotFoundRuntimeException;
 import org.seasar.framework.util.ResourceUtil;
 
@@ -187,6 +198,20 @@ public class ImageManagerTest extends AbstractShellTest {
         assertNotNull("6", Images.INCLUDE_IMG);
     }
 
+    /**
+     * {@link ImageManager#injectImages(Class)} メソッドで {@link LazyImage} をインジェクションする場合のテストです。<br />
+     */
+    public void testInjectImages_LazyImage() {
+        loadImages();
+        ImageManager.injectImages(LazyImages.class);
+
+        assertNotNull("1", LazyImages.PROPERTY_IMG);
+        assertEquals("2", "PROPERTY_IMG", LazyImages.PROPERTY_IMG.getKey());
+        assertNotNull("3", LazyImages.PROPERTY_IMG.getImageDescriptor());
+        assertSame("4", ImageManager.getImage("PROPERTY_IMG"), LazyImages.PROPERTY_IMG.getImage());
+        assertNull("5", LazyImages.DUMMY_IMAGE);
+    }
+
     /**
      * {@link ImageManager#dispose()} メソッドのテストです。<br />
      */
@@ -210,6 +235,488 @@ public class ImageManagerTest extends AbstractShellTest {
         assertTrue("5", containerImage.isDisposed());
     }
 
+    /**
+     * {@link Display} の破棄に伴ってレジストリが破棄される場合のテストです。<br />
+     */
+    public void testDisposeWithDisplay() {
+        Image image = ImageManager.loadImage("images/arg.gif");
+        assertNotNull("1", ImageManager.getRegistry(display));
+
+        display.dispose();
+        assertTrue("2", image.isDisposed());
+        assertNull("3", ImageManager.getRegistry(display));
+        assertNull("4", ImageManager.getStatistics(display));
+    }
+
+    /**
+     * {@link ImageManager#init(Display)} メソッドで再初期化した場合のテストです。<br />
+     */
+    public void testInit_Reinit() {
+        Image image = ImageManager.loadImage("images/arg.gif");
+        DisplayImageRegistry registry = ImageManager.getRegistry(display);
+
+        ImageManager.init(display);
+        assertTrue("1", image.isDisposed());
+        assertTrue("2", registry.isDisposed());
+        assertNotSame("3", registry, ImageManager.getRegistry(display));
+        assertNull("4", ImageManager.getImage("images/arg.gif"));
+    }
+
+    /**
+     * {@link ImageManager#putImageAsync(String, String, ImageLoadListener)} メソッドのテストです。<br />
+     */
+    public void testPutImageAsync() throws Exception {
+        final List<String> loaded = new ArrayList<String>();
+        ImageLoadListener listener = new ImageLoadListener() {
+            public void imageLoaded(final String key, final Image image) {
+                loaded.add(key);
+            }
+
+            public void imageLoadFailed(final String key, final Throwable cause) {
+                fail(key);
+            }
+        };
+        ImageData imageData = ImageManager.putImageAsync("ARG_IMG", "images/arg.gif", listener)
+                .get();
+        assertNotNull("1", imageData);
+        runEventLoop(loaded, 1);
+
+        assertEquals("2", 1, loaded.size());
+        assertNotNull("3", ImageManager.getImage("ARG_IMG"));
+
+        try {
+            ImageManager.putImageAsync("DUMMY_IMG", "dummy", listener);
+            fail("4");
+        } catch (ResourceNotFoundRuntimeException ex) {
+            assertTrue(true);
+        }
+    }
+
+    /**
+     * {@link ImageManager#loadImagesAsync(String, ImageLoadListener)} メソッドのテストです。<br />
+     */
+    public void testLoadImagesAsync() throws Exception {
+        final List<String> loaded = new ArrayList<String>();
+        ImageManager.loadImagesAsync("org/seasar/eclipse/common/util/ImageManagerTest",
+                new ImageLoadListener() {
+                    public void imageLoaded(final String key, final Image image) {
+                        loaded.add(key);
+                    }
+
+                    public void imageLoadFailed(final String key, final Throwable cause) {
+                        fail(key);
+                    }
+                });
+        runEventLoop(loaded, 5);
+
+        assertEquals("1", 5, loaded.size());
+        assertNotNull("2", ImageManager.getImage("ARG_IMG"));
+        assertNotNull("3", ImageManager.getImage("PROPERTY_IMG"));
+    }
+
+    /**
+     * {@link ImageManager#setCacheLimit(int, long)} メソッドのテストです。<br />
+     */
+    public void testSetCacheLimit() {
+        loadImages();
+        ImageManager.setCacheLimit(2, 0);
+        try {
+            Image argImage = ImageManager.getImage("ARG_IMG");
+            ImageManager.pinImage("ARG_IMG");
+            Image componentImage = ImageManager.getImage("COMPONENT_IMG");
+            Image containerImage = ImageManager.getImage("CONTAINER_IMG");
+
+            assertFalse("1", argImage.isDisposed());
+            assertTrue("2", componentImage.isDisposed());
+            assertFalse("3", containerImage.isDisposed());
+
+            Image reloaded = ImageManager.getImage("COMPONENT_IMG");
+            assertNotNull("4", reloaded);
+            assertFalse("5", reloaded.isDisposed());
+            assertTrue("6", containerImage.isDisposed());
+            assertNotNull("7", ImageManager.getImageDescriptor("CONTAINER_IMG"));
+        } finally {
+            ImageManager.unpinImage("ARG_IMG");
+            ImageManager.setCacheLimit(0, 0);
+        }
+    }
+
+    /**
+     * {@link ImageManager#acquireImage(String)} メソッドのテストです。<br />
+     */
+    public void testAcquireImage() {
+        loadImages();
+        ImageHandle handle1 = ImageManager.acquireImage("ARG_IMG");
+        ImageHandle handle2 = ImageManager.acquireImage("ARG_IMG");
+        assertNotNull("1", handle1);
+        Image image = handle1.getImage();
+        assertSame("2", image, handle2.getImage());
+
+        handle1.release();
+        assertTrue("3", handle1.isReleased());
+        assertFalse("4", image.isDisposed());
+
+        handle2.release();
+        handle2.release();
+        assertTrue("5", image.isDisposed());
+        assertNotNull("6", ImageManager.getImageDescriptor("ARG_IMG"));
+
+        ImageHandle handle3 = ImageManager.acquireImage("ARG_IMG");
+        assertFalse("7", handle3.getImage().isDisposed());
+        handle3.release();
+
+        assertNull("8", ImageManager.acquireImage("DUMMY_IMG"));
+        try {
+            handle1.getImage();
+            fail("9");
+        } catch (IllegalStateException ex) {
+            assertTrue(true);
+        }
+    }
+
+    /**
+     * {@link ImageManager#getImage(String)} メソッドでも返したイメージを、{@link ImageHandle}
+     * の解放時に破棄しないことのテストです。<br />
+     */
+    public void testAcquireImage_WithGetImage() {
+        loadImages();
+        Image image = ImageManager.getImage("ARG_IMG");
+        ImageHandle handle = ImageManager.acquireImage("ARG_IMG");
+        assertSame("1", image, handle.getImage());
+        handle.release();
+        assertFalse("2", image.isDisposed());
+        assertSame("3", image, ImageManager.getImage("ARG_IMG"));
+
+        Image putImage = ImageManager.putImage("CONTAINER_IMG", "images/container.gif");
+        ImageManager.acquireImage("CONTAINER_IMG").release();
+        assertFalse("4", putImage.isDisposed());
+
+        handle = ImageManager.acquireImage("COMPONENT_IMG");
+        Image handleImage = handle.getImage();
+        handle.release();
+        assertTrue("5", handleImage.isDisposed());
+    }
+
+    /**
+     * {@link Display} スレッド以外から {@link ImageDescriptor} を登録・検索する場合のテストです。<br />
+     */
+    public void testPutImageDescriptor_FromOtherThread() throws Exception {
+        final ImageDescriptor[] results = new ImageDescriptor[2];
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                results[0] = ImageManager.putImageDescriptor("ARG_IMG", "images/arg.gif");
+                results[1] = ImageManager.getImageDescriptor("ARG_IMG");
+            }
+        };
+        thread.start();
+        thread.join();
+
+        assertNotNull("1", results[0]);
+        assertSame("2", results[0], results[1]);
+        assertSame("3", results[0], ImageManager.getImageDescriptor("ARG_IMG"));
+
+        Image argImage = ImageManager.getImage("ARG_IMG");
+        assertNotNull("4", argImage);
+
+        ImageManager.putImageDescriptor("ARG_IMG", "images/container.gif");
+        Image containerImage = ImageManager.getImage("ARG_IMG");
+        assertNotSame("5", argImage, containerImage);
+        assertTrue("6", argImage.isDisposed());
+    }
+
+    /**
+     * {@link ImageManager#loadImagesDeduplicated(String)} メソッドのテストです。<br />
+     */
+    public void testLoadImagesDeduplicated() {
+        ImageDedupReport report = ImageManager
+                .loadImagesDeduplicated("org/seasar/eclipse/common/util/DedupImages");
+        assertEquals("1", 3, report.getKeyCount());
+        assertEquals("2", 2, report.getUniqueCount());
+        assertEquals("3", 1.0 / 3, report.getDedupRatio(), 0.001);
+        assertEquals("4", 1, report.getAliases().size());
+
+        Image argImage = ImageManager.getImage("ARG_IMG");
+        assertNotNull("5", argImage);
+        assertSame("6", argImage, ImageManager.getImage("ARG_IMG_2"));
+        assertNotSame("7", argImage, ImageManager.getImage("CONTAINER_IMG"));
+    }
+
+    /**
+     * {@link ImageManager#loadImageArchive(URL)} メソッドのテストです。<br />
+     */
+    public void testLoadImageArchive() throws Exception {
+        File file = new File(System.getProperty("java.io.tmpdir"), "ImageManagerTest.s2ia");
+        try {
+            ImageArchiveBuilder builder = new ImageArchiveBuilder();
+            builder.addBundle(ResourceBundle.getBundle("org/seasar/eclipse/common/util/DedupImages"));
+            builder.write(file);
+
+            ImageArchive archive = ImageManager.loadImageArchive(file.toURI().toURL());
+            assertEquals("1", 3, archive.getKeys().size());
+            Image argImage = ImageManager.getImage("ARG_IMG");
+            assertNotNull("2", argImage);
+            assertSame("3", argImage, ImageManager.getImage("ARG_IMG_2"));
+            assertNotNull("4", ImageManager.getImage("CONTAINER_IMG"));
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * {@link ImageManager#loadImageAtlas(String)} メソッドのテストです。<br />
+     */
+    public void testLoadImageAtlas() {
+        ImageAtlas atlas = ImageManager
+                .loadImageAtlas("org/seasar/eclipse/common/util/ImageManagerTest");
+        assertEquals("1", 1, atlas.getPageCount());
+        assertEquals("2", 5, atlas.getRegions().size());
+
+        ImageRegion region = ImageManager.getImageRegion("ARG_IMG");
+        assertNotNull("3", region);
+        assertSame("4", atlas.getPage(0), region.getPageImage());
+
+        Image expected = ImageManager.loadImage("images/arg.gif");
+        Image image = region.getImage();
+        assertEquals("5", expected.getBounds().width, image.getBounds().width);
+        assertEquals("6", expected.getBounds().height, image.getBounds().height);
+        assertSame("7", image, region.getImage());
+        assertNull("8", ImageManager.getImageRegion("DUMMY_IMG"));
+
+        ImageManager.dispose();
+        assertTrue("9", atlas.isDisposed());
+        assertTrue("10", image.isDisposed());
+        ImageManager.init(display);
+    }
+
+    /**
+     * {@link ImageManager#getImage(int)} メソッドのテストです。<br />
+     */
+    public void testGetImage_Id() {
+        int id = ImageManager.internKey("ARG_IMG");
+        assertEquals("1", id, ImageManager.internKey("ARG_IMG"));
+        assertEquals("2", "ARG_IMG", ImageManager.getKey(id));
+        assertNull("3", ImageManager.getImage(id));
+
+        Image image = ImageManager.putImage("ARG_IMG", "images/arg.gif");
+        assertSame("4", image, ImageManager.getImage(id));
+        assertSame("5", image, ImageManager.getImage(id));
+
+        Image replaced = ImageManager.putImage("ARG_IMG", "images/container.gif");
+        assertSame("6", replaced, ImageManager.getImage(id));
+
+        ImageManager.putImageDescriptor("ARG_IMG", "images/arg.gif");
+        Image reloaded = ImageManager.getImage(id);
+        assertNotSame("7", replaced, reloaded);
+        assertSame("8", reloaded, ImageManager.getImage("ARG_IMG"));
+        assertNull("9", ImageManager.getImage(Integer.MAX_VALUE));
+    }
+
+    /**
+     * {@link Display} スレッド以外でイメージを置き換えた後に、{@link ImageManager#getImage(int)}
+     * メソッドで取得する場合のテストです。<br />
+     */
+    public void testGetImage_Id_ReplacedFromOtherThread() throws Exception {
+        final int id = ImageManager.internKey("ARG_IMG");
+        Image image = ImageManager.putImage("ARG_IMG", "images/arg.gif");
+        assertSame("1", image, ImageManager.getImage(id));
+
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 100; j++) {
+                        ImageManager.putImageDescriptor("ARG_IMG", "images/container.gif");
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].join();
+        }
+
+        Image replaced = ImageManager.getImage(id);
+        assertNotNull("2", replaced);
+        assertNotSame("3", image, replaced);
+        assertTrue("4", image.isDisposed());
+        assertSame("5", replaced, ImageManager.getImage("ARG_IMG"));
+    }
+
+    /**
+     * {@link ImageManager#getOverlayImage(String, ImageOverlay[])} メソッドのテストです。<br />
+     */
+    public void testGetOverlayImage() {
+        ImageManager.putImageDescriptor("ARG_IMG", "images/arg.gif");
+        ImageManager.putImageDescriptor("CROSS_IMG", "images/cross.png");
+        ImageOverlay overlay = new ImageOverlay("CROSS_IMG", ImageOverlay.Position.BOTTOM_RIGHT);
+
+        Image image = ImageManager.getOverlayImage("ARG_IMG", overlay);
+        assertNotNull("1", image);
+        assertEquals("2", 16, image.getBounds().width);
+        assertSame("3", image, ImageManager.getOverlayImage("ARG_IMG", overlay));
+        assertNotSame("4", image, ImageManager.getOverlayImage("ARG_IMG", new ImageOverlay(
+                "CROSS_IMG", ImageOverlay.Position.TOP_LEFT)));
+        assertNull("5", ImageManager.getOverlayImage("DUMMY_IMG", overlay));
+
+        ImageManager.getImage("ARG_IMG");
+        ImageManager.putImage("ARG_IMG", "images/container.gif");
+        assertTrue("6", image.isDisposed());
+        Image replaced = ImageManager.getOverlayImage("ARG_IMG", overlay);
+        assertFalse("7", replaced.isDisposed());
+        assertNotSame("8", image, replaced);
+    }
+
+    /**
+     * {@link ImageManager#getImage(String, ImageVariant)} メソッドのテストです。<br />
+     */
+    public void testGetImage_Variant() {
+        Image base = ImageManager.putImage("ARG_IMG", "images/arg.gif");
+        Image disabled = ImageManager.getImage("ARG_IMG", ImageVariant.DISABLED);
+        assertNotNull("1", disabled);
+        assertNotSame("2", base, disabled);
+        assertSame("3", disabled, ImageManager.getImage("ARG_IMG", ImageVariant.DISABLED));
+        Image gray = ImageManager.getImage("ARG_IMG", ImageVariant.GRAY);
+        assertNotSame("4", disabled, gray);
+        Image tinted = ImageManager.getImage("ARG_IMG", ImageVariant.tinted(new RGB(255, 0, 0)));
+        assertSame("5", tinted, ImageManager.getImage("ARG_IMG", ImageVariant.tinted(new RGB(255,
+                0, 0))));
+        assertNull("6", ImageManager.getImage("DUMMY_IMG", ImageVariant.GRAY));
+
+        ImageManager.putImage("ARG_IMG", "images/container.gif");
+        assertTrue("7", disabled.isDisposed());
+        assertTrue("8", gray.isDisposed());
+        assertTrue("9", tinted.isDisposed());
+        assertFalse("10", ImageManager.getImage("ARG_IMG", ImageVariant.DISABLED).isDisposed());
+    }
+
+    /**
+     * {@link ImageManager#loadAnimatedImage(String)} メソッドのテストです。<br />
+     */
+    public void testLoadAnimatedImage() {
+        AnimatedImage image = ImageManager.loadAnimatedImage("images/busy.gif");
+        assertSame("1", image, ImageManager.loadAnimatedImage("/images/busy.gif"));
+        assertEquals("2", 3, image.getFrameCount());
+        assertEquals("3", 50, image.getDelay(0));
+
+        Image frame0 = image.getFrame(0);
+        assertSame("4", frame0, image.getFrame(0));
+        image.setFrameCacheLimit(8 * 8 * 4);
+        image.getFrame(1);
+        assertEquals("5", 1, image.getCachedFrameCount());
+        assertTrue("6", frame0.isDisposed());
+
+        final List<Integer> indices = new ArrayList<Integer>();
+        Shell shell = new Shell(display);
+        image.play(shell, new AnimationListener() {
+            public void frameChanged(final AnimatedImage animatedImage, final int index,
+                    final Image frame) {
+                indices.add(new Integer(index));
+            }
+        });
+        assertEquals("7", Arrays.asList(new Integer[] { new Integer(0) }), indices);
+        shell.dispose();
+
+        ImageManager.dispose();
+        assertTrue("8", image.isDisposed());
+        ImageManager.init(display);
+    }
+
+    /**
+     * {@link ImageManager#getImageInfo(String)} メソッドのテストです。<br />
+     */
+    public void testGetImageInfo() {
+        ImageInfo info = ImageManager.getImageInfo("/images/cross.png");
+        Image image = ImageManager.loadImage("images/cross.png");
+        assertEquals("1", image.getBounds().width, info.getWidth());
+        assertEquals("2", image.getBounds().height, info.getHeight());
+        assertSame("3", info, ImageManager.getImageInfo("images/cross.png"));
+    }
+
+    /**
+     * {@link ImageManager#setZoom(int)} メソッドのテストです。<br />
+     */
+    public void testSetZoom() {
+        ImageManager.setZoom(200);
+        try {
+            ImageManager.putImageDescriptor("ARG_IMG", "images/arg.gif");
+            Image argImage = ImageManager.getImage("ARG_IMG");
+            assertEquals("1", 32, argImage.getBounds().width);
+            Image containerImage = ImageManager.putImage("CONTAINER_IMG", "images/container.gif");
+            assertEquals("2", 32, containerImage.getBounds().width);
+
+            ImageManager.setZoom(100);
+            assertTrue("3", argImage.isDisposed());
+            assertEquals("4", 16, ImageManager.getImage("ARG_IMG").getBounds().width);
+            assertEquals("5", 16, ImageManager.getImage("CONTAINER_IMG").getBounds().width);
+        } finally {
+            ImageManager.setZoom(100);
+        }
+    }
+
+    /**
+     * キャッシュから破棄されたイメージが、倍率の変更時に再生成されないことのテストです。<br />
+     */
+    public void testSetZoom_UnloadedImage() throws Exception {
+        final URL resource = ResourceUtil.getResource("images/arg.gif");
+        final int[] opened = new int[1];
+        URL url = new URL(null, "test:images/arg.gif", new URLStreamHandler() {
+            @Override
+            protected URLConnection openConnection(final URL u) throws IOException {
+                opened[0]++;
+                return resource.openConnection();
+            }
+        });
+        ImageManager.setCacheLimit(1, 0);
+        try {
+            ImageManager.putImageDescriptor("ARG_IMG", url);
+            Image argImage = ImageManager.getImage("ARG_IMG");
+            assertEquals("1", 1, opened[0]);
+            ImageManager.putImage("CONTAINER_IMG", "images/container.gif");
+            assertTrue("2", argImage.isDisposed());
+
+            ImageManager.setZoom(200);
+            assertEquals("3", 1, opened[0]);
+            ImageManager.setZoom(100);
+            assertEquals("4", 1, opened[0]);
+
+            assertEquals("5", 16, ImageManager.getImage("ARG_IMG").getBounds().width);
+            assertEquals("6", 2, opened[0]);
+        } finally {
+            ImageManager.setZoom(100);
+            ImageManager.setCacheLimit(0, 0);
+        }
+    }
+
+    /**
+     * {@link ImageManager#getStatistics()} メソッドのテストです。<br />
+     */
+    public void testGetStatistics() {
+        ImageStatistics statistics = ImageManager.getStatistics();
+        statistics.reset();
+        assertEquals("1", 0, statistics.getLiveImageCount());
+
+        ImageManager.loadImage("images/arg.gif");
+        ImageManager.loadImage("images/arg.gif");
+        assertEquals("2", 1, statistics.getLoadHitCount());
+        assertEquals("3", 1, statistics.getLoadMissCount());
+        assertEquals("4", 1, statistics.getDecodeHistogram(SourceType.PATH).getCount());
+        assertEquals("5", 1, statistics.getLiveImageCount());
+
+        ImageManager.putImageDescriptor("CONTAINER_IMG", "images/container.gif");
+        Image image = ImageManager.getImage("CONTAINER_IMG");
+        ImageManager.getImage("CONTAINER_IMG");
+        assertEquals("6", 1, statistics.getDecodeHistogram(SourceType.DESCRIPTOR).getCount());
+        assertEquals("7", 2, statistics.getLiveImageCount());
+        assertEquals("8", ImageCache.weigh(ImageManager.getImage("images/arg.gif"))
+                + ImageCache.weigh(image), statistics.getPixelBytes());
+
+        ImageManager.dispose();
+        assertEquals("9", 0, statistics.getLiveImageCount());
+        ImageManager.init(display);
+    }
+
     /**
      * {@link ImageManager#normalizePath(String)} メソッドのテストです。<br />
      */
@@ -226,6 +733,16 @@ public class ImageManagerTest extends AbstractShellTest {
         ImageManager.loadImages("org/seasar/eclipse/common/util/ImageManagerTest");
     }
 
+    protected void runEventLoop(final List<?> results, final int expected)
+            throws InterruptedException {
+        long limit = System.currentTimeMillis() + 5000;
+        while (results.size() < expected && System.currentTimeMillis() < limit) {
+            if (!display.readAndDispatch()) {
+                Thread.sleep(10);
+            }
+        }
+    }
+
     /**
      * {@link ImageManager#injectImages(Class)} メソッドのテスト用クラスです。<br />
      * 
@@ -258,4 +775,15 @@ public class ImageManagerTest extends AbstractShellTest {
 
         static Image NO_TARGET_7;
     }
+
+    /**
+     * {@link ImageManager#injectImages(Class)} メソッドで {@link LazyImage} をインジェクションするテスト用クラスです。<br />
+     * 
+     * @author y-komori
+     */
+    public static class LazyImages {
+        public static LazyImage PROPERTY_IMG;
+
+        public static LazyImage DUMMY_IMAGE;
+    }
 }
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2004-2008 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.eclipse.common.util;
+
+import junit.framework.TestCase;
+
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.PaletteData;
+import org.eclipse.swt.graphics.RGB;
+import org.eclipse.swt.graphics.Rectangle;
+
+/**
+ * {@link ImagePyramid} のためのテストクラスです。<br />
+ * 
+ * @author y-komori
+ */
+public class ImagePyramidTest extends TestCase {
+
+    /**
+     * レベルの構成のテストです。<br />
+     */
+    public void testLevels() {
+        ImagePyramid pyramid = new ImagePyramid(createImageData(100, 30), 16);
+        assertEquals("1", 4, pyramid.getLevelCount());
+        assertEquals("2", 50, pyramid.getWidth(1));
+        assertEquals("3", 15, pyramid.getHeight(1));
+        assertEquals("4", 13, pyramid.getWidth(3));
+        assertEquals("5", 4, pyramid.getHeight(3));
+        assertEquals("6", 7, pyramid.getColumns(0));
+        assertEquals("7", 2, pyramid.getRows(0));
+
+        ImageData level = pyramid.getLevel(2);
+        assertEquals("8", 25, level.width);
+        assertEquals("9", 8, level.height);
+        assertSame("10", level, pyramid.getLevel(2));
+    }
+
+    /**
+     * {@link ImagePyramid#selectLevel(double)} メソッドのテストです。<br />
+     */
+    public void testSelectLevel() {
+        ImagePyramid pyramid = new ImagePyramid(createImageData(100, 30), 16);
+        assertEquals("1", 0, pyramid.selectLevel(2.0));
+        assertEquals("2", 0, pyramid.selectLevel(0.6));
+        assertEquals("3", 1, pyramid.selectLevel(0.5));
+        assertEquals("4", 1, pyramid.selectLevel(0.3));
+        assertEquals("5", 3, pyramid.selectLevel(0.01));
+    }
+
+    /**
+     * {@link ImagePyramid#getTile(int, int, int)} メソッドのテストです。<br />
+     */
+    public void testGetTile() {
+        ImageData imageData = createImageData(100, 30);
+        ImagePyramid pyramid = new ImagePyramid(imageData, 16);
+        assertEquals("1", new Rectangle(96, 16, 4, 14), pyramid.getTileBounds(0, 6, 1));
+
+        ImageData tile = pyramid.getTile(0, 6, 1);
+        assertEquals("2", 4, tile.width);
+        assertEquals("3", 14, tile.height);
+        assertEquals("4", imageData.getPixel(97, 20), tile.getPixel(1, 4));
+    }
+
+    private ImageData createImageData(final int width, final int height) {
+        ImageData imageData = new ImageData(width, height, 8, new PaletteData(new RGB[] {
+                new RGB(255, 0, 0), new RGB(0, 255, 0), new RGB(0, 0, 255) }));
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                imageData.setPixel(x, y, (x + y) % 3);
+            }
+        }
+        return imageData;
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2004-2008 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.eclipse.common.util;
+
+import junit.framework.TestCase;
+
+import org.seasar.eclipse.common.util.ImageStatistics.SourceType;
+
+/**
+ * {@link ImageStatistics} のためのテストクラスです。<br />
+ * 
+ * @author y-komori
+ */
+public class ImageStatisticsTest extends TestCase {
+
+    /**
+     * 生成済みオブジェクトの記録のテストです。<br />
+     */
+    public void testTrack() {
+        ImageStatistics statistics = new ImageStatistics();
+        Object a = new Object();
+        Object b = new Object();
+
+        assertTrue("1", statistics.track("A", a, 100));
+        assertFalse("2", statistics.track("A", a, 100));
+        assertFalse("3", statistics.track("ALIAS", a, 100));
+        assertTrue("4", statistics.track("B", b, 50));
+        assertEquals("5", 2, statistics.getLiveImageCount());
+        assertEquals("6", 150, statistics.getPixelBytes());
+
+        statistics.untrack("A");
+        assertEquals("7", 2, statistics.getLiveImageCount());
+        statistics.untrack("ALIAS");
+        assertEquals("8", 1, statistics.getLiveImageCount());
+        assertEquals("9", 50, statistics.getPixelBytes());
+
+        assertTrue("10", statistics.track("B", a, 100));
+        assertEquals("11", 1, statistics.getLiveImageCount());
+        assertEquals("12", 100, statistics.getPixelBytes());
+
+        statistics.clearLiveImages();
+        assertEquals("13", 0, statistics.getLiveImageCount());
+        assertEquals("14", 0, statistics.getPixelBytes());
+    }
+
+    /**
+     * ヒット数・ミス数の記録のテストです。<br />
+     */
+    public void testHitRatio() {
+        ImageStatistics statistics = new ImageStatistics();
+        assertEquals("1", 0.0, statistics.getLookupHitRatio(), 0.0);
+        statistics.recordLookupHit();
+        statistics.recordLookupHit();
+        statistics.recordLookupHit();
+        statistics.recordLookupMiss();
+        statistics.recordLoadMiss();
+        assertEquals("2", 3, statistics.getLookupHitCount());
+        assertEquals("3", 1, statistics.getLookupMissCount());
+        assertEquals("4", 0.75, statistics.getLookupHitRatio(), 0.0);
+        assertEquals("5", 0.0, statistics.getLoadHitRatio(), 0.0);
+
+        statistics.recordDecode(SourceType.PATH, 1000);
+        statistics.reset();
+        assertEquals("6", 0, statistics.getLookupHitCount());
+        assertEquals("7", 0, statistics.getDecodeHistogram(SourceType.PATH).getCount());
+    }
+
+    /**
+     * 処理時間の分布の記録のテストです。<br />
+     */
+    public void testLatencyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals("1", 0, histogram.getPercentileNanos(50));
+        for (int i = 0; i < 9; i++) {
+            histogram.record(1500);
+        }
+        histogram.record(3000000);
+
+        assertEquals("2", 10, histogram.getCount());
+        assertEquals("3", 9, histogram.getBucketCount(1));
+        assertEquals("4", 3000000, histogram.getMaxNanos());
+        assertEquals("5", (9 * 1500 + 3000000) / 10, histogram.getMeanNanos());
+        assertEquals("6", 2000, histogram.getPercentileNanos(50));
+        assertEquals("7", 2000, histogram.getPercentileNanos(90));
+        assertEquals("8", 3000000, histogram.getPercentileNanos(99));
+        assertEquals("9", LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram
+                .getBucketIndex(Long.MAX_VALUE));
+    }
+}
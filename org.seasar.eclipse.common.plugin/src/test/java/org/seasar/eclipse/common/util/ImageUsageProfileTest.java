@@ -0,0 +1,81 @@
+/*
+ * Copyright 2004-2008 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.eclipse.common.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+/**
+ * {@link ImageUsageProfile} のためのテストクラスです。<br />
+ * 
+ * @author y-komori
+ */
+public class ImageUsageProfileTest extends TestCase {
+    private File file;
+
+    @Override
+    protected void setUp() throws Exception {
+        file = new File(System.getProperty("java.io.tmpdir"), "ImageUsageProfileTest.prof");
+        file.delete();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        file.delete();
+    }
+
+    /**
+     * 最初に使用された順にキーが記録され、次回のセッションで読み込まれることのテストです。<br />
+     */
+    public void testSaveAndLoad() {
+        ImageUsageProfile profile = new ImageUsageProfile(file, 3);
+        assertTrue("1", profile.getPreviousKeys().isEmpty());
+
+        profile.record("b");
+        profile.record("a");
+        profile.record("b");
+        profile.record("c");
+        profile.record("d");
+        assertEquals("2", Arrays.asList(new String[] { "b", "a", "c" }), profile
+                .getRecordedKeys());
+        profile.save();
+
+        ImageUsageProfile next = new ImageUsageProfile(file, 3);
+        assertEquals("3", Arrays.asList(new String[] { "b", "a", "c" }), next.getPreviousKeys());
+        assertTrue("4", next.getRecordedKeys().isEmpty());
+
+        next.save();
+        assertEquals("5", 3, new ImageUsageProfile(file).getPreviousKeys().size());
+    }
+
+    /**
+     * 壊れた記録ファイルが無視されることのテストです。<br />
+     * 
+     * @throws Exception
+     */
+    public void testCorruptedFile() throws Exception {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(new byte[] { 1, 2, 3, 4, 5 });
+        } finally {
+            out.close();
+        }
+        assertTrue("1", new ImageUsageProfile(file).getPreviousKeys().isEmpty());
+    }
+}
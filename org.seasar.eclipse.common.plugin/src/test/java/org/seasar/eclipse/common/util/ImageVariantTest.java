@@ -0,0 +1,60 @@
+/*
+ * Copyright 2004-2008 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.eclipse.common.util;
+
+import junit.framework.TestCase;
+
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.RGB;
+
+/**
+ * {@link ImageVariant} のためのテストクラスです。<br />
+ * 
+ * @author y-komori
+ */
+public class ImageVariantTest extends TestCase {
+    private final ImageData imageData = ImageDataUtil.fromARGB(new int[] { 0xFFFF0000, 0x00000000 },
+            2, 1);
+
+    /**
+     * {@link ImageVariant#apply(ImageData)} メソッドのテストです。<br />
+     */
+    public void testApply() {
+        int[] gray = ImageDataUtil.toARGB(ImageVariant.GRAY.apply(imageData));
+        assertEquals("1", 0xFF4C4C4C, gray[0]);
+
+        int[] disabled = ImageDataUtil.toARGB(ImageVariant.DISABLED.apply(imageData));
+        assertEquals("2", 0xAAA6A6A6, disabled[0]);
+        assertEquals("3", 0, disabled[1] >>> 24);
+
+        int[] tinted = ImageDataUtil.toARGB(ImageVariant.tinted(new RGB(0, 0, 255), 255).apply(
+                imageData));
+        assertEquals("4", 0xFF0000FF, tinted[0]);
+    }
+
+    /**
+     * {@link ImageVariant#equals(Object)} メソッドのテストです。<br />
+     */
+    public void testEquals() {
+        assertEquals("1", ImageVariant.tinted(new RGB(1, 2, 3)), ImageVariant.tinted(new RGB(1,
+                2, 3)));
+        assertFalse("2", ImageVariant.tinted(new RGB(1, 2, 3)).equals(
+                ImageVariant.tinted(new RGB(1, 2, 4))));
+        assertFalse("3", ImageVariant.GRAY.equals(ImageVariant.DISABLED));
+        assertEquals("4", "TINTED(1,2,3,128)", ImageVariant.tinted(new RGB(1, 2, 3)).toString());
+        assertEquals("5", "GRAY", ImageVariant.GRAY.toString());
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2004-2008 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.eclipse.common.util;
+
+import junit.framework.TestCase;
+
+import org.eclipse.jface.resource.ImageDescriptor;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.PaletteData;
+import org.eclipse.swt.graphics.RGB;
+import org.seasar.eclipse.common.util.ImageOverlay.Position;
+
+/**
+ * {@link OverlayImageDescriptor} のためのテストクラスです。<br />
+ * 
+ * @author y-komori
+ */
+public class OverlayImageDescriptorTest extends TestCase {
+    private static final PaletteData PALETTE = new PaletteData(0xFF0000, 0xFF00, 0xFF);
+
+    /**
+     * {@link OverlayImageDescriptor#getImageData()} メソッドのテストです。<br />
+     */
+    public void testGetImageData() {
+        ImageDescriptor base = createDescriptor(16, 16, 0x0000FF);
+        ImageDescriptor overlay = createDescriptor(4, 4, 0xFF0000);
+        OverlayImageDescriptor descriptor = new OverlayImageDescriptor(base, new ImageDescriptor[] {
+                overlay, null }, new Position[] { Position.BOTTOM_RIGHT, Position.TOP_LEFT });
+
+        ImageData imageData = descriptor.getImageData();
+        assertEquals("1", 16, imageData.width);
+        assertEquals("2", 16, imageData.height);
+        assertEquals("3", new RGB(0, 0, 255), getRGB(imageData, 0, 0));
+        assertEquals("4", new RGB(0, 0, 255), getRGB(imageData, 11, 11));
+        assertEquals("5", new RGB(255, 0, 0), getRGB(imageData, 12, 12));
+        assertEquals("6", new RGB(255, 0, 0), getRGB(imageData, 15, 15));
+    }
+
+    /**
+     * {@link OverlayImageDescriptor#equals(Object)} メソッドのテストです。<br />
+     */
+    public void testEquals() {
+        ImageDescriptor base = createDescriptor(16, 16, 0);
+        ImageDescriptor overlay = createDescriptor(4, 4, 0);
+        ImageDescriptor[] overlays = new ImageDescriptor[] { overlay };
+        OverlayImageDescriptor descriptor = new OverlayImageDescriptor(base, overlays,
+                new Position[] { Position.TOP_LEFT });
+
+        assertEquals("1", descriptor, new OverlayImageDescriptor(base, overlays,
+                new Position[] { Position.TOP_LEFT }));
+        assertFalse("2", descriptor.equals(new OverlayImageDescriptor(base, overlays,
+                new Position[] { Position.TOP_RIGHT })));
+        assertFalse("3", descriptor.equals(new OverlayImageDescriptor(overlay, overlays,
+                new Position[] { Position.TOP_LEFT })));
+    }
+
+    private ImageDescriptor createDescriptor(final int width, final int height, final int pixel) {
+        ImageData imageData = new ImageData(width, height, 24, PALETTE);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                imageData.setPixel(x, y, pixel);
+            }
+        }
+        return ImageDescriptor.createFromImageData(imageData);
+    }
+
+    private RGB getRGB(final ImageData imageData, final int x, final int y) {
+        return imageData.palette.getRGB(imageData.getPixel(x, y));
+    }
+}
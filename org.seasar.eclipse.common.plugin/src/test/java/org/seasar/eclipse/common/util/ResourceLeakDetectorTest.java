@@ -0,0 +1,91 @@
+/*
+ * Copyright 2004-2008 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.eclipse.common.util;
+
+import org.eclipse.swt.graphics.Color;
+
+/**
+ * {@link ResourceLeakDetector} のためのテストクラスです。<br />
+ * 
+ * @author y-komori
+ */
+public class ResourceLeakDetectorTest extends AbstractShellTest {
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        ResourceLeakDetector.clear();
+        ResourceLeakDetector.setEnabled(true);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        ResourceLeakDetector.setEnabled(false);
+        ResourceLeakDetector.clear();
+        super.tearDown();
+    }
+
+    /**
+     * 破棄されていないリソースが作成箇所ごとに報告されることのテストです。<br />
+     */
+    public void testReport() {
+        Color red = new Color(display, 255, 0, 0);
+        Color blue = new Color(display, 0, 0, 255);
+        ResourceLeakDetector.track(red);
+        ResourceLeakDetector.track(blue);
+        ResourceLeakDetector.track(blue);
+        assertEquals("1", 2, ResourceLeakDetector.getLiveCount());
+
+        String report = ResourceLeakDetector.report();
+        assertTrue("2", report.indexOf("at " + getClass().getName() + ".testReport") >= 0);
+        assertTrue("3", report.indexOf("live=2 (+2)") >= 0);
+
+        red.dispose();
+        assertEquals("4", 1, ResourceLeakDetector.getLiveCount());
+        assertTrue("5", ResourceLeakDetector.report().indexOf("live=1 (-1)") >= 0);
+        blue.dispose();
+    }
+
+    /**
+     * サンプリングしなかったリソースが種類ごとに集計されることのテストです。<br />
+     */
+    public void testSampling() {
+        ResourceLeakDetector.setSamplingInterval(2);
+        try {
+            Color red = new Color(display, 255, 0, 0);
+            Color blue = new Color(display, 0, 0, 255);
+            ResourceLeakDetector.track(red);
+            ResourceLeakDetector.track(blue);
+            String report = ResourceLeakDetector.report();
+            assertTrue("1", report.indexOf("Color (not sampled): live=1") >= 0);
+            assertTrue("2", report.indexOf("Color at ") >= 0);
+            red.dispose();
+            blue.dispose();
+        } finally {
+            ResourceLeakDetector.setSamplingInterval(ResourceLeakDetector.DEFAULT_SAMPLING_INTERVAL);
+        }
+    }
+
+    /**
+     * 無効な場合に記録されないことのテストです。<br />
+     */
+    public void testDisabled() {
+        ResourceLeakDetector.setEnabled(false);
+        Color color = new Color(display, 0, 255, 0);
+        ResourceLeakDetector.track(color);
+        assertEquals("1", 0, ResourceLeakDetector.getLiveCount());
+        color.dispose();
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2004-2008 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.eclipse.common.util;
+
+import java.io.File;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.ImageLoader;
+import org.seasar.framework.util.ResourceUtil;
+
+/**
+ * {@link ThumbnailCache} のためのテストクラスです。<br />
+ * 
+ * @author y-komori
+ */
+public class ThumbnailCacheTest extends TestCase {
+    private ThumbnailCache cache;
+
+    @Override
+    protected void setUp() throws Exception {
+        cache = new ThumbnailCache(new File(System.getProperty("java.io.tmpdir"),
+                "ThumbnailCacheTest"));
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        cache.clear();
+        cache.getDirectory().delete();
+    }
+
+    /**
+     * 修正スタンプによってキャッシュの有効性が判定されることのテストです。<br />
+     * 
+     * @throws Exception
+     */
+    public void testReadWrite() throws Exception {
+        ImageData thumbnail = new ImageLoader().load(ResourceUtil
+                .getResourceAsStream("images/arg.gif"))[0];
+        assertNull("1", cache.read("/project/a.gif", 1L));
+
+        cache.write("/project/a.gif", 1L, thumbnail);
+        ImageData cached = cache.read("/project/a.gif", 1L);
+        assertEquals("2", thumbnail.width, cached.width);
+        assertEquals("3", thumbnail.height, cached.height);
+        assertTrue("4", Arrays.equals(thumbnail.data, cached.data));
+
+        assertNull("5", cache.read("/project/a.gif", 2L));
+        assertNull("6", cache.read("/project/b.gif", 1L));
+
+        cache.write("/project/a.gif", 2L, thumbnail);
+        assertNotNull("7", cache.read("/project/a.gif", 2L));
+        assertEquals("8", 1, cache.getDirectory().list().length);
+    }
+}
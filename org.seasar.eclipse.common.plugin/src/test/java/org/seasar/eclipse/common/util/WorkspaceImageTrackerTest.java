@@ -0,0 +1,133 @@
+/*
+ * Copyright 2004-2008 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.eclipse.common.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+
+/**
+ * {@link WorkspaceImageTracker} のためのテストクラスです。<br />
+ * 
+ * @author y-komori
+ */
+public class WorkspaceImageTrackerTest extends TestCase {
+    private static final IPath ICON = new Path("/project/icons/icon.png");
+
+    private static final IPath DIAGRAM = new Path("/project/doc/diagram.png");
+
+    private WorkspaceImageTracker tracker;
+
+    @Override
+    protected void setUp() throws Exception {
+        tracker = new WorkspaceImageTracker(null);
+    }
+
+    /**
+     * {@link WorkspaceImageTracker#watch(String, IPath)} メソッドのテストです。<br />
+     */
+    public void testWatch() {
+        tracker.watch("a", ICON);
+        tracker.watch("b", ICON);
+        tracker.watch("c", DIAGRAM);
+        assertEquals("1", new HashSet<String>(Arrays.asList("a", "b")), tracker.getKeys(ICON));
+        assertEquals("2", DIAGRAM, tracker.getPath("c"));
+
+        tracker.watch("b", DIAGRAM);
+        assertEquals("3", new HashSet<String>(Arrays.asList("a")), tracker.getKeys(ICON));
+
+        tracker.unwatch("a");
+        assertNull("4", tracker.getPath("a"));
+        assertTrue("5", tracker.getKeys(ICON).isEmpty());
+    }
+
+    /**
+     * 読み込み直しの世代のテストです。<br />
+     */
+    public void testGeneration() {
+        assertFalse("1", tracker.isLatest(ICON, 0));
+        int first = tracker.nextGeneration(ICON);
+        int second = tracker.nextGeneration(ICON);
+        assertFalse("2", tracker.isLatest(ICON, first));
+        assertTrue("3", tracker.isLatest(ICON, second));
+        assertTrue("4", tracker.isLatest(DIAGRAM, tracker.nextGeneration(DIAGRAM)));
+        assertTrue("5", tracker.isLatest(ICON, second));
+    }
+
+    /**
+     * {@link WorkspaceImageTracker#collectChangedPaths(IResourceDelta)} メソッドのテストです。<br />
+     */
+    public void testCollectChangedPaths() {
+        tracker.watch("a", ICON);
+        tracker.watch("b", DIAGRAM);
+        tracker.watch("c", new Path("/project/icons/other.png"));
+
+        IResourceDelta root = createDelta(new Object[] { ICON,
+                createDelta(IResourceDelta.CHANGED, IResourceDelta.CONTENT), DIAGRAM,
+                createDelta(IResourceDelta.CHANGED, IResourceDelta.MARKERS) });
+        List<IPath> changed = tracker.collectChangedPaths(root);
+        assertEquals("1", Arrays.asList(new IPath[] { ICON }), changed);
+
+        root = createDelta(new Object[] { DIAGRAM, createDelta(IResourceDelta.ADDED, 0) });
+        assertEquals("2", Arrays.asList(new IPath[] { DIAGRAM }), tracker
+                .collectChangedPaths(root));
+    }
+
+    private IResourceDelta createDelta(final Object[] members) {
+        final Map<Object, Object> map = new HashMap<Object, Object>();
+        for (int i = 0; i < members.length; i += 2) {
+            map.put(members[i], members[i + 1]);
+        }
+        return createProxy(new InvocationHandler() {
+            public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                if (method.getName().equals("findMember")) {
+                    return map.get(args[0]);
+                }
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    private IResourceDelta createDelta(final int kind, final int flags) {
+        return createProxy(new InvocationHandler() {
+            public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                if (method.getName().equals("getKind")) {
+                    return new Integer(kind);
+                }
+                if (method.getName().equals("getFlags")) {
+                    return new Integer(flags);
+                }
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    private IResourceDelta createProxy(final InvocationHandler handler) {
+        return (IResourceDelta) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[] { IResourceDelta.class }, handler);
+    }
+}
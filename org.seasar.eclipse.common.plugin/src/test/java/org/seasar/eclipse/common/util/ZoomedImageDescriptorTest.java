@@ -0,0 +1,119 @@
+/*
+ * Copyright 2004-2008 the Seasar Foundation and the Others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package org.seasar.eclipse.common.util;
+
+import java.net.URL;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.eclipse.jface.resource.ImageDescriptor;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.ImageLoader;
+import org.eclipse.swt.graphics.Point;
+import org.seasar.framework.util.ResourceUtil;
+
+/**
+ * {@link ZoomedImageDescriptor} のためのテストクラスです。<br />
+ * 
+ * @author y-komori
+ */
+public class ZoomedImageDescriptorTest extends TestCase {
+
+    /**
+     * {@link ZoomedImageDescriptor#getVariantURL(URL, String)} メソッドのテストです。<br />
+     */
+    public void testGetVariantURL() throws Exception {
+        assertEquals("1", "file:/icons/app@2x.png", ZoomedImageDescriptor.getVariantURL(
+                new URL("file:/icons/app.png"), "@2x").toExternalForm());
+        assertEquals("2", "file:/icons.d/app@2x", ZoomedImageDescriptor.getVariantURL(
+                new URL("file:/icons.d/app"), "@2x").toExternalForm());
+    }
+
+    /**
+     * 高解像度版が存在する場合のテストです。<br />
+     */
+    public void testGetImageData_Variant() {
+        ZoomedImageDescriptor descriptor = createDescriptor("images/arg.gif", 200);
+        ImageData imageData = descriptor.getImageData();
+        assertImageData(load("images/arg@2x.gif"), imageData);
+        assertSame("1", imageData, descriptor.getImageData());
+    }
+
+    /**
+     * 高解像度版が存在しない場合のテストです。<br />
+     */
+    public void testGetImageData_Scale() {
+        ImageData expected = load("images/container.gif").scaledTo(32, 32);
+        assertImageData(expected, createDescriptor("images/container.gif", 200).getImageData());
+
+        ImageData base = load("images/arg.gif");
+        ImageData imageData = createDescriptor("images/arg.gif", 150).getImageData();
+        assertImageData(ImageDataUtil.scaleBilinear(base, 24, 24), imageData);
+    }
+
+    /**
+     * デコード済みの {@link ImageData} を拡大し、元のイメージをデコードしないことのテストです。<br />
+     */
+    public void testGetImageData_Base() {
+        ImageDescriptor source = new ImageDescriptor() {
+            @Override
+            public ImageData getImageData() {
+                fail("source must not be decoded");
+                return null;
+            }
+        };
+        ImageData base = load("images/container.gif");
+        ZoomedImageDescriptor descriptor = new ZoomedImageDescriptor(source, ResourceUtil
+                .getResource("images/container.gif"), 200);
+        ImageData imageData = descriptor.getImageData(base);
+        assertImageData(base.scaledTo(32, 32), imageData);
+        assertSame("1", imageData, descriptor.getImageData());
+
+        ZoomedImageDescriptor variant = new ZoomedImageDescriptor(source, ResourceUtil
+                .getResource("images/arg.gif"), 200);
+        assertImageData(load("images/arg@2x.gif"), variant.getImageData(load("images/arg.gif")));
+    }
+
+    /**
+     * {@link ZoomedImageDescriptor#computeZoom(Point)} メソッドのテストです。<br />
+     */
+    public void testComputeZoom() {
+        assertEquals("1", 100, ZoomedImageDescriptor.computeZoom(new Point(96, 96)));
+        assertEquals("2", 100, ZoomedImageDescriptor.computeZoom(new Point(110, 110)));
+        assertEquals("3", 100, ZoomedImageDescriptor.computeZoom(new Point(120, 120)));
+        assertEquals("4", 100, ZoomedImageDescriptor.computeZoom(new Point(144, 144)));
+        assertEquals("5", 200, ZoomedImageDescriptor.computeZoom(new Point(168, 168)));
+        assertEquals("6", 200, ZoomedImageDescriptor.computeZoom(new Point(192, 192)));
+        assertEquals("7", 100, ZoomedImageDescriptor.computeZoom(new Point(72, 72)));
+    }
+
+    private ZoomedImageDescriptor createDescriptor(final String path, final int zoom) {
+        URL url = ResourceUtil.getResource(path);
+        ImageDescriptor source = ImageDescriptor.createFromImageData(load(path));
+        return new ZoomedImageDescriptor(source, url, zoom);
+    }
+
+    private ImageData load(final String path) {
+        return new ImageLoader().load(ResourceUtil.getResourceAsStream(path))[0];
+    }
+
+    private void assertImageData(final ImageData expected, final ImageData actual) {
+        assertEquals(expected.width, actual.width);
+        assertEquals(expected.height, actual.height);
+        assertTrue(Arrays.equals(expected.data, actual.data));
+    }
+}